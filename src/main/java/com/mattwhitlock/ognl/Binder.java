@@ -0,0 +1,181 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns values to many property paths of the same root at once, as when binding request parameters such as
+ * {@code form.lines[3].qty} to a form object. Paths that are chains of property accesses and constant index accesses
+ * are merged into a trie of their steps, so each intermediate object, such as {@code form} and {@code form.lines[3]},
+ * is resolved once per binding however many of the paths pass through it, and the steps keep their resolved getters and
+ * setters from one binding to the next. Any other expression is assigned as by
+ * {@link Expression#setValue(Context, Object, Object)}.
+ * <p>
+ * The assignments are made in the iteration order of the given map. An assignment to an intermediate object of other
+ * paths is seen by the assignments that follow it, but intermediate objects replaced in any other way during a binding,
+ * such as by a setter that replaces other properties, are not. The trie grows with the distinct paths bound, so a binder
+ * should be used for a bounded set of paths, such as the parameters of the forms of an application, and may be shared
+ * by many threads.
+ *
+ * @author Matt Whitlock
+ */
+public final class Binder {
+
+	private static final class Node {
+
+		final Node parent;
+
+		/**
+		 * The step from the value of the parent node to the value of this node, and the first path seen to this node.
+		 */
+		final Expression stepExpr, pathExpr;
+
+		/**
+		 * The name of the property that the step reads, or null if it is an index access.
+		 */
+		final String propertyName;
+
+		final ConcurrentHashMap<Expression, Node> children = new ConcurrentHashMap<>(0);
+
+		Node(Node parent, Expression stepExpr, Expression pathExpr) {
+			this.parent = parent;
+			this.stepExpr = stepExpr;
+			this.pathExpr = pathExpr;
+			propertyName = stepExpr instanceof Expression.PropertyAccess ? ((Expression.PropertyAccess) stepExpr).propertyName : stepExpr instanceof Expression.IndexedPropertyAccess ? ((Expression.IndexedPropertyAccess) stepExpr).propertyName : null;
+		}
+
+		/**
+		 * Returns whether the value of this node could have been changed by an assignment to the given node: whether
+		 * this node or one of its ancestors is the given node or reads the same property of the same object.
+		 */
+		boolean dependsOn(Node node) {
+			for (Node ancestor = this; ancestor.parent != null; ancestor = ancestor.parent) {
+				if (ancestor == node || ancestor.parent == node.parent && ancestor.propertyName != null && ancestor.propertyName.equals(node.propertyName)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * The failure to resolve an intermediate object, which fails every assignment through it.
+	 */
+	private static final class Failure {
+
+		final OgnlException exception;
+
+		Failure(OgnlException exception) {
+			this.exception = exception;
+		}
+
+	}
+
+	private final Node root = new Node(null, null, null);
+
+	public Binder() {
+	}
+
+	/**
+	 * Assigns each of the given values to its expression against the given root. A failed assignment does not prevent
+	 * the others.
+	 *
+	 * @return the exceptions of the failed assignments by their expressions, in the order of the given map
+	 */
+	public Map<Expression, OgnlException> bind(Context context, Object root, Map<Expression, ?> assignments) {
+		if (context == null) {
+			context = new Context();
+		}
+		LinkedHashMap<Expression, OgnlException> failures = new LinkedHashMap<>();
+		HashMap<Node, Object> values = new HashMap<>();
+		for (Map.Entry<Expression, ?> assignment : assignments.entrySet()) {
+			Expression expression = assignment.getKey();
+			try {
+				Node node = getNode(expression);
+				if (node == null || node == this.root) {
+					expression.setValue(context, root, assignment.getValue());
+					// the assignment could have replaced any of the intermediate objects
+					values.clear();
+					continue;
+				}
+				Object object = resolve(context, node.parent, root, values);
+				if (object == null) {
+					throw new NullPointerException(node.parent.pathExpr == null ? null : node.parent.pathExpr.toString());
+				}
+				node.stepExpr.setValue(context, object, assignment.getValue());
+				// forget the intermediate objects that the assignment could have replaced
+				for (Iterator<Node> iterator = values.keySet().iterator(); iterator.hasNext();) {
+					if (iterator.next().dependsOn(node)) {
+						iterator.remove();
+					}
+				}
+			}
+			catch (OgnlException | RuntimeException e) {
+				failures.put(expression, e instanceof OgnlException && ((OgnlException) e).expression == expression ? (OgnlException) e : new OgnlException(expression, e));
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Returns the object at the given node, resolving it and its ancestors as needed.
+	 */
+	private static Object resolve(Context context, Node node, Object root, HashMap<Node, Object> values) throws OgnlException {
+		if (node.parent == null) {
+			return root;
+		}
+		Object value = values.get(node);
+		if (value == null && !values.containsKey(node)) {
+			try {
+				Object object = resolve(context, node.parent, root, values);
+				if (object == null) {
+					throw new NullPointerException(node.parent.pathExpr == null ? null : node.parent.pathExpr.toString());
+				}
+				value = node.stepExpr.getValue(context, object);
+			}
+			catch (OgnlException | RuntimeException e) {
+				value = new Failure(e instanceof OgnlException && ((OgnlException) e).expression == node.pathExpr ? (OgnlException) e : new OgnlException(node.pathExpr, e));
+			}
+			values.put(node, value);
+		}
+		if (value instanceof Failure) {
+			throw ((Failure) value).exception;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the node of the trie for the given expression, adding it and its ancestors as needed, or null if the
+	 * expression is not a chain of property accesses and constant index accesses.
+	 */
+	private Node getNode(Expression expression) {
+		if (expression == Expression.ThisReference.THIS) {
+			return root;
+		}
+		Expression stepExpr = MultiExpressionReader.getStep(expression);
+		if (stepExpr == null) {
+			return null;
+		}
+		Expression objExpr = MultiExpressionReader.getPrefix(expression);
+		Node parent = objExpr == null ? root : getNode(objExpr);
+		if (parent == null) {
+			return null;
+		}
+		Node node = parent.children.get(stepExpr);
+		if (node == null) {
+			Node newNode = new Node(parent, stepExpr, expression);
+			if ((node = parent.children.putIfAbsent(stepExpr, newNode)) == null) {
+				node = newNode;
+			}
+		}
+		return node;
+	}
+
+}
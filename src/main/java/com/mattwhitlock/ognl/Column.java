@@ -0,0 +1,409 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+/**
+ * A column of values in a {@link Table}. Columns of primitive types are read in bulk by the columnar evaluator, so
+ * their values never need to be boxed.
+ *
+ * @author Matt Whitlock
+ */
+public abstract class Column {
+
+	private static class IntArrayColumn extends Column {
+
+		final int[] values;
+
+		IntArrayColumn(int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return int.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getLongs(int start, int length, long[] dst) {
+			int[] values = this.values;
+			for (int i = 0; i < length; ++i) {
+				dst[i] = values[start + i];
+			}
+		}
+
+	}
+
+	private static class ShortArrayColumn extends Column {
+
+		final short[] values;
+
+		ShortArrayColumn(short[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return short.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getLongs(int start, int length, long[] dst) {
+			short[] values = this.values;
+			for (int i = 0; i < length; ++i) {
+				dst[i] = values[start + i];
+			}
+		}
+
+	}
+
+	private static class ByteArrayColumn extends Column {
+
+		final byte[] values;
+
+		ByteArrayColumn(byte[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return byte.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getLongs(int start, int length, long[] dst) {
+			byte[] values = this.values;
+			for (int i = 0; i < length; ++i) {
+				dst[i] = values[start + i];
+			}
+		}
+
+	}
+
+	private static class LongArrayColumn extends Column {
+
+		final long[] values;
+
+		LongArrayColumn(long[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return long.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getLongs(int start, int length, long[] dst) {
+			System.arraycopy(values, start, dst, 0, length);
+		}
+
+	}
+
+	private static class FloatArrayColumn extends Column {
+
+		final float[] values;
+
+		FloatArrayColumn(float[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return float.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getDoubles(int start, int length, double[] dst) {
+			float[] values = this.values;
+			for (int i = 0; i < length; ++i) {
+				dst[i] = values[start + i];
+			}
+		}
+
+	}
+
+	private static class DoubleArrayColumn extends Column {
+
+		final double[] values;
+
+		DoubleArrayColumn(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return double.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getDoubles(int start, int length, double[] dst) {
+			System.arraycopy(values, start, dst, 0, length);
+		}
+
+	}
+
+	private static class BooleanArrayColumn extends Column {
+
+		final boolean[] values;
+
+		BooleanArrayColumn(boolean[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return boolean.class;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getBooleans(int start, int length, boolean[] dst) {
+			System.arraycopy(values, start, dst, 0, length);
+		}
+
+	}
+
+	/**
+	 * The integers from zero up to but not including the size, as an {@code int} or {@code long} column.
+	 */
+	private static class RangeColumn extends Column {
+
+		final Class<?> type;
+		final int size;
+
+		RangeColumn(Class<?> type, int size) {
+			this.type = type;
+			this.size = size;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return type;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Object get(int row) {
+			if (row < 0 || row >= size) {
+				throw new IndexOutOfBoundsException(String.valueOf(row));
+			}
+			return type == int.class ? (Object) row : (Object) (long) row;
+		}
+
+		@Override
+		void getLongs(int start, int length, long[] dst) {
+			for (int i = 0; i < length; ++i) {
+				dst[i] = start + i;
+			}
+		}
+
+	}
+
+	private static class ObjectArrayColumn extends Column {
+
+		final Object[] values;
+
+		ObjectArrayColumn(Object[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return values.getClass().getComponentType();
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void getObjects(int start, int length, Object[] dst) {
+			System.arraycopy(values, start, dst, 0, length);
+		}
+
+	}
+
+	Column() {
+	}
+
+	public static Column of(int[] values) {
+		return new IntArrayColumn(values);
+	}
+
+	public static Column of(short[] values) {
+		return new ShortArrayColumn(values);
+	}
+
+	public static Column of(byte[] values) {
+		return new ByteArrayColumn(values);
+	}
+
+	public static Column of(long[] values) {
+		return new LongArrayColumn(values);
+	}
+
+	public static Column of(float[] values) {
+		return new FloatArrayColumn(values);
+	}
+
+	public static Column of(double[] values) {
+		return new DoubleArrayColumn(values);
+	}
+
+	public static Column of(boolean[] values) {
+		return new BooleanArrayColumn(values);
+	}
+
+	public static Column of(Object[] values) {
+		return new ObjectArrayColumn(values);
+	}
+
+	/**
+	 * Returns a column of the elements of a primitive array other than a {@code char[]}, or of the integers that
+	 * iterating over a non-negative {@link Integer} or {@link Long} yields, or null if the given object is neither.
+	 */
+	static Column over(Object object) {
+		if (object instanceof int[]) {
+			return of((int[]) object);
+		}
+		if (object instanceof long[]) {
+			return of((long[]) object);
+		}
+		if (object instanceof double[]) {
+			return of((double[]) object);
+		}
+		if (object instanceof float[]) {
+			return of((float[]) object);
+		}
+		if (object instanceof boolean[]) {
+			return of((boolean[]) object);
+		}
+		if (object instanceof short[]) {
+			return of((short[]) object);
+		}
+		if (object instanceof byte[]) {
+			return of((byte[]) object);
+		}
+		if (object instanceof Integer) {
+			return new RangeColumn(int.class, Math.max((Integer) object, 0));
+		}
+		if (object instanceof Long && (Long) object <= Integer.MAX_VALUE) {
+			return new RangeColumn(long.class, (int) Math.max((Long) object, 0));
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the type of the values in this column. Columns of type {@code byte}, {@code short}, {@code int} and
+	 * {@code long} must implement {@link #getLongs}, columns of type {@code float} and {@code double} must implement
+	 * {@link #getDoubles}, and columns of type {@code boolean} must implement {@link #getBooleans}.
+	 */
+	public abstract Class<?> getType();
+
+	public abstract int size();
+
+	public abstract Object get(int row);
+
+	void getLongs(int start, int length, long[] dst) {
+		throw unsupported("getLongs");
+	}
+
+	void getDoubles(int start, int length, double[] dst) {
+		throw unsupported("getDoubles");
+	}
+
+	void getBooleans(int start, int length, boolean[] dst) {
+		throw unsupported("getBooleans");
+	}
+
+	void getObjects(int start, int length, Object[] dst) {
+		for (int i = 0; i < length; ++i) {
+			dst[i] = get(start + i);
+		}
+	}
+
+	private UnsupportedOperationException unsupported(String accessor) {
+		return new UnsupportedOperationException(accessor + " not supported for a column of type " + getType().getName());
+	}
+
+}
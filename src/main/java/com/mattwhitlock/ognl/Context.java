@@ -15,6 +15,20 @@ public class Context {
 
 	public HashMap<String, Object> variables;
 
+	/**
+	 * The number of elements of an array or random-access list at and above which projections and selections whose
+	 * sub-expressions have no side effects evaluate them on several threads, or zero to always evaluate them on the
+	 * calling thread. The results are in the same order in either case.
+	 */
+	public int parallelThreshold;
+
+	/**
+	 * The cache in which selections that compare a property of the elements for equality with a value, such as
+	 * {@code refs.{? code == #code }}, build and look up indices of the collections they repeatedly scan, or null to
+	 * always scan. The same cache may be shared by many contexts and threads.
+	 */
+	public IndexCache indexCache;
+
 	public Context() {
 	}
 
@@ -33,4 +47,28 @@ public class Context {
 		return null;
 	}
 
+	/**
+	 * Returns a context for the evaluation of a sub-expression on another thread or with variables of its own, with its
+	 * own copy of the variables of this context and the same global methods and settings.
+	 */
+	Context fork() {
+		Context parent = this;
+		Context fork = new Context(variables == null ? null : new HashMap<>(variables)) {
+
+			@Override
+			public boolean hasGlobalMethods() {
+				return parent.hasGlobalMethods();
+			}
+
+			@Override
+			public Method findGlobalMethod(String methodName, Class<?>[] argTypes) throws AmbiguousMethodException {
+				return parent.findGlobalMethod(methodName, argTypes);
+			}
+
+		};
+		fork.parallelThreshold = parallelThreshold;
+		fork.indexCache = indexCache;
+		return fork;
+	}
+
 }
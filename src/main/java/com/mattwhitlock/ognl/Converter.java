@@ -0,0 +1,19 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+/**
+ * Converts values assigned to setters, indexed setters and fields whose types they are not assignable to. Converters
+ * are registered with {@link Converters} for pairs of source and target types.
+ *
+ * @author Matt Whitlock
+ */
+public interface Converter {
+
+	/**
+	 * @return the given non-null value converted to the target type for which this converter is registered
+	 */
+	Object convert(Object value) throws Exception;
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of {@link Converter}s, which convert the values assigned to setters, indexed setters and fields whose
+ * types they are not assignable to. The converter registered for the class of a value and the target type is consulted
+ * first, then those registered for its superclasses, and then those registered for the interfaces it implements,
+ * nearest first. Values that no converter is registered for are converted by the built-in conversions, if any apply,
+ * or else assigned unconverted.
+ * <p>
+ * The built-in conversions are:
+ * <ul>
+ * <li>from {@link CharSequence}s to numbers, {@code boolean}s ({@code "true"} or {@code "false"}, in any case),
+ * {@code char}s (of one character), enum constants (by name) and {@link java.time} dates and times (in their ISO
+ * formats), ignoring leading and trailing whitespace;</li>
+ * <li>from numbers to other numeric types, failing with an {@link ArithmeticException} rather than losing the integral
+ * part of the value or any fractional part when converting to an integral type;</li>
+ * <li>from {@link Number}s and {@link Instant}s to {@link Date}s;</li>
+ * <li>from anything to {@link String}, by {@link Object#toString()}.</li>
+ * </ul>
+ * <p>
+ * Converters are resolved once for each source class and target type at each setter and field, and then cached there,
+ * so they should be registered before any expression that is to use them is evaluated.
+ *
+ * @author Matt Whitlock
+ */
+public final class Converters {
+
+	/**
+	 * The converters to the declared type of one setter parameter or field, as held by its LValue factory, with the
+	 * converter for the class of the last value converted in front of them.
+	 */
+	static final class Target {
+
+		final Class<?> type;
+		private final Class<?> boxedType;
+		private volatile Resolution last;
+
+		Target(Class<?> type) {
+			this.type = type;
+			boxedType = box(type);
+		}
+
+		Object convert(Object value) throws Exception {
+			if (value == null || boxedType.isInstance(value)) {
+				return value;
+			}
+			Class<?> valueClass = value.getClass();
+			Resolution last = this.last;
+			if (last == null || last.sourceClass != valueClass) {
+				this.last = last = new Resolution(valueClass, getConverter(valueClass, boxedType));
+			}
+			return last.converter == IDENTITY ? value : last.converter.convert(value);
+		}
+
+	}
+
+	private static final class Resolution {
+
+		final Class<?> sourceClass;
+		final Converter converter;
+
+		Resolution(Class<?> sourceClass, Converter converter) {
+			this.sourceClass = sourceClass;
+			this.converter = converter;
+		}
+
+	}
+
+	private static final Converter IDENTITY = value -> value;
+
+	/**
+	 * The registered and the resolved converters by target type and then source class.
+	 */
+	private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Class<?>, Converter>> converters = new ConcurrentHashMap<>(), resolved = new ConcurrentHashMap<>();
+
+	/**
+	 * Not instantiable.
+	 */
+	private Converters() {
+	}
+
+	/**
+	 * Registers a converter from the instances of the given class or interface and its subclasses to the given type,
+	 * replacing any converter previously registered for them.
+	 */
+	public static void register(Class<?> sourceClass, Class<?> targetType, Converter converter) {
+		converters.computeIfAbsent(box(targetType), t -> new ConcurrentHashMap<>()).put(sourceClass, converter);
+		resolved.clear();
+	}
+
+	public static void unregister(Class<?> sourceClass, Class<?> targetType) {
+		ConcurrentHashMap<Class<?>, Converter> sources = converters.get(box(targetType));
+		if (sources != null) {
+			sources.remove(sourceClass);
+		}
+		resolved.clear();
+	}
+
+	/**
+	 * Converts the given value to the given type, as it would be converted for assignment to a setter or field of that
+	 * type.
+	 */
+	public static Object convert(Object value, Class<?> targetType) throws Exception {
+		Class<?> boxedType = box(targetType);
+		if (value == null || boxedType.isInstance(value)) {
+			return value;
+		}
+		Converter converter = getConverter(value.getClass(), boxedType);
+		return converter == IDENTITY ? value : converter.convert(value);
+	}
+
+	/**
+	 * @return the converter from the given class to the given boxed type, or {@link #IDENTITY} if there is none
+	 */
+	static Converter getConverter(Class<?> sourceClass, Class<?> targetType) {
+		ConcurrentHashMap<Class<?>, Converter> sources = resolved.computeIfAbsent(targetType, t -> new ConcurrentHashMap<>());
+		Converter converter = sources.get(sourceClass);
+		if (converter == null) {
+			ConcurrentHashMap<Class<?>, Converter> registered = converters.get(targetType);
+			converter = registered == null ? null : findConverter(registered, sourceClass);
+			if (converter == null) {
+				converter = getBuiltInConverter(sourceClass, targetType);
+			}
+			sources.put(sourceClass, converter == null ? converter = IDENTITY : converter);
+		}
+		return converter;
+	}
+
+	private static Converter findConverter(ConcurrentHashMap<Class<?>, Converter> converters, Class<?> sourceClass) {
+		for (Class<?> c = sourceClass; c != null; c = c.getSuperclass()) {
+			Converter converter = converters.get(c);
+			if (converter != null) {
+				return converter;
+			}
+		}
+		ArrayDeque<Class<?>> queue = new ArrayDeque<>();
+		HashSet<Class<?>> seen = new HashSet<>();
+		for (Class<?> c = sourceClass; c != null; c = c.getSuperclass()) {
+			for (Class<?> i : c.getInterfaces()) {
+				queue.add(i);
+			}
+		}
+		for (Class<?> i; (i = queue.poll()) != null;) {
+			if (seen.add(i)) {
+				Converter converter = converters.get(i);
+				if (converter != null) {
+					return converter;
+				}
+				for (Class<?> superinterface : i.getInterfaces()) {
+					queue.add(superinterface);
+				}
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Converter getBuiltInConverter(Class<?> sourceClass, Class<?> targetType) {
+		if (targetType == String.class) {
+			return Object::toString;
+		}
+		if (CharSequence.class.isAssignableFrom(sourceClass)) {
+			if (targetType == Integer.class) {
+				return value -> (int) narrow(parseLong((CharSequence) value), Integer.MIN_VALUE, Integer.MAX_VALUE);
+			}
+			if (targetType == Long.class) {
+				return value -> parseLong((CharSequence) value);
+			}
+			if (targetType == Short.class) {
+				return value -> (short) narrow(parseLong((CharSequence) value), Short.MIN_VALUE, Short.MAX_VALUE);
+			}
+			if (targetType == Byte.class) {
+				return value -> (byte) narrow(parseLong((CharSequence) value), Byte.MIN_VALUE, Byte.MAX_VALUE);
+			}
+			if (targetType == Double.class) {
+				// parseDouble ignores leading and trailing whitespace itself
+				return value -> Double.parseDouble(value.toString());
+			}
+			if (targetType == Float.class) {
+				return value -> Float.parseFloat(value.toString());
+			}
+			if (targetType == BigInteger.class) {
+				return value -> new BigInteger(trim((CharSequence) value));
+			}
+			if (targetType == BigDecimal.class || targetType == Number.class) {
+				return value -> new BigDecimal(trim((CharSequence) value));
+			}
+			if (targetType == Boolean.class) {
+				return value -> parseBoolean((CharSequence) value);
+			}
+			if (targetType == Character.class) {
+				return value -> parseCharacter((CharSequence) value);
+			}
+			if (targetType.isEnum()) {
+				Class<? extends Enum> enumType = (Class<? extends Enum>) targetType;
+				return value -> Enum.valueOf(enumType, trim((CharSequence) value));
+			}
+			if (targetType == LocalDate.class) {
+				return value -> LocalDate.parse(trim((CharSequence) value));
+			}
+			if (targetType == LocalDateTime.class) {
+				return value -> LocalDateTime.parse(trim((CharSequence) value));
+			}
+			if (targetType == LocalTime.class) {
+				return value -> LocalTime.parse(trim((CharSequence) value));
+			}
+			if (targetType == OffsetDateTime.class) {
+				return value -> OffsetDateTime.parse(trim((CharSequence) value));
+			}
+			if (targetType == ZonedDateTime.class) {
+				return value -> ZonedDateTime.parse(trim((CharSequence) value));
+			}
+			if (targetType == Instant.class) {
+				return value -> Instant.parse(trim((CharSequence) value));
+			}
+			if (targetType == Date.class) {
+				return value -> Date.from(Instant.parse(trim((CharSequence) value)));
+			}
+			return null;
+		}
+		if (Number.class.isAssignableFrom(sourceClass)) {
+			if (targetType == Integer.class) {
+				return value -> (int) narrow(toLong((Number) value), Integer.MIN_VALUE, Integer.MAX_VALUE);
+			}
+			if (targetType == Long.class) {
+				return value -> toLong((Number) value);
+			}
+			if (targetType == Short.class) {
+				return value -> (short) narrow(toLong((Number) value), Short.MIN_VALUE, Short.MAX_VALUE);
+			}
+			if (targetType == Byte.class) {
+				return value -> (byte) narrow(toLong((Number) value), Byte.MIN_VALUE, Byte.MAX_VALUE);
+			}
+			if (targetType == Double.class) {
+				return value -> ((Number) value).doubleValue();
+			}
+			if (targetType == Float.class) {
+				return value -> ((Number) value).floatValue();
+			}
+			if (targetType == BigInteger.class) {
+				return value -> toBigDecimal((Number) value).toBigIntegerExact();
+			}
+			if (targetType == BigDecimal.class) {
+				return value -> toBigDecimal((Number) value);
+			}
+			if (targetType == Date.class) {
+				return value -> new Date(toLong((Number) value));
+			}
+			return null;
+		}
+		if (sourceClass == Instant.class && targetType == Date.class) {
+			return value -> Date.from((Instant) value);
+		}
+		return null;
+	}
+
+	/**
+	 * Parses a decimal integer from the given characters, without copying them.
+	 */
+	static long parseLong(CharSequence cs) {
+		int start = 0, end = cs.length();
+		while (start < end && Character.isWhitespace(cs.charAt(start))) {
+			++start;
+		}
+		while (end > start && Character.isWhitespace(cs.charAt(end - 1))) {
+			--end;
+		}
+		boolean negative = false;
+		if (start < end && (cs.charAt(start) == '-' || cs.charAt(start) == '+')) {
+			negative = cs.charAt(start++) == '-';
+		}
+		if (start == end) {
+			throw new NumberFormatException("For input string: \"" + cs + '"');
+		}
+		// accumulate negatively, so that Long.MIN_VALUE does not overflow
+		long result = 0, limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		for (int index = start; index < end; ++index) {
+			int digit = Character.digit(cs.charAt(index), 10);
+			if (digit < 0 || result < limit / 10 || (result *= 10) < limit + digit) {
+				throw new NumberFormatException("For input string: \"" + cs + '"');
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	private static long narrow(long value, long min, long max) {
+		if (value < min || value > max) {
+			throw new ArithmeticException("value out of range: " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of the given number as a {@code long}, or throws an {@link ArithmeticException} if it has a
+	 * fractional part or is out of range.
+	 */
+	private static long toLong(Number number) {
+		if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+			return number.longValue();
+		}
+		if (number instanceof Double || number instanceof Float) {
+			double d = number.doubleValue();
+			long l = (long) d;
+			if (l != d || l == Long.MAX_VALUE) {
+				throw new ArithmeticException("not a long: " + number);
+			}
+			return l;
+		}
+		return toBigDecimal(number).longValueExact();
+	}
+
+	private static BigDecimal toBigDecimal(Number number) {
+		if (number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		}
+		if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		}
+		if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+			return BigDecimal.valueOf(number.longValue());
+		}
+		if (number instanceof Float) {
+			return new BigDecimal(number.toString());
+		}
+		return BigDecimal.valueOf(number.doubleValue());
+	}
+
+	private static boolean parseBoolean(CharSequence cs) {
+		String s = trim(cs);
+		if ("true".equalsIgnoreCase(s)) {
+			return true;
+		}
+		if ("false".equalsIgnoreCase(s)) {
+			return false;
+		}
+		throw new IllegalArgumentException("not a boolean: \"" + cs + '"');
+	}
+
+	private static char parseCharacter(CharSequence cs) {
+		if (cs.length() != 1) {
+			throw new IllegalArgumentException("not a single character: \"" + cs + '"');
+		}
+		return cs.charAt(0);
+	}
+
+	private static String trim(CharSequence cs) {
+		return cs.toString().trim();
+	}
+
+	static Class<?> box(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		if (type == int.class) {
+			return Integer.class;
+		}
+		if (type == long.class) {
+			return Long.class;
+		}
+		if (type == double.class) {
+			return Double.class;
+		}
+		if (type == float.class) {
+			return Float.class;
+		}
+		if (type == boolean.class) {
+			return Boolean.class;
+		}
+		if (type == char.class) {
+			return Character.class;
+		}
+		if (type == short.class) {
+			return Short.class;
+		}
+		if (type == byte.class) {
+			return Byte.class;
+		}
+		return Void.class;
+	}
+
+}
@@ -13,9 +13,11 @@ import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -27,8 +29,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -65,6 +72,13 @@ public abstract class Expression {
 			return value;
 		}
 
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			for (Expression expression : expressions) {
+				expression.evaluateVector(context, roots, selection, count, results);
+			}
+		}
+
 		@Override
 		int getPrecedence() {
 			return PRECEDENCE;
@@ -86,12 +100,20 @@ public abstract class Expression {
 			assert leftExpr.isLValue();
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return true;
+		}
+
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
-			LValue leftValue = (LValue) leftExpr.evaluate(context, root);
-			Object rightValue = rightExpr.getValue(context, root);
+			return apply(leftExpr.evaluate(context, root), rightExpr.getValue(context, root));
+		}
+
+		@Override
+		Object apply(Object leftValue, Object rightValue) throws OgnlException {
 			try {
-				leftValue.set(rightValue);
+				((LValue) leftValue).set(rightValue);
 			}
 			catch (Throwable t) {
 				throw new OgnlException(this, t);
@@ -134,6 +156,11 @@ public abstract class Expression {
 			return falseExpr.getClassLoaders(trueExpr.getClassLoaders(condExpr.getClassLoaders(classLoaders)));
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return condExpr.hasSideEffects() || trueExpr.hasSideEffects() || falseExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -147,7 +174,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 16777213 + (condExpr == null ? 0 : condExpr.hashCode() * 65521) + (trueExpr == null ? 0 : trueExpr.hashCode() * 251) + (falseExpr == null ? 0 : falseExpr.hashCode());
 		}
 
@@ -161,6 +188,28 @@ public abstract class Expression {
 			return (asBoolean(condExpr.getValue(context, root)) ? trueExpr : falseExpr).evaluate(context, root);
 		}
 
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			condExpr.evaluateVector(context, roots, selection, count, results);
+			int[] trueSelection = new int[count], falseSelection = new int[count];
+			int trueCount = 0, falseCount = 0;
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				if (asBoolean(results[row])) {
+					trueSelection[trueCount++] = row;
+				}
+				else {
+					falseSelection[falseCount++] = row;
+				}
+			}
+			if (trueCount > 0) {
+				trueExpr.evaluateVector(context, roots, trueSelection, trueCount, results);
+			}
+			if (falseCount > 0) {
+				falseExpr.evaluateVector(context, roots, falseSelection, falseCount, results);
+			}
+		}
+
 		@Override
 		int getPrecedence() {
 			return PRECEDENCE;
@@ -197,6 +246,11 @@ public abstract class Expression {
 				return PRECEDENCE;
 			}
 
+			@Override
+			boolean getShortCircuitValue() {
+				return true;
+			}
+
 			@Override
 			String getOperator() {
 				return " || ";
@@ -231,6 +285,11 @@ public abstract class Expression {
 				return PRECEDENCE;
 			}
 
+			@Override
+			boolean getShortCircuitValue() {
+				return false;
+			}
+
 			@Override
 			String getOperator() {
 				return " && ";
@@ -242,6 +301,38 @@ public abstract class Expression {
 			super(expressions);
 		}
 
+		/**
+		 * Narrows the selection after each operand to the roots whose values did not decide the result, so that no
+		 * operand is evaluated against a root that the tree evaluator would have short-circuited.
+		 */
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			Expression[] expressions = this.expressions;
+			boolean shortCircuitValue = getShortCircuitValue();
+			int lastIndex = expressions.length - 1;
+			int[] remaining = null;
+			for (int index = 0; index < lastIndex; ++index) {
+				expressions[index].evaluateVector(context, roots, selection, count, results);
+				if (remaining == null) {
+					remaining = new int[count];
+				}
+				int remainingCount = 0;
+				for (int i = 0; i < count; ++i) {
+					int row = selection[i];
+					if (asBoolean(results[row]) != shortCircuitValue) {
+						remaining[remainingCount++] = row;
+					}
+				}
+				if ((count = remainingCount) == 0) {
+					return;
+				}
+				selection = remaining;
+			}
+			expressions[lastIndex].evaluateVector(context, roots, selection, count, results);
+		}
+
+		abstract boolean getShortCircuitValue();
+
 		@Override
 		public boolean isLValue() {
 			for (Expression expression : expressions) {
@@ -326,6 +417,21 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value | operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value | operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.or(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -408,6 +514,21 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value ^ operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value ^ operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.xor(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -490,6 +611,21 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value & operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value & operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.and(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -506,6 +642,48 @@ public abstract class Expression {
 			super(expressions);
 		}
 
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			Expression[] expressions = this.expressions;
+			expressions[0].evaluateVector(context, roots, selection, count, results);
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				results[row] = begin(results[row]);
+			}
+			Object[] operands = new Object[results.length];
+			for (int index = 1; index < expressions.length; ++index) {
+				expressions[index].evaluateVector(context, roots, selection, count, operands);
+				for (int i = 0; i < count; ++i) {
+					int row = selection[i];
+					results[row] = step(results[row], operands[row]);
+				}
+			}
+		}
+
+		/**
+		 * @see Arithmetic#begin(Object)
+		 */
+		Object begin(Object value) {
+			return asInteger(asNumber(value));
+		}
+
+		Object step(Object value, Object operand) {
+			Number left = (Number) value, right = asInteger(asNumber(operand));
+			if (left instanceof BigInteger || right instanceof BigInteger) {
+				return apply(Arithmetic.toBigInteger(left), Arithmetic.toBigInteger(right));
+			}
+			if (left instanceof Long || right instanceof Long) {
+				return apply(left.longValue(), right.longValue());
+			}
+			return apply(left.intValue(), right.intValue());
+		}
+
+		abstract int apply(int value, int operand);
+
+		abstract long apply(long value, long operand);
+
+		abstract BigInteger apply(BigInteger value, BigInteger operand);
+
 	}
 
 	public static class Equal extends Binary {
@@ -517,8 +695,8 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				return !evaluate(context, root, leftExpr, rightExpr);
+			Object apply(Object leftValue, Object rightValue) {
+				return !equals(leftValue, rightValue);
 			}
 
 			@Override
@@ -535,12 +713,8 @@ public abstract class Expression {
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			return evaluate(context, root, leftExpr, rightExpr);
-		}
-
-		static boolean evaluate(Context context, Object root, Expression leftExpr, Expression rightExpr) throws OgnlException {
-			return equals(leftExpr.getValue(context, root), rightExpr.getValue(context, root));
+		Object apply(Object leftValue, Object rightValue) {
+			return equals(leftValue, rightValue);
 		}
 
 		@Override
@@ -564,8 +738,8 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				return compare(context, root, leftExpr, rightExpr) < 0;
+			Object apply(Object leftValue, Object rightValue) {
+				return compare(leftValue, rightValue) < 0;
 			}
 
 			@Override
@@ -582,8 +756,8 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				return compare(context, root, leftExpr, rightExpr) <= 0;
+			Object apply(Object leftValue, Object rightValue) {
+				return compare(leftValue, rightValue) <= 0;
 			}
 
 			@Override
@@ -600,8 +774,8 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				return compare(context, root, leftExpr, rightExpr) > 0;
+			Object apply(Object leftValue, Object rightValue) {
+				return compare(leftValue, rightValue) > 0;
 			}
 
 			@Override
@@ -618,8 +792,8 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				return compare(context, root, leftExpr, rightExpr) >= 0;
+			Object apply(Object leftValue, Object rightValue) {
+				return compare(leftValue, rightValue) >= 0;
 			}
 
 			@Override
@@ -635,10 +809,6 @@ public abstract class Expression {
 			super(leftExpr, rightExpr);
 		}
 
-		static int compare(Context context, Object root, Expression leftExpr, Expression rightExpr) throws OgnlException {
-			return compare(leftExpr.getValue(context, root), rightExpr.getValue(context, root));
-		}
-
 		@Override
 		int getPrecedence() {
 			return PRECEDENCE;
@@ -655,8 +825,8 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				return !evaluate(context, root, leftExpr, rightExpr);
+			Object apply(Object leftValue, Object rightValue) {
+				return !contains(rightValue, leftValue);
 			}
 
 			@Override
@@ -673,17 +843,16 @@ public abstract class Expression {
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			return evaluate(context, root, leftExpr, rightExpr);
+		Object apply(Object leftValue, Object rightValue) {
+			return contains(rightValue, leftValue);
 		}
 
-		static boolean evaluate(Context context, Object root, Expression leftExpr, Expression rightExpr) throws OgnlException {
-			Object leftValue = leftExpr.getValue(context, root), rightValue = rightExpr.getValue(context, root);
-			if (rightValue instanceof Collection<?>) {
-				return ((Collection<?>) rightValue).contains(leftValue);
+		static boolean contains(Object container, Object value) {
+			if (container instanceof Collection<?>) {
+				return ((Collection<?>) container).contains(value);
 			}
-			for (Iterator<?> it = asIterator(rightValue); it.hasNext();) {
-				if (equals(leftValue, it.next())) {
+			for (Iterator<?> it = asIterator(container); it.hasNext();) {
+				if (equals(value, it.next())) {
 					return true;
 				}
 			}
@@ -711,9 +880,9 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				Number value = asInteger(asNumber(leftExpr.getValue(context, root)));
-				int shift = asInteger(asNumber(rightExpr.getValue(context, root))).intValue();
+			Object apply(Object leftValue, Object rightValue) {
+				Number value = asInteger(asNumber(leftValue));
+				int shift = asInteger(asNumber(rightValue)).intValue();
 				if (value instanceof Integer) {
 					return (Integer) value << shift;
 				}
@@ -740,9 +909,9 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				Number value = asInteger(asNumber(leftExpr.getValue(context, root)));
-				int shift = asInteger(asNumber(rightExpr.getValue(context, root))).intValue();
+			Object apply(Object leftValue, Object rightValue) {
+				Number value = asInteger(asNumber(leftValue));
+				int shift = asInteger(asNumber(rightValue)).intValue();
 				if (value instanceof Integer) {
 					return (Integer) value >> shift;
 				}
@@ -769,9 +938,9 @@ public abstract class Expression {
 			}
 
 			@Override
-			Object evaluate(Context context, Object root) throws OgnlException {
-				Number value = asInteger(asNumber(leftExpr.getValue(context, root)));
-				int shift = asInteger(asNumber(rightExpr.getValue(context, root))).intValue();
+			Object apply(Object leftValue, Object rightValue) {
+				Number value = asInteger(asNumber(leftValue));
+				int shift = asInteger(asNumber(rightValue)).intValue();
 				if (value instanceof Integer) {
 					return (Integer) value >>> shift;
 				}
@@ -1043,8 +1212,8 @@ public abstract class Expression {
 			private static Object evaluate(Context context, Object root, String prefix, Object value, Expression[] expressions, int index) throws OgnlException {
 				String[] pieces = new String[2 + expressions.length - index];
 				int length = (pieces[0] = prefix).length() + (pieces[1] = String.valueOf(value)).length();
-				while (index < expressions.length) {
-					length += (pieces[index] = String.valueOf(expressions[index++].getValue(context, root))).length();
+				for (int piece = 2; index < expressions.length; ++piece) {
+					length += (pieces[piece] = String.valueOf(expressions[index++].getValue(context, root))).length();
 				}
 				StringBuilder sb = new StringBuilder(length);
 				for (String piece : pieces) {
@@ -1053,6 +1222,46 @@ public abstract class Expression {
 				return sb.toString();
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value + operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value + operand;
+			}
+
+			@Override
+			float apply(float value, float operand) {
+				return value + operand;
+			}
+
+			@Override
+			double apply(double value, double operand) {
+				return value + operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.add(operand);
+			}
+
+			@Override
+			BigDecimal apply(BigDecimal value, BigDecimal operand) {
+				return value.add(operand);
+			}
+
+			@Override
+			Object begin(Object value) {
+				return value instanceof Number ? normalize((Number) value) : String.valueOf(value);
+			}
+
+			@Override
+			Object step(Object value, Object operand) {
+				return value instanceof Number && operand instanceof Number ? apply((Number) value, (Number) operand) : String.valueOf(value).concat(String.valueOf(operand));
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -1266,6 +1475,36 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value - operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value - operand;
+			}
+
+			@Override
+			float apply(float value, float operand) {
+				return value - operand;
+			}
+
+			@Override
+			double apply(double value, double operand) {
+				return value - operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.subtract(operand);
+			}
+
+			@Override
+			BigDecimal apply(BigDecimal value, BigDecimal operand) {
+				return value.subtract(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -1479,6 +1718,36 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value * operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value * operand;
+			}
+
+			@Override
+			float apply(float value, float operand) {
+				return value * operand;
+			}
+
+			@Override
+			double apply(double value, double operand) {
+				return value * operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.multiply(operand);
+			}
+
+			@Override
+			BigDecimal apply(BigDecimal value, BigDecimal operand) {
+				return value.multiply(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -1692,6 +1961,36 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value / operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value / operand;
+			}
+
+			@Override
+			float apply(float value, float operand) {
+				return value / operand;
+			}
+
+			@Override
+			double apply(double value, double operand) {
+				return value / operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.divide(operand);
+			}
+
+			@Override
+			BigDecimal apply(BigDecimal value, BigDecimal operand) {
+				return value.divide(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -1905,6 +2204,36 @@ public abstract class Expression {
 				return value;
 			}
 
+			@Override
+			int apply(int value, int operand) {
+				return value % operand;
+			}
+
+			@Override
+			long apply(long value, long operand) {
+				return value % operand;
+			}
+
+			@Override
+			float apply(float value, float operand) {
+				return value % operand;
+			}
+
+			@Override
+			double apply(double value, double operand) {
+				return value % operand;
+			}
+
+			@Override
+			BigInteger apply(BigInteger value, BigInteger operand) {
+				return value.remainder(operand);
+			}
+
+			@Override
+			BigDecimal apply(BigDecimal value, BigDecimal operand) {
+				return value.remainder(operand);
+			}
+
 			@Override
 			int getPrecedence() {
 				return PRECEDENCE;
@@ -1917,10 +2246,124 @@ public abstract class Expression {
 
 		}
 
+		private static final int INT = 0, LONG = 1, FLOAT = 2, DOUBLE = 3, BIG_INTEGER = 4, BIG_DECIMAL = 5;
+
 		Arithmetic(Expression... expressions) {
 			super(expressions);
 		}
 
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			Expression[] expressions = this.expressions;
+			expressions[0].evaluateVector(context, roots, selection, count, results);
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				results[row] = begin(results[row]);
+			}
+			Object[] operands = new Object[results.length];
+			for (int index = 1; index < expressions.length; ++index) {
+				expressions[index].evaluateVector(context, roots, selection, count, operands);
+				for (int i = 0; i < count; ++i) {
+					int row = selection[i];
+					results[row] = step(results[row], operands[row]);
+				}
+			}
+		}
+
+		/**
+		 * Converts the value of the first operand into the initial accumulator of a stepwise evaluation, for callers
+		 * that produce the operand values themselves rather than through {@link #evaluate(Context, Object)}. Folding
+		 * the remaining operand values with {@link #step(Object, Object)} gives the same result as the tree evaluator.
+		 */
+		Object begin(Object value) {
+			return normalize(asNumber(value));
+		}
+
+		Object step(Object value, Object operand) {
+			return apply((Number) value, asNumber(operand));
+		}
+
+		final Number apply(Number value, Number operand) {
+			switch (promote(rank(value), rank(operand))) {
+				case INT:
+					return apply(value.intValue(), operand.intValue());
+				case LONG:
+					return apply(value.longValue(), operand.longValue());
+				case FLOAT:
+					return apply(value.floatValue(), operand.floatValue());
+				case DOUBLE:
+					return apply(value.doubleValue(), operand.doubleValue());
+				case BIG_INTEGER:
+					return apply(toBigInteger(value), toBigInteger(operand));
+				default:
+					return apply(toBigDecimal(value), toBigDecimal(operand));
+			}
+		}
+
+		abstract int apply(int value, int operand);
+
+		abstract long apply(long value, long operand);
+
+		abstract float apply(float value, float operand);
+
+		abstract double apply(double value, double operand);
+
+		abstract BigInteger apply(BigInteger value, BigInteger operand);
+
+		abstract BigDecimal apply(BigDecimal value, BigDecimal operand);
+
+		static Number normalize(Number value) {
+			return rank(value) < 0 ? value.intValue() : value;
+		}
+
+		private static int rank(Number value) {
+			if (value instanceof Integer) {
+				return INT;
+			}
+			if (value instanceof Long) {
+				return LONG;
+			}
+			if (value instanceof Float) {
+				return FLOAT;
+			}
+			if (value instanceof Double) {
+				return DOUBLE;
+			}
+			if (value instanceof BigInteger) {
+				return BIG_INTEGER;
+			}
+			if (value instanceof BigDecimal) {
+				return BIG_DECIMAL;
+			}
+			return -1;
+		}
+
+		private static int promote(int valueRank, int operandRank) {
+			if (operandRank < 0) { // ? => type of accumulator
+				return valueRank;
+			}
+			int rank = Math.max(valueRank, operandRank);
+			// BigInteger with float or double => BigDecimal
+			return rank == BIG_INTEGER && Math.min(valueRank, operandRank) >= FLOAT && valueRank != operandRank ? BIG_DECIMAL : rank;
+		}
+
+		static BigInteger toBigInteger(Number value) {
+			return value instanceof BigInteger ? (BigInteger) value : BigInteger.valueOf(value.longValue());
+		}
+
+		static BigDecimal toBigDecimal(Number value) {
+			if (value instanceof BigDecimal) {
+				return (BigDecimal) value;
+			}
+			if (value instanceof BigInteger) {
+				return new BigDecimal((BigInteger) value);
+			}
+			if (value instanceof Integer || value instanceof Long) {
+				return BigDecimal.valueOf(value.longValue());
+			}
+			return BigDecimal.valueOf(value.doubleValue());
+		}
+
 	}
 
 	public static class Positive extends Unary {
@@ -1937,8 +2380,8 @@ public abstract class Expression {
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			Number value = asNumber(expression.getValue(context, root));
+		Object apply(Object operand) {
+			Number value = asNumber(operand);
 			return value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double || value instanceof BigInteger || value instanceof BigDecimal ? value : value.intValue();
 		}
 
@@ -1968,8 +2411,8 @@ public abstract class Expression {
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			Number value = asNumber(expression.getValue(context, root));
+		Object apply(Object operand) {
+			Number value = asNumber(operand);
 			if (value instanceof Integer) {
 				return -((Integer) value);
 			}
@@ -2012,8 +2455,8 @@ public abstract class Expression {
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			return !asBoolean(expression.getValue(context, root));
+		Object apply(Object operand) {
+			return !asBoolean(operand);
 		}
 
 		@Override
@@ -2037,8 +2480,8 @@ public abstract class Expression {
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			Number value = asInteger(asNumber(expression.getValue(context, root)));
+		Object apply(Object operand) {
+			Number value = asInteger(asNumber(operand));
 			if (value instanceof Integer) {
 				return ~((Integer) value);
 			}
@@ -2082,6 +2525,11 @@ public abstract class Expression {
 			return classLoaders;
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return objExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2095,7 +2543,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 1048573 + (objExpr == null ? 0 : objExpr.hashCode() * 1021) + (clazz == null ? 0 : clazz.hashCode());
 		}
 
@@ -2148,6 +2596,11 @@ public abstract class Expression {
 			return classLoaders;
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return true;
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2161,7 +2614,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 16777213 + (objExpr == null ? 0 : objExpr.hashCode() * 65521) + (methodName == null ? 0 : methodName.hashCode() * 251) + Arrays.hashCode(argExprs);
 		}
 
@@ -2273,6 +2726,12 @@ public abstract class Expression {
 
 		private final ConcurrentHashMap<Class<?>, LValueFactory> cache = new ConcurrentHashMap<>(0);
 
+		/**
+		 * Monomorphic inline cache in front of {@link #cache}, which spares the hash lookup when consecutive objects
+		 * are of the same class, as they are within each class group of {@link Expression#evaluateAll}.
+		 */
+		private volatile Pair<Class<?>, LValueFactory> last;
+
 		public PropertyAccess(String propertyName) {
 			this(null, propertyName);
 		}
@@ -2293,6 +2752,11 @@ public abstract class Expression {
 			return objExpr == null ? classLoaders : objExpr.getClassLoaders(classLoaders);
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return objExpr != null && objExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2306,7 +2770,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 1048573 + (objExpr == null ? 0 : objExpr.hashCode() * 1021) + (propertyName == null ? 0 : propertyName.hashCode());
 		}
 
@@ -2330,9 +2794,38 @@ public abstract class Expression {
 			if (object == null) {
 				throw new NullPointerException(objExpr == null ? null : objExpr.toString());
 			}
+			return getLValueFactory(object.getClass()).createLValue(object);
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			Object[] objects = roots;
+			if (objExpr != null) {
+				objExpr.evaluateVector(context, roots, selection, count, objects = results);
+			}
+			Class<?> objClass = null;
+			LValueFactory lValueFactory = null;
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				Object object = objects[row];
+				if (object == null) {
+					throw new NullPointerException(objExpr == null ? null : objExpr.toString());
+				}
+				if (object.getClass() != objClass) {
+					lValueFactory = getLValueFactory(objClass = object.getClass());
+				}
+				results[row] = asRValue(lValueFactory.createLValue(object), this);
+			}
+		}
+
+		private LValueFactory getLValueFactory(Class<?> objClass) throws OgnlException {
+			Pair<Class<?>, LValueFactory> last = this.last;
+			if (last != null && last.first == objClass) {
+				return last.second;
+			}
 			LValueFactory lValueFactory;
 			try {
-				lValueFactory = cache.computeIfAbsent(object.getClass(), c -> {
+				lValueFactory = cache.computeIfAbsent(objClass, c -> {
 					try {
 						return createPropertyLValueFactory(c, propertyName);
 					}
@@ -2345,7 +2838,8 @@ public abstract class Expression {
 				Throwable cause = e.getCause();
 				throw cause instanceof OgnlException ? (OgnlException) cause : new OgnlException(this, cause);
 			}
-			return lValueFactory.createLValue(object);
+			this.last = new Pair<>(objClass, lValueFactory);
+			return lValueFactory;
 		}
 
 		@Override
@@ -2386,6 +2880,11 @@ public abstract class Expression {
 			return indexExpr.getClassLoaders(objExpr == null ? classLoaders : objExpr.getClassLoaders(classLoaders));
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return objExpr != null && objExpr.hasSideEffects() || indexExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2399,7 +2898,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 16777213 + (objExpr == null ? 0 : objExpr.hashCode() * 65521) + (propertyName == null ? 0 : propertyName.hashCode() * 251) + (indexExpr == null ? 0 : indexExpr.hashCode());
 		}
 
@@ -2458,6 +2957,12 @@ public abstract class Expression {
 
 		private final ConcurrentHashMap<Pair<Class<?>, String>, LValueFactory> cache = new ConcurrentHashMap<>(0);
 
+		/**
+		 * The accessor for the class of the array last indexed here, which spares the lookup when consecutive arrays
+		 * are of the same class.
+		 */
+		private volatile Pair<Class<?>, ArrayAccessor> lastArrayAccessor;
+
 		public IndexAccess(Expression indexExpr) {
 			this(null, indexExpr);
 		}
@@ -2478,6 +2983,11 @@ public abstract class Expression {
 			return indexExpr.getClassLoaders(objExpr == null ? classLoaders : objExpr.getClassLoaders(classLoaders));
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return objExpr != null && objExpr.hasSideEffects() || indexExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2491,7 +3001,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 1048573 + (objExpr == null ? 0 : objExpr.hashCode() * 1021) + (indexExpr == null ? 0 : indexExpr.hashCode());
 		}
 
@@ -2510,6 +3020,11 @@ public abstract class Expression {
 
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
+			if (objExpr != null && objExpr.isLazy() && !indexExpr.hasSideEffects()) {
+				// pull only as many elements as needed to reach the index
+				Iterator<?> iterator = objExpr.iterate(context, root);
+				return new IteratorElementLValue(iterator, asIntegerIndex(asNumber(indexExpr.getValue(context, root))));
+			}
 			Object object = objExpr == null ? root : objExpr.getValue(context, root);
 			if (object == null) {
 				throw new NullPointerException(objExpr == null ? null : objExpr.toString());
@@ -2517,7 +3032,11 @@ public abstract class Expression {
 			Object index = indexExpr.getValue(context, root);
 			Class<? extends Object> objClass = object.getClass();
 			if (objClass.isArray()) {
-				return new ArrayElementLValue(object, asIntegerIndex(asNumber(index)));
+				Pair<Class<?>, ArrayAccessor> lastArrayAccessor = this.lastArrayAccessor;
+				if (lastArrayAccessor == null || lastArrayAccessor.first != objClass) {
+					this.lastArrayAccessor = lastArrayAccessor = new Pair<>(objClass, ArrayAccessor.forClass.get(objClass));
+				}
+				return new ArrayElementLValue(lastArrayAccessor.second, object, asIntegerIndex(asNumber(index)));
 			}
 			if (object instanceof List<?>) {
 				return new ListElementLValue((List<?>) object, asIntegerIndex(asNumber(index)));
@@ -2556,6 +3075,91 @@ public abstract class Expression {
 
 	public static class Projection extends Expression {
 
+		/**
+		 * A projection, written {@code list.{[] expr }}, whose result is an array rather than a list. If the results of
+		 * the sub-expression are all of one primitive wrapper type, the array is of the primitive type, and otherwise it
+		 * is an {@code Object[]}. Over a primitive array or an {@code int} or {@code long} range, a sub-expression of
+		 * arithmetic, comparison and logical operators on {@code #this}, literals and variables is evaluated by the
+		 * columnar kernels, so neither the elements nor the results are ever boxed.
+		 */
+		public static class Primitive extends Projection {
+
+			public Primitive(Expression listExpr, Expression subExpr) {
+				super(listExpr, subExpr);
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return subExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{[] ")).append(" }");
+			}
+
+			@Override
+			boolean isLazy() {
+				return false;
+			}
+
+			@Override
+			Object evaluate(Context context, Object root) throws OgnlException {
+				Object object = listExpr.isLazy() ? listExpr.iterate(context, root) : listExpr.getValue(context, root);
+				Column column = Column.over(object);
+				if (column != null) {
+					Object array = new Table(column.size()).put(Table.THIS, column).evaluateArray(subExpr, context);
+					if (array != null) {
+						return array;
+					}
+				}
+				ArrayList<?> projection = (ArrayList<?>) project(context, object);
+				Class<?> valueClass = null;
+				for (Object value : projection) {
+					Class<?> c = value == null ? null : value.getClass();
+					if (c == null || valueClass != null && c != valueClass) {
+						return projection.toArray();
+					}
+					valueClass = c;
+				}
+				Class<?> primitiveType = getPrimitiveType(valueClass);
+				if (primitiveType == null) {
+					return projection.toArray();
+				}
+				int size = projection.size();
+				Object array = Array.newInstance(primitiveType, size);
+				ArrayAccessor accessor = ArrayAccessor.forClass.get(array.getClass());
+				for (int index = 0; index < size; ++index) {
+					accessor.set(array, index, projection.get(index));
+				}
+				return array;
+			}
+
+			private static Class<?> getPrimitiveType(Class<?> wrapperClass) {
+				if (wrapperClass == Integer.class) {
+					return int.class;
+				}
+				if (wrapperClass == Long.class) {
+					return long.class;
+				}
+				if (wrapperClass == Double.class) {
+					return double.class;
+				}
+				if (wrapperClass == Float.class) {
+					return float.class;
+				}
+				if (wrapperClass == Boolean.class) {
+					return boolean.class;
+				}
+				if (wrapperClass == Character.class) {
+					return char.class;
+				}
+				if (wrapperClass == Short.class) {
+					return short.class;
+				}
+				if (wrapperClass == Byte.class) {
+					return byte.class;
+				}
+				return null;
+			}
+
+		}
+
 		final Expression listExpr, subExpr;
 
 		private static final int PRECEDENCE = 14;
@@ -2571,6 +3175,11 @@ public abstract class Expression {
 			return subExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || subExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2584,7 +3193,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (subExpr == null ? 0 : subExpr.hashCode());
 		}
 
@@ -2593,12 +3202,50 @@ public abstract class Expression {
 			return subExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{ ")).append(" }");
 		}
 
+		@Override
+		boolean isLazy() {
+			return !subExpr.hasSideEffects();
+		}
+
+		@Override
+		Iterator<?> iterate(Context context, Object root) throws OgnlException {
+			if (!isLazy()) {
+				return super.iterate(context, root);
+			}
+			Iterator<?> iterator = listExpr.iterate(context, root);
+			Expression subExpr = this.subExpr;
+			return new Iterator<Object>() {
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Object next() {
+					try {
+						return subExpr.getValue(context, iterator.next());
+					}
+					catch (OgnlException e) {
+						throw new UndeclaredThrowableException(e);
+					}
+				}
+
+			};
+		}
+
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
-			Object object = listExpr.getValue(context, root);
+			return project(context, listExpr.isLazy() ? listExpr.iterate(context, root) : listExpr.getValue(context, root));
+		}
+
+		final Object project(Context context, Object object) throws OgnlException {
+			if (object == null) {
+				throw new NullPointerException(listExpr.toString());
+			}
 			int capacity;
 			if (object.getClass().isArray()) {
-				capacity = Array.getLength(object);
+				capacity = ArrayAccessor.forClass.get(object.getClass()).getLength(object);
 			}
 			else if (object instanceof Collection<?>) {
 				capacity = ((Collection<?>) object).size();
@@ -2609,10 +3256,18 @@ public abstract class Expression {
 			else {
 				capacity = 16;
 			}
-			ArrayList<Object> projection = new ArrayList<>(capacity);
 			Expression subExpr = this.subExpr;
-			for (Iterator<?> iterator = asIterator(object); iterator.hasNext();) {
-				projection.add(subExpr.getValue(context, iterator.next()));
+			if (ParallelEvaluation.isApplicable(context, subExpr, object, capacity)) {
+				return new ArrayList<>(Arrays.asList(ParallelEvaluation.evaluate(context, subExpr, object, capacity)));
+			}
+			ArrayList<Object> projection = new ArrayList<>(capacity);
+			try {
+				for (Iterator<?> iterator = asIterator(object); iterator.hasNext();) {
+					projection.add(subExpr.getValue(context, iterator.next()));
+				}
+			}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
 			}
 			return projection;
 		}
@@ -2632,17 +3287,27 @@ public abstract class Expression {
 				super(listExpr, subExpr);
 			}
 
+			@Override
+			boolean isLazy() {
+				return false;
+			}
+
 			@Override
 			Object evaluate(Context context, Object root) throws OgnlException {
 				Expression subExpr = this.subExpr;
-				for (Iterator<?> iterator = asIterator(listExpr.getValue(context, root)); iterator.hasNext();) {
-					Object element = iterator.next();
-					if (asBoolean(subExpr.getValue(context, element))) {
-						ArrayList<Object> list = new ArrayList<>(1);
-						list.add(element);
-						return list;
+				try {
+					for (Iterator<?> iterator = listExpr.isLazy() ? listExpr.iterate(context, root) : asIterator(listExpr.getValue(context, root)); iterator.hasNext();) {
+						Object element = iterator.next();
+						if (asBoolean(subExpr.getValue(context, element))) {
+							ArrayList<Object> list = new ArrayList<>(1);
+							list.add(element);
+							return list;
+						}
 					}
 				}
+				catch (UndeclaredThrowableException e) {
+					throw unwrap(e, this);
+				}
 				return new ArrayList<>(0);
 			}
 
@@ -2659,17 +3324,27 @@ public abstract class Expression {
 				super(listExpr, subExpr);
 			}
 
+			@Override
+			boolean isLazy() {
+				return false;
+			}
+
 			@Override
 			Object evaluate(Context context, Object root) throws OgnlException {
 				ArrayList<Object> list = new ArrayList<>(1);
 				Expression subExpr = this.subExpr;
-				for (Iterator<?> iterator = asIterator(listExpr.getValue(context, root)); iterator.hasNext();) {
-					Object element = iterator.next();
-					if (asBoolean(subExpr.getValue(context, element))) {
-						list.clear();
-						list.add(element);
+				try {
+					for (Iterator<?> iterator = listExpr.isLazy() ? listExpr.iterate(context, root) : asIterator(listExpr.getValue(context, root)); iterator.hasNext();) {
+						Object element = iterator.next();
+						if (asBoolean(subExpr.getValue(context, element))) {
+							list.clear();
+							list.add(element);
+						}
 					}
 				}
+				catch (UndeclaredThrowableException e) {
+					throw unwrap(e, this);
+				}
 				return list;
 			}
 
@@ -2695,6 +3370,11 @@ public abstract class Expression {
 			return subExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
 		}
 
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || subExpr.hasSideEffects();
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj) {
@@ -2708,7 +3388,7 @@ public abstract class Expression {
 		}
 
 		@Override
-		public int hashCode() {
+		protected int computeHashCode() {
 			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (subExpr == null ? 0 : subExpr.hashCode());
 		}
 
@@ -2717,24 +3397,117 @@ public abstract class Expression {
 			return subExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{").append(getOperator()).append(' ')).append(" }");
 		}
 
+		@Override
+		boolean isLazy() {
+			return !subExpr.hasSideEffects();
+		}
+
+		@Override
+		Iterator<?> iterate(Context context, Object root) throws OgnlException {
+			if (!isLazy()) {
+				return super.iterate(context, root);
+			}
+			Iterator<?> iterator = listExpr.iterate(context, root);
+			Expression subExpr = this.subExpr;
+			return new Iterator<Object>() {
+
+				boolean hasNext;
+				Object next;
+
+				@Override
+				public boolean hasNext() {
+					try {
+						while (!hasNext && iterator.hasNext()) {
+							Object element = iterator.next();
+							if (asBoolean(subExpr.getValue(context, element))) {
+								next = element;
+								hasNext = true;
+							}
+						}
+					}
+					catch (OgnlException e) {
+						throw new UndeclaredThrowableException(e);
+					}
+					return hasNext;
+				}
+
+				@Override
+				public Object next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					Object ret = next;
+					next = null;
+					hasNext = false;
+					return ret;
+				}
+
+			};
+		}
+
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
+			Expression subExpr = this.subExpr;
+			if (listExpr.isLazy() && listExpr.getClass() != Selection.class) {
+				// fuse with the upstream stages rather than materializing their results
+				ArrayList<Object> selection = new ArrayList<>();
+				try {
+					for (Iterator<?> iterator = listExpr.iterate(context, root); iterator.hasNext();) {
+						Object element = iterator.next();
+						if (asBoolean(subExpr.getValue(context, element))) {
+							selection.add(element);
+						}
+					}
+				}
+				catch (UndeclaredThrowableException e) {
+					throw unwrap(e, this);
+				}
+				return selection;
+			}
 			Object object = listExpr.getValue(context, root);
-			int capacity;
-			if (object.getClass().isArray()) {
-				capacity = Array.getLength(object);
+			if (object instanceof IndexedCollection<?> || object instanceof KeySortedList<?>) {
+				Object selection = selectIndexed(context, object);
+				if (selection != null) {
+					return selection;
+				}
 			}
-			else if (object instanceof Collection<?>) {
-				capacity = ((Collection<?>) object).size();
+			if (context.indexCache != null && subExpr.getClass() == Equal.class && IndexCache.isIndexable(object)) {
+				Object selection = selectCached(context, object);
+				if (selection != null) {
+					return selection;
+				}
 			}
-			else if (object instanceof Map<?, ?>) {
-				capacity = ((Map<?, ?>) object).size();
+			if (object instanceof SelectionList) {
+				// select from the same source, visiting only the positions already selected
+				SelectionList list = (SelectionList) object, selection = list.derive();
+				for (PrimitiveIterator.OfInt positionIterator = list.positionIterator(); positionIterator.hasNext();) {
+					int position = positionIterator.nextInt();
+					if (asBoolean(subExpr.getValue(context, list.getSourceElement(position)))) {
+						selection.addPosition(position);
+					}
+				}
+				return selection;
 			}
-			else {
-				capacity = 16;
+			if (object != null && (object.getClass().isArray() || object instanceof List<?> && object instanceof RandomAccess)) {
+				SelectionList selection = new SelectionList(object);
+				int size = selection.getSourceSize();
+				if (ParallelEvaluation.isApplicable(context, subExpr, object, size)) {
+					Object[] results = ParallelEvaluation.evaluate(context, subExpr, object, size);
+					for (int position = 0; position < size; ++position) {
+						if (asBoolean(results[position])) {
+							selection.addPosition(position);
+						}
+					}
+					return selection;
+				}
+				for (int position = 0; position < size; ++position) {
+					if (asBoolean(subExpr.getValue(context, selection.getSourceElement(position)))) {
+						selection.addPosition(position);
+					}
+				}
+				return selection;
 			}
-			ArrayList<Object> selection = new ArrayList<>(capacity);
-			Expression subExpr = this.subExpr;
+			ArrayList<Object> selection = new ArrayList<>();
 			for (Iterator<?> iterator = asIterator(object); iterator.hasNext();) {
 				Object element = iterator.next();
 				if (asBoolean(subExpr.getValue(context, element))) {
@@ -2744,6 +3517,157 @@ public abstract class Expression {
 			return selection;
 		}
 
+		/**
+		 * Answers this selection from the index of the given {@link IndexedCollection} or by binary search of the given
+		 * {@link KeySortedList} if the sub-expression is an equality or a conjunction of comparisons between one key
+		 * path and values that do not depend on the element, or else returns null. The index is searched in the order of
+		 * {@link #compare(Object, Object)}, which may find elements whose keys are ordered with a value but not
+		 * {@link #equals(Object, Object) equal} to it, so the elements found for equalities are tested again, and keys
+		 * and values that cannot be ordered with one another are left to a scan.
+		 */
+		private Object selectIndexed(Context context, Object object) throws OgnlException {
+			Expression[] terms = subExpr instanceof Logical.And ? ((Logical.And) subExpr).expressions : new Expression[] { subExpr };
+			Expression keyExpr = null;
+			Object from = null, to = null;
+			boolean fromInclusive = false, toInclusive = false, equality = false;
+			try {
+				for (Expression term : terms) {
+					if (!(term instanceof Binary)) {
+						return null;
+					}
+					Expression leftExpr = ((Binary) term).leftExpr, rightExpr = ((Binary) term).rightExpr, termKeyExpr, valueExpr;
+					boolean reversed;
+					if (isKeyPath(leftExpr) && isInvariant(rightExpr)) {
+						termKeyExpr = leftExpr;
+						valueExpr = rightExpr;
+						reversed = false;
+					}
+					else if (isKeyPath(rightExpr) && isInvariant(leftExpr)) {
+						termKeyExpr = rightExpr;
+						valueExpr = leftExpr;
+						reversed = true;
+					}
+					else {
+						return null;
+					}
+					if (keyExpr == null) {
+						keyExpr = termKeyExpr;
+					}
+					else if (!keyExpr.equals(termKeyExpr)) {
+						return null;
+					}
+					boolean lower, upper, inclusive;
+					if (term.getClass() == Equal.class) {
+						lower = upper = inclusive = equality = true;
+					}
+					else if (term instanceof Comparison.Less || term instanceof Comparison.LessOrEqual) {
+						upper = !(lower = reversed);
+						inclusive = term instanceof Comparison.LessOrEqual;
+					}
+					else if (term instanceof Comparison.Greater || term instanceof Comparison.GreaterOrEqual) {
+						lower = !(upper = reversed);
+						inclusive = term instanceof Comparison.GreaterOrEqual;
+					}
+					else {
+						return null;
+					}
+					Object value = valueExpr.getValue(context, null);
+					if (value == null) {
+						return null;
+					}
+					int c;
+					if (lower && (from == null || (c = compare(value, from)) > 0 || c == 0 && !inclusive)) {
+						from = value;
+						fromInclusive = inclusive;
+					}
+					if (upper && (to == null || (c = compare(value, to)) < 0 || c == 0 && !inclusive)) {
+						to = value;
+						toInclusive = inclusive;
+					}
+				}
+				Collection<?> selection;
+				if (object instanceof IndexedCollection<?>) {
+					IndexedCollection<?> collection = (IndexedCollection<?>) object;
+					if (terms.length == 1 && subExpr.getClass() == Equal.class && (selection = collection.lookup(keyExpr, from)) != null) {
+						// a lookup finds exactly the equal elements
+						return new ArrayList<>(selection);
+					}
+					if ((selection = collection.range(keyExpr, from, fromInclusive, to, toInclusive)) == null) {
+						return null;
+					}
+				}
+				else {
+					KeySortedList<?> list = (KeySortedList<?>) object;
+					if (!keyExpr.equals(list.getSortKey())) {
+						return null;
+					}
+					int start = from == null ? 0 : search(context, list, keyExpr, from, fromInclusive);
+					int end = to == null ? list.size() : search(context, list, keyExpr, to, !toInclusive);
+					selection = list.subList(start, Math.max(start, end));
+				}
+				if (!equality) {
+					return new ArrayList<>(selection);
+				}
+				ArrayList<Object> equal = new ArrayList<>();
+				for (Object element : selection) {
+					if (asBoolean(subExpr.getValue(context, element))) {
+						equal.add(element);
+					}
+				}
+				return equal;
+			}
+			catch (IllegalArgumentException e) {
+				// the keys and the values cannot be ordered with one another, though they may still be tested for equality
+				return null;
+			}
+		}
+
+		/**
+		 * Answers this equality selection from the {@link Context#indexCache} if it compares a key path with a value that
+		 * does not depend on the element and the given collection has been scanned by that key path often enough to be
+		 * indexed, or else returns null.
+		 */
+		private Object selectCached(Context context, Object object) throws OgnlException {
+			Expression leftExpr = ((Binary) subExpr).leftExpr, rightExpr = ((Binary) subExpr).rightExpr;
+			if (isKeyPath(leftExpr) && isInvariant(rightExpr)) {
+				return context.indexCache.select(context, object, leftExpr, rightExpr.getValue(context, null));
+			}
+			if (isKeyPath(rightExpr) && isInvariant(leftExpr)) {
+				return context.indexCache.select(context, object, rightExpr, leftExpr.getValue(context, null));
+			}
+			return null;
+		}
+
+		/**
+		 * Returns the index of the first element of the given sorted list whose key is greater than, or if
+		 * {@code inclusive} is true, not less than, the given value.
+		 */
+		private static int search(Context context, List<?> list, Expression keyExpr, Object value, boolean inclusive) throws OgnlException {
+			int low = 0, high = list.size();
+			while (low < high) {
+				int middle = (low + high) >>> 1, c = compare(keyExpr.getValue(context, list.get(middle)), value);
+				if (c < 0 || c == 0 && !inclusive) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns whether the given expression reads a property of the element, such as {@code region} or
+		 * {@code customer.region}, or is the element itself.
+		 */
+		static boolean isKeyPath(Expression expr) {
+			return expr == ThisReference.THIS || expr instanceof PropertyAccess && (((PropertyAccess) expr).objExpr == null || isKeyPath(((PropertyAccess) expr).objExpr));
+		}
+
+		private static boolean isInvariant(Expression expr) {
+			return expr instanceof Literal<?> || expr instanceof VariableReference;
+		}
+
 		@Override
 		int getPrecedence() {
 			return PRECEDENCE;
@@ -2755,231 +3679,330 @@ public abstract class Expression {
 
 	}
 
-	public static class Subexpression extends Expression {
+	/**
+	 * An aggregation, written {@code list.{keyword: expr }}, which evaluates the sub-expression against each element of
+	 * the list and accumulates the results in a single pass, without collecting them. Null results are ignored. If the
+	 * list is a lazy projection or selection, the aggregation is fused with it, and if it is a {@link GroupBy}, each of
+	 * its groups is aggregated.
+	 */
+	public static abstract class Aggregation extends Expression {
 
-		final Expression objExpr, subExpr;
+		/**
+		 * {@code list.{sum: expr }}: the sum of the results, following the same numeric promotions as
+		 * {@link Arithmetic.Addition}. The sum of no results is the {@code int} zero.
+		 */
+		public static class Sum extends Aggregation {
 
-		private static final int PRECEDENCE = 14;
+			public Sum(Expression listExpr, Expression subExpr) {
+				super(listExpr, subExpr);
+			}
 
-		public Subexpression(Expression objExpr, Expression subExpr) {
-			assert objExpr != null && subExpr != null;
-			this.objExpr = objExpr;
-			this.subExpr = subExpr;
-		}
+			@Override
+			Object aggregate(Context context, Iterator<?> iterator) throws OgnlException {
+				Accumulator accumulator = new Accumulator();
+				while (iterator.hasNext()) {
+					accumulate(accumulator, subExpr.getValue(context, iterator.next()));
+				}
+				return accumulator.getSum();
+			}
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			return subExpr.getClassLoaders(objExpr.getClassLoaders(classLoaders));
-		}
+			@Override
+			String getKeyword() {
+				return "sum";
+			}
 
-		@Override
-		public boolean isLValue() {
-			return subExpr.isLValue();
 		}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
-			}
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
-			}
-			Subexpression o = (Subexpression) obj;
-			return Objects.equals(objExpr, o.objExpr) && Objects.equals(subExpr, o.subExpr);
-		}
+		/**
+		 * {@code list.{avg: expr }}: the mean of the results, as a {@code double}, or as a {@link BigDecimal} rounded
+		 * to 34 significant digits if their sum is a {@link BigInteger} or a {@link BigDecimal}. The mean of no results
+		 * is null.
+		 */
+		public static class Average extends Aggregation {
 
-		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 1048573 + (objExpr == null ? 0 : objExpr.hashCode() * 1021) + (subExpr == null ? 0 : subExpr.hashCode());
-		}
+			public Average(Expression listExpr, Expression subExpr) {
+				super(listExpr, subExpr);
+			}
 
-		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			return subExpr.toString(parenthesize(sb, PRECEDENCE - 1, objExpr).append(".( ")).append(" )");
-		}
+			@Override
+			Object aggregate(Context context, Iterator<?> iterator) throws OgnlException {
+				Accumulator accumulator = new Accumulator();
+				while (iterator.hasNext()) {
+					accumulate(accumulator, subExpr.getValue(context, iterator.next()));
+				}
+				return accumulator.getMean();
+			}
 
-		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			return subExpr.evaluate(context, objExpr.getValue(context, root));
-		}
+			@Override
+			String getKeyword() {
+				return "avg";
+			}
 
-		@Override
-		int getPrecedence() {
-			return PRECEDENCE;
 		}
 
-	}
-
-	public static abstract class Literal<V> extends Expression {
-
-		public static class Boolean extends Literal<java.lang.Boolean> {
+		/**
+		 * {@code list.{count: expr }}: the number of elements for which the sub-expression is true.
+		 */
+		public static class Count extends Aggregation {
 
-			public static final Boolean TRUE = new Boolean(java.lang.Boolean.TRUE);
-			public static final Boolean FALSE = new Boolean(java.lang.Boolean.FALSE);
+			public Count(Expression listExpr, Expression subExpr) {
+				super(listExpr, subExpr);
+			}
 
-			/**
-			 * Not instantiable.
-			 */
-			private Boolean(java.lang.Boolean value) {
-				super(value);
+			@Override
+			Object aggregate(Context context, Iterator<?> iterator) throws OgnlException {
+				int count = 0;
+				while (iterator.hasNext()) {
+					if (asBoolean(subExpr.getValue(context, iterator.next()))) {
+						++count;
+					}
+				}
+				return count;
 			}
 
 			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value);
+			String getKeyword() {
+				return "count";
 			}
 
 		}
 
-		public static class Integer extends Literal<java.lang.Integer> implements Numeric {
+		/**
+		 * {@code list.{min: expr }}: the least of the results, as ordered by {@link Expression#compare(Object, Object)},
+		 * or null if there are none.
+		 */
+		public static class Minimum extends Aggregation {
 
-			public Integer(java.lang.Integer value) {
-				super(value);
-				assert value != null;
+			public Minimum(Expression listExpr, Expression subExpr) {
+				super(listExpr, subExpr);
 			}
 
 			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value);
+			Object aggregate(Context context, Iterator<?> iterator) throws OgnlException {
+				Object min = null;
+				while (iterator.hasNext()) {
+					Object value = subExpr.getValue(context, iterator.next());
+					if (value != null && (min == null || compare(value, min) < 0)) {
+						min = value;
+					}
+				}
+				return min;
+			}
+
+			@Override
+			String getKeyword() {
+				return "min";
 			}
 
 		}
 
-		public static class Long extends Literal<java.lang.Long> implements Numeric {
+		/**
+		 * {@code list.{max: expr }}: the greatest of the results, as ordered by
+		 * {@link Expression#compare(Object, Object)}, or null if there are none.
+		 */
+		public static class Maximum extends Aggregation {
 
-			public Long(java.lang.Long value) {
-				super(value);
-				assert value != null;
+			public Maximum(Expression listExpr, Expression subExpr) {
+				super(listExpr, subExpr);
 			}
 
 			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value).append('L');
+			Object aggregate(Context context, Iterator<?> iterator) throws OgnlException {
+				Object max = null;
+				while (iterator.hasNext()) {
+					Object value = subExpr.getValue(context, iterator.next());
+					if (value != null && (max == null || compare(value, max) > 0)) {
+						max = value;
+					}
+				}
+				return max;
+			}
+
+			@Override
+			String getKeyword() {
+				return "max";
 			}
 
 		}
 
-		public static class Float extends Literal<java.lang.Float> implements Numeric {
+		/**
+		 * A running sum and count of numbers, summed by {@link Arithmetic.Addition}, so the sum is promoted exactly as
+		 * the result of {@code +} would be.
+		 */
+		static final class Accumulator {
 
-			public Float(java.lang.Float value) {
-				super(value);
-				assert value != null;
-			}
+			private static final Arithmetic.Addition ADDITION = new Arithmetic.Addition(ThisReference.THIS, ThisReference.THIS);
 
-			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value).append('f');
-			}
+			private Number sum;
+			private int count;
 
-		}
+			Accumulator() {
+			}
 
-		public static class Double extends Literal<java.lang.Double> implements Numeric {
+			void add(Number operand) {
+				sum = count++ == 0 ? Arithmetic.normalize(operand) : ADDITION.apply(sum, operand);
+			}
 
-			public Double(java.lang.Double value) {
-				super(value);
-				assert value != null;
+			Number getSum() {
+				return count == 0 ? 0 : sum;
 			}
 
-			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value).append('d');
+			Number getMean() {
+				if (count == 0) {
+					return null;
+				}
+				if (sum instanceof BigInteger) {
+					return new BigDecimal((BigInteger) sum).divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+				}
+				if (sum instanceof BigDecimal) {
+					return ((BigDecimal) sum).divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+				}
+				return sum.doubleValue() / count;
 			}
 
 		}
 
-		public static class BigInteger extends Literal<java.math.BigInteger> implements Numeric {
+		final Expression listExpr, subExpr;
 
-			public BigInteger(java.math.BigInteger value) {
-				super(value);
-				assert value != null;
-			}
+		private static final int PRECEDENCE = 14;
 
-			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value).append('H');
-			}
+		Aggregation(Expression listExpr, Expression subExpr) {
+			assert listExpr != null && subExpr != null;
+			this.listExpr = listExpr;
+			this.subExpr = subExpr;
+		}
 
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return subExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
 		}
 
-		public static class BigDecimal extends Literal<java.math.BigDecimal> implements Numeric {
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || subExpr.hasSideEffects();
+		}
 
-			public BigDecimal(java.math.BigDecimal value) {
-				super(value);
-				assert value != null;
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
 			}
-
-			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append(value).append('B');
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
 			}
+			Aggregation o = (Aggregation) obj;
+			return Objects.equals(listExpr, o.listExpr) && Objects.equals(subExpr, o.subExpr);
+		}
 
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (subExpr == null ? 0 : subExpr.hashCode());
 		}
 
-		public static class Character extends Literal<java.lang.Character> {
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			return subExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{").append(getKeyword()).append(": ")).append(" }");
+		}
 
-			public Character(java.lang.Character value) {
-				super(value);
-				assert value != null;
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			if (listExpr instanceof GroupBy) {
+				Map<?, ?> groups = (Map<?, ?>) listExpr.getValue(context, root);
+				LinkedHashMap<Object, Object> aggregates = new LinkedHashMap<>((int) (groups.size() / 0.75f) + 1);
+				for (Map.Entry<?, ?> entry : groups.entrySet()) {
+					aggregates.put(entry.getKey(), aggregate(context, ((List<?>) entry.getValue()).iterator()));
+				}
+				return aggregates;
 			}
-
-			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return StringUtil.escapeJavaChar(sb.append('\''), value).append('\'');
+			try {
+				return aggregate(context, listExpr.iterate(context, root));
+			}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
 			}
-
 		}
 
-		public static class String extends Literal<java.lang.String> {
+		abstract Object aggregate(Context context, Iterator<?> iterator) throws OgnlException;
 
-			public String(java.lang.String value) {
-				super(value);
-				assert value != null;
+		final void accumulate(Accumulator accumulator, Object value) throws OgnlException {
+			if (value instanceof Number) {
+				accumulator.add((Number) value);
 			}
-
-			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return StringUtil.escapeJavaString(sb.append('"'), value).append('"');
+			else if (value != null) {
+				throw new OgnlException(this, "cannot aggregate non-numeric value: " + value);
 			}
+		}
 
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
 		}
 
-		public static class Null extends Literal<Object> {
+		abstract String getKeyword();
 
-			public static final Null NULL = new Null();
+		/**
+		 * Returns a new aggregation identified by the given keyword, or null if there is no such aggregation.
+		 */
+		public static Aggregation of(String keyword, Expression listExpr, Expression subExpr) {
+			switch (keyword) {
+				case "sum":
+					return new Sum(listExpr, subExpr);
+				case "avg":
+					return new Average(listExpr, subExpr);
+				case "count":
+					return new Count(listExpr, subExpr);
+				case "min":
+					return new Minimum(listExpr, subExpr);
+				case "max":
+					return new Maximum(listExpr, subExpr);
+				default:
+					return null;
+			}
+		}
 
-			/**
-			 * Not instantiable.
-			 */
-			private Null() {
-				super(null);
+	}
+
+	/**
+	 * A sort, written {@code list.{sort: key }}, whose result is a new list of the elements of the list in ascending
+	 * order of the values of the key expression, as by {@link Sorter}. A limit applied directly to a sort, as in
+	 * {@code list.{sort: key }.{< 10 }}, selects the first elements with a bounded heap rather than sorting them all.
+	 */
+	public static class Sort extends Expression {
+
+		/**
+		 * A sort in descending order of its keys, written {@code list.{sortDesc: key }}.
+		 */
+		public static class Descending extends Sort {
+
+			public Descending(Expression listExpr, Expression keyExpr) {
+				super(listExpr, keyExpr);
 			}
 
 			@Override
-			protected StringBuilder toString(StringBuilder sb) {
-				return sb.append((Object) null);
+			boolean isDescending() {
+				return true;
 			}
 
 		}
 
-		interface Numeric {
-		}
-
-		final V value;
+		final Expression listExpr, keyExpr;
 
-		private static final int PRECEDENCE = 15;
+		private static final int PRECEDENCE = 14;
 
-		Literal(V value) {
-			this.value = value;
+		public Sort(Expression listExpr, Expression keyExpr) {
+			assert listExpr != null && keyExpr != null;
+			this.listExpr = listExpr;
+			this.keyExpr = keyExpr;
 		}
 
-		public final V getValue() {
-			return value;
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return keyExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
 		}
 
 		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			return classLoaders;
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || keyExpr.hasSideEffects();
 		}
 
 		@Override
@@ -2990,18 +4013,37 @@ public abstract class Expression {
 			if (obj == null || getClass() != obj.getClass()) {
 				return false;
 			}
-			Literal<?> o = (Literal<?>) obj;
-			return Objects.equals(value, o.value);
+			Sort o = (Sort) obj;
+			return Objects.equals(listExpr, o.listExpr) && Objects.equals(keyExpr, o.keyExpr);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 65521 + (value == null ? 0 : value.hashCode());
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (keyExpr == null ? 0 : keyExpr.hashCode());
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) {
-			return value;
+		protected StringBuilder toString(StringBuilder sb) {
+			return keyExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(isDescending() ? ".{sortDesc: " : ".{sort: ")).append(" }");
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			try {
+				return Sorter.sort(context, listExpr.iterate(context, root), keyExpr, isDescending());
+			}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
+			}
+		}
+
+		final ArrayList<Object> top(Context context, Object root, int k) throws OgnlException {
+			try {
+				return Sorter.top(context, listExpr.iterate(context, root), keyExpr, k, isDescending());
+			}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
+			}
 		}
 
 		@Override
@@ -3009,28 +4051,38 @@ public abstract class Expression {
 			return PRECEDENCE;
 		}
 
+		boolean isDescending() {
+			return false;
+		}
+
 	}
 
-	public static class ArrayAllocation extends Expression {
+	/**
+	 * A grouping, written {@code list.{groupBy: key }}, whose result is a map from each distinct value of the key
+	 * expression to the list of the elements having that key, as by {@link Grouping}. An aggregation applied directly
+	 * to a grouping, as in {@code list.{groupBy: key }.{sum: expr }}, aggregates each group, resulting in a map from
+	 * each key to its aggregate.
+	 */
+	public static class GroupBy extends Expression {
 
-		final Class<?> componentType;
-		final Expression[] dimExprs;
+		final Expression listExpr, keyExpr;
 
-		private static final int PRECEDENCE = 15;
+		private static final int PRECEDENCE = 14;
 
-		public ArrayAllocation(Class<?> componentType, Expression... dimExprs) {
-			assert componentType != null && dimExprs.length > 0;
-			this.componentType = componentType;
-			this.dimExprs = dimExprs;
+		public GroupBy(Expression listExpr, Expression keyExpr) {
+			assert listExpr != null && keyExpr != null;
+			this.listExpr = listExpr;
+			this.keyExpr = keyExpr;
 		}
 
 		@Override
 		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			classLoaders.add(componentType.getClassLoader());
-			for (Expression dimExpr : dimExprs) {
-				classLoaders = dimExpr.getClassLoaders(classLoaders);
-			}
-			return classLoaders;
+			return keyExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || keyExpr.hasSideEffects();
 		}
 
 		@Override
@@ -3041,42 +4093,28 @@ public abstract class Expression {
 			if (obj == null || getClass() != obj.getClass()) {
 				return false;
 			}
-			ArrayAllocation o = (ArrayAllocation) obj;
-			return componentType == o.componentType && Arrays.equals(dimExprs, dimExprs);
+			GroupBy o = (GroupBy) obj;
+			return Objects.equals(listExpr, o.listExpr) && Objects.equals(keyExpr, o.keyExpr);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 1048573 + (componentType == null ? 0 : componentType.hashCode() * 1021) + Arrays.hashCode(dimExprs);
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (keyExpr == null ? 0 : keyExpr.hashCode());
 		}
 
 		@Override
 		protected StringBuilder toString(StringBuilder sb) {
-			int dimensionality = 0;
-			Class<?> componentType = this.componentType;
-			while (componentType.isArray()) {
-				++dimensionality;
-				componentType = componentType.getComponentType();
-			}
-			appendClassName(sb.append("new "), componentType);
-			for (Expression dimExpr : dimExprs) {
-				dimExpr.toString(sb.append('[')).append(']');
-			}
-			while (dimensionality > 0) {
-				sb.append("[]");
-				--dimensionality;
-			}
-			return sb;
+			return keyExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{groupBy: ")).append(" }");
 		}
 
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
-			Expression[] dimExprs = this.dimExprs;
-			int[] dimensions = new int[dimExprs.length];
-			for (int index = 0; index < dimExprs.length; ++index) {
-				dimensions[index] = asIntegerIndex(asNumber(dimExprs[index].getValue(context, root)));
+			try {
+				return Grouping.groupBy(context, listExpr.iterate(context, root), keyExpr, 16);
+			}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
 			}
-			return Array.newInstance(componentType, dimensions);
 		}
 
 		@Override
@@ -3086,38 +4124,35 @@ public abstract class Expression {
 
 	}
 
-	public static class ArrayInitialization extends Expression {
+	/**
+	 * A deduplication, written {@code list.{distinct: key }}, whose result is a list of the first element of the list
+	 * having each distinct value of the key expression, as by {@link Grouping}.
+	 */
+	public static class Distinct extends Expression {
 
-		final Class<?> arrayType;
-		final Object[] elements;
+		final Expression listExpr, keyExpr;
 
-		private static final int PRECEDENCE = 15;
+		private static final int PRECEDENCE = 14;
 
-		public ArrayInitialization(Class<?> arrayType, Object[] elements) {
-			assert arrayType.isArray() && elements != null;
-			this.arrayType = arrayType;
-			this.elements = elements;
+		public Distinct(Expression listExpr, Expression keyExpr) {
+			assert listExpr != null && keyExpr != null;
+			this.listExpr = listExpr;
+			this.keyExpr = keyExpr;
 		}
 
 		@Override
 		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			classLoaders.add(arrayType.getClassLoader());
-			return getClassLoaders(classLoaders, arrayType, elements);
+			return keyExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
 		}
 
-		private static Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders, Class<?> arrayType, Object[] elements) {
-			Class<?> componentType = arrayType.getComponentType();
-			if (componentType.isArray()) {
-				for (Object[] array : (Object[][]) elements) {
-					classLoaders = getClassLoaders(classLoaders, componentType, array);
-				}
-			}
-			else {
-				for (Expression expression : (Expression[]) elements) {
-					classLoaders = expression.getClassLoaders(classLoaders);
-				}
-			}
-			return classLoaders;
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || keyExpr.hasSideEffects();
+		}
+
+		@Override
+		boolean isLazy() {
+			return !keyExpr.hasSideEffects();
 		}
 
 		@Override
@@ -3128,72 +4163,40 @@ public abstract class Expression {
 			if (obj == null || getClass() != obj.getClass()) {
 				return false;
 			}
-			ArrayInitialization o = (ArrayInitialization) obj;
-			return arrayType == o.arrayType && Arrays.deepEquals(elements, o.elements);
+			Distinct o = (Distinct) obj;
+			return Objects.equals(listExpr, o.listExpr) && Objects.equals(keyExpr, o.keyExpr);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 1048573 + (arrayType == null ? 0 : arrayType.hashCode() * 1021) + Arrays.deepHashCode(elements);
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (keyExpr == null ? 0 : keyExpr.hashCode());
 		}
 
 		@Override
 		protected StringBuilder toString(StringBuilder sb) {
-			return toString(appendClassName(sb.append("new "), arrayType).append(' '), arrayType, elements);
+			return keyExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{distinct: ")).append(" }");
 		}
 
-		private static StringBuilder toString(StringBuilder sb, Class<?> arrayType, Object[] elements) {
-			Class<?> componentType = arrayType.getComponentType();
-			if (componentType.isArray()) {
-				Object[][] arrays = (Object[][]) elements;
-				if (arrays.length == 0) {
-					sb.append("{ }");
-				}
-				else {
-					toString(sb.append("{ "), componentType, arrays[0]);
-					for (int index = 1; index < arrays.length; ++index) {
-						toString(sb.append(", "), componentType, arrays[index]);
-					}
-					sb.append(" }");
-				}
-			}
-			else {
-				Expression[] expressions = (Expression[]) elements;
-				if (expressions.length == 0) {
-					sb.append("{ }");
-				}
-				else {
-					parenthesize(sb.append("{ "), Sequence.PRECEDENCE, expressions[0]);
-					for (int index = 1; index < expressions.length; ++index) {
-						parenthesize(sb.append(", "), Sequence.PRECEDENCE, expressions[index]);
-					}
-					sb.append(" }");
-				}
+		@Override
+		Iterator<?> iterate(Context context, Object root) throws OgnlException {
+			if (!isLazy()) {
+				return super.iterate(context, root);
 			}
-			return sb;
+			return Grouping.distinct(context, listExpr.iterate(context, root), keyExpr, 16);
 		}
 
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
-			return evaluate(context, root, arrayType, elements);
-		}
-
-		private static Object evaluate(Context context, Object root, Class<?> arrayType, Object[] elements) throws OgnlException {
-			Class<?> componentType = arrayType.getComponentType();
-			Object array = Array.newInstance(componentType, elements.length);
-			if (componentType.isArray()) {
-				Object[][] arrays = (Object[][]) elements;
-				for (int index = 0; index < arrays.length; ++index) {
-					Array.set(array, index, evaluate(context, root, componentType, arrays[index]));
+			ArrayList<Object> distinct = new ArrayList<>();
+			try {
+				for (Iterator<?> iterator = Grouping.distinct(context, listExpr.iterate(context, root), keyExpr, 16); iterator.hasNext();) {
+					distinct.add(iterator.next());
 				}
 			}
-			else {
-				Expression[] expressions = (Expression[]) elements;
-				for (int index = 0; index < expressions.length; ++index) {
-					Array.set(array, index, expressions[index].getValue(context, root));
-				}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
 			}
-			return array;
+			return distinct;
 		}
 
 		@Override
@@ -3203,91 +4206,101 @@ public abstract class Expression {
 
 	}
 
-	public static class ListConstruction extends Expression {
-
-		final Expression[] elemExprs;
+	/**
+	 * An inner join, written {@code list.{join: otherList, key, otherKey[, projection] }}, whose result is a list of
+	 * the pairs of an element of the list and an element of the other list having equal keys, as by
+	 * {@link Expression#equals(Object, Object)}. The other list is evaluated against the root of the join, and the keys
+	 * against the elements of their lists. The other list is indexed by its keys in a hash table, which is then probed
+	 * with the key of each element of the list, so a join takes time proportional to the total size of the lists. The
+	 * pairs are ordered by their elements of the list and then by their elements of the other list, and each is a
+	 * {@link Match} unless a projection is given, in which case it is the value of the projection against the pair.
+	 * Null keys match nothing.
+	 */
+	public static class Join extends Expression {
 
-		private static final int PRECEDENCE = 15;
+		/**
+		 * A left join, written {@code list.{leftJoin: otherList, key, otherKey[, projection] }}, which additionally
+		 * pairs each element of the list that matches nothing with null.
+		 */
+		public static class Left extends Join {
 
-		public ListConstruction(Expression... elemExprs) {
-			assert elemExprs != null;
-			this.elemExprs = elemExprs;
-		}
+			public Left(Expression listExpr, Expression otherListExpr, Expression keyExpr, Expression otherKeyExpr, Expression projExpr) {
+				super(listExpr, otherListExpr, keyExpr, otherKeyExpr, projExpr);
+			}
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			for (Expression elemExpr : elemExprs) {
-				classLoaders = elemExpr.getClassLoaders(classLoaders);
+			@Override
+			boolean isLeft() {
+				return true;
 			}
-			return classLoaders;
-		}
 
-		@Override
-		public boolean equals(Object obj) {
-			return this == obj || obj != null && getClass() == obj.getClass() && Arrays.equals(elemExprs, ((ListConstruction) obj).elemExprs);
 		}
 
-		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 65521 + Arrays.hashCode(elemExprs);
-		}
+		/**
+		 * A pair of joined elements, whose properties are {@code left} and {@code right}.
+		 */
+		public static final class Match {
 
-		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			Expression[] elemExprs = this.elemExprs;
-			if (elemExprs.length == 0) {
-				return sb.append("{ }");
+			private final Object left, right;
+
+			public Match(Object left, Object right) {
+				this.left = left;
+				this.right = right;
 			}
-			parenthesize(sb.append("{ "), Sequence.PRECEDENCE, elemExprs[0]);
-			for (int index = 1; index < elemExprs.length; ++index) {
-				parenthesize(sb.append(", "), Sequence.PRECEDENCE, elemExprs[index]);
+
+			public Object getLeft() {
+				return left;
 			}
-			return sb.append(" }");
-		}
 
-		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			Expression[] elemExprs = this.elemExprs;
-			ArrayList<Object> list = new ArrayList<>(elemExprs.length);
-			for (Expression elemExpr : elemExprs) {
-				list.add(elemExpr.getValue(context, root));
+			public Object getRight() {
+				return right;
 			}
-			return list;
-		}
 
-		@Override
-		int getPrecedence() {
-			return PRECEDENCE;
-		}
+			@Override
+			public boolean equals(Object obj) {
+				if (this == obj) {
+					return true;
+				}
+				if (!(obj instanceof Match)) {
+					return false;
+				}
+				Match o = (Match) obj;
+				return Objects.equals(left, o.left) && Objects.equals(right, o.right);
+			}
 
-	}
+			@Override
+			public int hashCode() {
+				return Objects.hashCode(left) * 31 + Objects.hashCode(right);
+			}
 
-	public static class MapConstruction extends Expression {
+			@Override
+			public String toString() {
+				return "(" + left + ", " + right + ')';
+			}
 
-		final Class<?> mapClass;
-		final Expression[] elemExprs;
+		}
 
-		private static final int PRECEDENCE = 15;
+		final Expression listExpr, otherListExpr, keyExpr, otherKeyExpr, projExpr;
 
-		public MapConstruction(Expression... elemExprs) {
-			this(null, elemExprs);
-		}
+		private static final int PRECEDENCE = 14;
 
-		public MapConstruction(Class<?> mapClass, Expression... elemExprs) {
-			assert (elemExprs.length & 1) == 0;
-			this.mapClass = mapClass;
-			this.elemExprs = elemExprs;
+		public Join(Expression listExpr, Expression otherListExpr, Expression keyExpr, Expression otherKeyExpr, Expression projExpr) {
+			assert listExpr != null && otherListExpr != null && keyExpr != null && otherKeyExpr != null;
+			this.listExpr = listExpr;
+			this.otherListExpr = otherListExpr;
+			this.keyExpr = keyExpr;
+			this.otherKeyExpr = otherKeyExpr;
+			this.projExpr = projExpr;
 		}
 
 		@Override
 		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			if (mapClass != null) {
-				classLoaders.add(mapClass.getClassLoader());
-			}
-			for (Expression elemExpr : elemExprs) {
-				classLoaders = elemExpr.getClassLoaders(classLoaders);
-			}
-			return classLoaders;
+			classLoaders = otherKeyExpr.getClassLoaders(keyExpr.getClassLoaders(otherListExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders))));
+			return projExpr == null ? classLoaders : projExpr.getClassLoaders(classLoaders);
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || otherListExpr.hasSideEffects() || keyExpr.hasSideEffects() || otherKeyExpr.hasSideEffects() || projExpr != null && projExpr.hasSideEffects();
 		}
 
 		@Override
@@ -3298,52 +4311,57 @@ public abstract class Expression {
 			if (obj == null || getClass() != obj.getClass()) {
 				return false;
 			}
-			MapConstruction o = (MapConstruction) obj;
-			return mapClass == o.mapClass && Arrays.equals(elemExprs, o.elemExprs);
+			Join o = (Join) obj;
+			return Objects.equals(listExpr, o.listExpr) && Objects.equals(otherListExpr, o.otherListExpr) && Objects.equals(keyExpr, o.keyExpr) && Objects.equals(otherKeyExpr, o.otherKeyExpr) && Objects.equals(projExpr, o.projExpr);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 1048573 + (mapClass == null ? 0 : mapClass.hashCode() * 1021) + Arrays.hashCode(elemExprs);
+		protected int computeHashCode() {
+			return (((getClass().hashCode() * 1048573 + listExpr.hashCode()) * 1021 + otherListExpr.hashCode()) * 31 + keyExpr.hashCode()) * 31 + otherKeyExpr.hashCode() + (projExpr == null ? 0 : projExpr.hashCode());
 		}
 
 		@Override
 		protected StringBuilder toString(StringBuilder sb) {
-			Expression[] elemExprs = this.elemExprs;
-			sb.append('#');
-			if (mapClass != null) {
-				sb.append('@').append(mapClass.getName()).append('@');
-			}
-			if (elemExprs.length == 0) {
-				return sb.append("{ }");
-			}
-			parenthesize(parenthesize(sb.append("{ "), Sequence.PRECEDENCE, elemExprs[0]).append(" : "), Sequence.PRECEDENCE, elemExprs[1]);
-			for (int index = 2; index < elemExprs.length; ++index) {
-				parenthesize(parenthesize(sb.append(", "), Sequence.PRECEDENCE, elemExprs[index]).append(" : "), Sequence.PRECEDENCE, elemExprs[++index]);
+			parenthesize(sb, PRECEDENCE - 1, listExpr).append(isLeft() ? ".{leftJoin: " : ".{join: ");
+			parenthesize(parenthesize(parenthesize(sb, Sequence.PRECEDENCE, otherListExpr).append(", "), Sequence.PRECEDENCE, keyExpr).append(", "), Sequence.PRECEDENCE, otherKeyExpr);
+			if (projExpr != null) {
+				parenthesize(sb.append(", "), Sequence.PRECEDENCE, projExpr);
 			}
 			return sb.append(" }");
 		}
 
 		@Override
-		@SuppressWarnings("unchecked")
 		Object evaluate(Context context, Object root) throws OgnlException {
-			Expression[] elemExprs = this.elemExprs;
-			Map<Object, Object> map;
-			if (mapClass == null) {
-				map = new LinkedHashMap<>((elemExprs.length / 2 + 2) / 3 * 4, 0.75f);
-			}
-			else {
-				try {
-					map = (Map<Object, Object>) mapClass.newInstance();
-				}
-				catch (Exception e) {
-					throw new OgnlException(this, e);
+			HashMap<Object, ArrayList<Object>> index = new HashMap<>();
+			ArrayList<Object> joined = new ArrayList<>();
+			try {
+				Expression keyExpr = this.keyExpr, otherKeyExpr = this.otherKeyExpr, projExpr = this.projExpr;
+				for (Iterator<?> iterator = otherListExpr.iterate(context, root); iterator.hasNext();) {
+					Object element = iterator.next(), key = otherKeyExpr.getValue(context, element);
+					if (key != null) {
+						index.computeIfAbsent(Grouping.getHashKey(key), k -> new ArrayList<>(1)).add(element);
+					}
+				}
+				boolean left = isLeft();
+				for (Iterator<?> iterator = listExpr.iterate(context, root); iterator.hasNext();) {
+					Object element = iterator.next(), key = keyExpr.getValue(context, element);
+					ArrayList<Object> matches = key == null ? null : index.get(Grouping.getHashKey(key));
+					if (matches != null) {
+						for (Object match : matches) {
+							Match pair = new Match(element, match);
+							joined.add(projExpr == null ? pair : projExpr.getValue(context, pair));
+						}
+					}
+					else if (left) {
+						Match pair = new Match(element, null);
+						joined.add(projExpr == null ? pair : projExpr.getValue(context, pair));
+					}
 				}
 			}
-			for (int index = 0; index < elemExprs.length; ++index) {
-				map.put(elemExprs[index].getValue(context, root), elemExprs[++index].getValue(context, root));
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
 			}
-			return map;
+			return joined;
 		}
 
 		@Override
@@ -3351,27 +4369,74 @@ public abstract class Expression {
 			return PRECEDENCE;
 		}
 
+		boolean isLeft() {
+			return false;
+		}
+
 	}
 
-	public static class VariableReference extends Expression {
+	/**
+	 * A limit, written {@code list.{< count }}, whose result is a list of at most the first {@code count} elements of
+	 * the list. The count is evaluated against the root of the limit, not against the elements. Iteration of a lazy
+	 * list stops as soon as the limit is reached.
+	 */
+	public static class Limit extends Expression {
 
-		final String variableName;
+		/**
+		 * A skip, written {@code list.{> count }}, whose result is a list of the elements of the list following the
+		 * first {@code count}.
+		 */
+		public static class Skip extends Limit {
 
-		private static final int PRECEDENCE = 15;
+			public Skip(Expression listExpr, Expression countExpr) {
+				super(listExpr, countExpr);
+			}
+
+			@Override
+			Iterator<?> iterate(Context context, Object root) throws OgnlException {
+				Iterator<?> iterator = listExpr.iterate(context, root);
+				int count = getCount(context, root);
+				try {
+					for (int i = 0; i < count && iterator.hasNext(); ++i) {
+						iterator.next();
+					}
+				}
+				catch (UndeclaredThrowableException e) {
+					throw unwrap(e, this);
+				}
+				return iterator;
+			}
+
+			@Override
+			char getOperator() {
+				return '>';
+			}
 
-		public VariableReference(String variableName) {
-			assert variableName != null && !"this".equals(variableName);
-			this.variableName = variableName;
 		}
 
-		@Override
-		public boolean isLValue() {
-			return true;
+		final Expression listExpr, countExpr;
+
+		private static final int PRECEDENCE = 14;
+
+		public Limit(Expression listExpr, Expression countExpr) {
+			assert listExpr != null && countExpr != null;
+			this.listExpr = listExpr;
+			this.countExpr = countExpr;
 		}
 
 		@Override
 		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			return classLoaders;
+			return countExpr.getClassLoaders(listExpr.getClassLoaders(classLoaders));
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return listExpr.hasSideEffects() || countExpr.hasSideEffects();
+		}
+
+		@Override
+		boolean isLazy() {
+			return true;
 		}
 
 		@Override
@@ -3382,67 +4447,68 @@ public abstract class Expression {
 			if (obj == null || getClass() != obj.getClass()) {
 				return false;
 			}
-			VariableReference o = (VariableReference) obj;
-			return Objects.equals(variableName, o.variableName);
+			Limit o = (Limit) obj;
+			return Objects.equals(listExpr, o.listExpr) && Objects.equals(countExpr, o.countExpr);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 65521 + (variableName == null ? 0 : variableName.hashCode());
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (listExpr == null ? 0 : listExpr.hashCode() * 1021) + (countExpr == null ? 0 : countExpr.hashCode());
 		}
 
 		@Override
 		protected StringBuilder toString(StringBuilder sb) {
-			return sb.append('#').append(variableName);
+			return countExpr.toString(parenthesize(sb, PRECEDENCE - 1, listExpr).append(".{").append(getOperator()).append(' ')).append(" }");
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) {
-			return new ContextVariableLValue(context, variableName);
-		}
+		Iterator<?> iterate(Context context, Object root) throws OgnlException {
+			if (listExpr instanceof Sort && !listExpr.hasSideEffects() && !countExpr.hasSideEffects()) {
+				return ((Sort) listExpr).top(context, root, getCount(context, root)).iterator();
+			}
+			Iterator<?> iterator = listExpr.iterate(context, root);
+			int count = getCount(context, root);
+			return new Iterator<Object>() {
 
-		@Override
-		int getPrecedence() {
-			return PRECEDENCE;
-		}
-
-	}
-
-	public static class ThisReference extends Expression {
-
-		public static final ThisReference THIS = new ThisReference();
-
-		private static final int PRECEDENCE = 15;
-
-		/**
-		 * Not instantiable.
-		 */
-		private ThisReference() {
-		}
+				int remaining = count;
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			return classLoaders;
-		}
+				@Override
+				public boolean hasNext() {
+					return remaining > 0 && iterator.hasNext();
+				}
 
-		@Override
-		public boolean equals(Object obj) {
-			return this == obj || obj != null && getClass() == obj.getClass();
-		}
+				@Override
+				public Object next() {
+					if (remaining <= 0) {
+						throw new NoSuchElementException();
+					}
+					--remaining;
+					return iterator.next();
+				}
 
-		@Override
-		public int hashCode() {
-			return getClass().hashCode();
+			};
 		}
 
 		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			return sb.append("#this");
+		Object evaluate(Context context, Object root) throws OgnlException {
+			ArrayList<Object> list = new ArrayList<>();
+			try {
+				for (Iterator<?> iterator = iterate(context, root); iterator.hasNext();) {
+					list.add(iterator.next());
+				}
+			}
+			catch (UndeclaredThrowableException e) {
+				throw unwrap(e, this);
+			}
+			return list;
 		}
 
-		@Override
-		Object evaluate(Context context, Object root) {
-			return root;
+		final int getCount(Context context, Object root) throws OgnlException {
+			Number count = asNumber(countExpr.getValue(context, root));
+			if (count == null || compare(count, 0) < 0) {
+				throw new OgnlException(this, "count must be a non-negative number");
+			}
+			return compare(count, Integer.MAX_VALUE) > 0 ? Integer.MAX_VALUE : count.intValue();
 		}
 
 		@Override
@@ -3450,32 +4516,37 @@ public abstract class Expression {
 			return PRECEDENCE;
 		}
 
-	}
+		char getOperator() {
+			return '<';
+		}
 
-	public static class StaticMethodInvocation extends Expression {
+	}
 
-		final Class<?> clazz;
-		final String methodName;
-		final Expression[] argExprs;
+	public static class Subexpression extends Expression {
 
-		private static final int PRECEDENCE = 15;
+		final Expression objExpr, subExpr;
 
-		private final ConcurrentHashMap<List<? extends Class<?>>, Method> cache = new ConcurrentHashMap<>(0);
+		private static final int PRECEDENCE = 14;
 
-		public StaticMethodInvocation(Class<?> clazz, String methodName, Expression... argExprs) {
-			assert clazz != null && !methodName.isEmpty() && argExprs != null;
-			this.clazz = clazz;
-			this.methodName = methodName;
-			this.argExprs = argExprs;
+		public Subexpression(Expression objExpr, Expression subExpr) {
+			assert objExpr != null && subExpr != null;
+			this.objExpr = objExpr;
+			this.subExpr = subExpr;
 		}
 
 		@Override
 		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			classLoaders.add(clazz.getClassLoader());
-			for (Expression argExpr : argExprs) {
-				classLoaders = argExpr.getClassLoaders(classLoaders);
-			}
-			return classLoaders;
+			return subExpr.getClassLoaders(objExpr.getClassLoaders(classLoaders));
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return objExpr.hasSideEffects() || subExpr.hasSideEffects();
+		}
+
+		@Override
+		public boolean isLValue() {
+			return subExpr.isLValue();
 		}
 
 		@Override
@@ -3486,66 +4557,30 @@ public abstract class Expression {
 			if (obj == null || getClass() != obj.getClass()) {
 				return false;
 			}
-			StaticMethodInvocation o = (StaticMethodInvocation) obj;
-			return clazz == o.clazz && Objects.equals(methodName, o.methodName) && Arrays.equals(argExprs, o.argExprs);
+			Subexpression o = (Subexpression) obj;
+			return Objects.equals(objExpr, o.objExpr) && Objects.equals(subExpr, o.subExpr);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 16777213 + (clazz == null ? 0 : clazz.hashCode() * 65521) + (methodName == null ? 0 : methodName.hashCode() * 251) + Arrays.hashCode(argExprs);
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (objExpr == null ? 0 : objExpr.hashCode() * 1021) + (subExpr == null ? 0 : subExpr.hashCode());
 		}
 
 		@Override
 		protected StringBuilder toString(StringBuilder sb) {
-			sb.append('@').append(clazz.getName()).append('@').append(methodName).append('(');
-			Expression[] argExprs = this.argExprs;
-			if (argExprs.length > 0) {
-				parenthesize(sb, Sequence.PRECEDENCE, argExprs[0]);
-				for (int index = 1; index < argExprs.length; ++index) {
-					parenthesize(sb.append(", "), Sequence.PRECEDENCE, argExprs[index]);
-				}
-			}
-			return sb.append(')');
+			return subExpr.toString(parenthesize(sb, PRECEDENCE - 1, objExpr).append(".( ")).append(" )");
 		}
 
 		@Override
 		Object evaluate(Context context, Object root) throws OgnlException {
-			Expression[] argExprs = this.argExprs;
-			Object[] args = new Object[argExprs.length];
-			Class<?>[] argTypes = new Class<?>[argExprs.length];
-			for (int index = 0; index < argExprs.length; ++index) {
-				Object arg = args[index] = argExprs[index].getValue(context, root);
-				if (arg != null) {
-					argTypes[index] = arg.getClass();
-				}
-			}
-			Method method;
-			try {
-				method = cache.computeIfAbsent(Arrays.asList(argTypes), a -> {
-					try {
-						return ClassUtil.findMostSpecificStaticMethod(clazz, methodName, argTypes);
-					}
-					catch (NoSuchMethodException | AmbiguousMethodException e) {
-						throw new UndeclaredThrowableException(e);
-					}
-				});
-			}
-			catch (UndeclaredThrowableException e) {
-				Throwable cause = e.getCause();
-				throw cause instanceof OgnlException ? (OgnlException) cause : new OgnlException(this, cause);
-			}
-			if (method == null) {
-				throw new OgnlException(this, appendTypeNames(new StringBuilder().append(clazz).append(" has no accessible static method \"").append(methodName).append("\" callable with argument types ("), argTypes).append(')').toString());
-			}
-			try {
-				return ClassUtil.invokeMethod(method, null, args);
-			}
-			catch (InvocationTargetException e) {
-				throw new OgnlException(this, e.getCause());
-			}
-			catch (Exception e) {
-				throw new OgnlException(this, e);
-			}
+			return subExpr.evaluate(context, objExpr.getValue(context, root));
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			Object[] objects = new Object[results.length];
+			objExpr.evaluateVector(context, roots, selection, count, objects);
+			subExpr.evaluateVector(context, objects, selection, count, results);
 		}
 
 		@Override
@@ -3555,553 +4590,2124 @@ public abstract class Expression {
 
 	}
 
-	public static class StaticFieldAccess extends Expression {
+	public static abstract class Literal<V> extends Expression {
 
-		final Field field;
+		public static class Boolean extends Literal<java.lang.Boolean> {
 
-		private static final int PRECEDENCE = 15;
+			public static final Boolean TRUE = new Boolean(java.lang.Boolean.TRUE);
+			public static final Boolean FALSE = new Boolean(java.lang.Boolean.FALSE);
 
-		public StaticFieldAccess(Field field) {
-			assert field != null;
-			this.field = field;
-		}
+			/**
+			 * Not instantiable.
+			 */
+			private Boolean(java.lang.Boolean value) {
+				super(value);
+			}
 
-		@Override
-		public boolean isLValue() {
-			return true;
-		}
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value);
+			}
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			classLoaders.add(field.getDeclaringClass().getClassLoader());
-			return classLoaders;
 		}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
+		public static class Integer extends Literal<java.lang.Integer> implements Numeric {
+
+			public Integer(java.lang.Integer value) {
+				super(value);
+				assert value != null;
 			}
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value);
 			}
-			StaticFieldAccess o = (StaticFieldAccess) obj;
-			return field == null ? o.field == null : field.equals(o.field);
-		}
 
-		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 65521 + (field == null ? 0 : field.hashCode());
 		}
 
-		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			Field field = this.field;
-			return sb.append('@').append(field.getDeclaringClass().getName()).append('@').append(field.getName());
-		}
+		public static class Long extends Literal<java.lang.Long> implements Numeric {
+
+			public Long(java.lang.Long value) {
+				super(value);
+				assert value != null;
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value).append('L');
+			}
 
-		@Override
-		Object evaluate(Context context, Object root) {
-			return new FieldLValue(field, null);
 		}
 
-		@Override
-		int getPrecedence() {
-			return PRECEDENCE;
+		public static class Float extends Literal<java.lang.Float> implements Numeric {
+
+			public Float(java.lang.Float value) {
+				super(value);
+				assert value != null;
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value).append('f');
+			}
+
 		}
 
-	}
+		public static class Double extends Literal<java.lang.Double> implements Numeric {
 
-	public static class ConstructorInvocation extends Expression {
+			public Double(java.lang.Double value) {
+				super(value);
+				assert value != null;
+			}
 
-		final Class<?> clazz;
-		final Expression[] argExprs;
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value).append('d');
+			}
 
-		private static final int PRECEDENCE = 15;
+		}
 
-		private final ConcurrentHashMap<List<? extends Class<?>>, Constructor<?>> cache = new ConcurrentHashMap<>(0);
+		public static class BigInteger extends Literal<java.math.BigInteger> implements Numeric {
+
+			public BigInteger(java.math.BigInteger value) {
+				super(value);
+				assert value != null;
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value).append('H');
+			}
 
-		public ConstructorInvocation(Class<?> clazz, Expression... argExprs) {
-			assert clazz != null && argExprs != null;
-			this.clazz = clazz;
-			this.argExprs = argExprs;
 		}
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			classLoaders.add(clazz.getClassLoader());
-			for (Expression argExpr : argExprs) {
-				classLoaders = argExpr.getClassLoaders(classLoaders);
+		public static class BigDecimal extends Literal<java.math.BigDecimal> implements Numeric {
+
+			public BigDecimal(java.math.BigDecimal value) {
+				super(value);
+				assert value != null;
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append(value).append('B');
+			}
+
+		}
+
+		public static class Character extends Literal<java.lang.Character> {
+
+			public Character(java.lang.Character value) {
+				super(value);
+				assert value != null;
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return StringUtil.escapeJavaChar(sb.append('\''), value).append('\'');
+			}
+
+		}
+
+		public static class String extends Literal<java.lang.String> {
+
+			public String(java.lang.String value) {
+				super(value);
+				assert value != null;
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return StringUtil.escapeJavaString(sb.append('"'), value).append('"');
+			}
+
+		}
+
+		public static class Null extends Literal<Object> {
+
+			public static final Null NULL = new Null();
+
+			/**
+			 * Not instantiable.
+			 */
+			private Null() {
+				super(null);
+			}
+
+			@Override
+			protected StringBuilder toString(StringBuilder sb) {
+				return sb.append((Object) null);
+			}
+
+		}
+
+		interface Numeric {
+		}
+
+		final V value;
+
+		private static final int PRECEDENCE = 15;
+
+		Literal(V value) {
+			this.value = value;
+		}
+
+		/**
+		 * Returns a literal of the given value, which must be null or of a type that a literal can have.
+		 */
+		static Literal<?> of(Object value) {
+			if (value == null) {
+				return Null.NULL;
+			}
+			if (value instanceof java.lang.Boolean) {
+				return (java.lang.Boolean) value ? Boolean.TRUE : Boolean.FALSE;
+			}
+			if (value instanceof java.lang.Integer) {
+				return new Integer((java.lang.Integer) value);
+			}
+			if (value instanceof java.lang.Long) {
+				return new Long((java.lang.Long) value);
+			}
+			if (value instanceof java.lang.Float) {
+				return new Float((java.lang.Float) value);
+			}
+			if (value instanceof java.lang.Double) {
+				return new Double((java.lang.Double) value);
+			}
+			if (value instanceof java.math.BigInteger) {
+				return new BigInteger((java.math.BigInteger) value);
+			}
+			if (value instanceof java.math.BigDecimal) {
+				return new BigDecimal((java.math.BigDecimal) value);
+			}
+			if (value instanceof java.lang.Character) {
+				return new Character((java.lang.Character) value);
+			}
+			if (value instanceof java.lang.String) {
+				return new String((java.lang.String) value);
+			}
+			throw new IllegalArgumentException(value.getClass().getName());
+		}
+
+		public final V getValue() {
+			return value;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			Literal<?> o = (Literal<?>) obj;
+			return Objects.equals(value, o.value);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 65521 + (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) {
+			return value;
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) {
+			V value = this.value;
+			for (int i = 0; i < count; ++i) {
+				results[selection[i]] = value;
+			}
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class ArrayAllocation extends Expression {
+
+		final Class<?> componentType;
+		final Expression[] dimExprs;
+
+		private static final int PRECEDENCE = 15;
+
+		public ArrayAllocation(Class<?> componentType, Expression... dimExprs) {
+			assert componentType != null && dimExprs.length > 0;
+			this.componentType = componentType;
+			this.dimExprs = dimExprs;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			classLoaders.add(componentType.getClassLoader());
+			for (Expression dimExpr : dimExprs) {
+				classLoaders = dimExpr.getClassLoaders(classLoaders);
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return hasSideEffects(dimExprs);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			ArrayAllocation o = (ArrayAllocation) obj;
+			return componentType == o.componentType && Arrays.equals(dimExprs, o.dimExprs);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (componentType == null ? 0 : componentType.hashCode() * 1021) + Arrays.hashCode(dimExprs);
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			int dimensionality = 0;
+			Class<?> componentType = this.componentType;
+			while (componentType.isArray()) {
+				++dimensionality;
+				componentType = componentType.getComponentType();
+			}
+			appendClassName(sb.append("new "), componentType);
+			for (Expression dimExpr : dimExprs) {
+				dimExpr.toString(sb.append('[')).append(']');
+			}
+			while (dimensionality > 0) {
+				sb.append("[]");
+				--dimensionality;
+			}
+			return sb;
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			Expression[] dimExprs = this.dimExprs;
+			int[] dimensions = new int[dimExprs.length];
+			for (int index = 0; index < dimExprs.length; ++index) {
+				dimensions[index] = asIntegerIndex(asNumber(dimExprs[index].getValue(context, root)));
+			}
+			return Array.newInstance(componentType, dimensions);
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class ArrayInitialization extends Expression {
+
+		final Class<?> arrayType;
+
+		/**
+		 * The element expressions, or null if they are all literals that can be recreated from {@link #packed}.
+		 */
+		private final Object[] elements;
+
+		/**
+		 * The values of the elements of a one-dimensional array all of whose elements are literals, which each
+		 * evaluation copies, or null if the elements must be evaluated.
+		 */
+		private final Object packed;
+
+		private static final int PRECEDENCE = 15;
+
+		public ArrayInitialization(Class<?> arrayType, Object[] elements) {
+			assert arrayType.isArray() && elements != null;
+			this.arrayType = arrayType;
+			Object packed = pack(arrayType, elements);
+			this.elements = packed != null && isUnpackable(packed, elements) ? null : elements;
+			this.packed = packed;
+		}
+
+		private static Object pack(Class<?> arrayType, Object[] elements) {
+			Class<?> componentType = arrayType.getComponentType();
+			if (componentType.isArray()) {
+				return null;
+			}
+			for (Object element : elements) {
+				if (!(element instanceof Literal)) {
+					return null;
+				}
+			}
+			Object array = Array.newInstance(componentType, elements.length);
+			ArrayAccessor accessor = ArrayAccessor.forClass.get(arrayType);
+			try {
+				for (int index = 0; index < elements.length; ++index) {
+					accessor.set(array, index, ((Literal<?>) elements[index]).value);
+				}
+			}
+			catch (IllegalArgumentException e) {
+				// leave the conversion error to evaluation
+				return null;
+			}
+			return array;
+		}
+
+		private static boolean isUnpackable(Object packed, Object[] elements) {
+			ArrayAccessor accessor = ArrayAccessor.forClass.get(packed.getClass());
+			for (int index = 0; index < elements.length; ++index) {
+				if (!elements[index].equals(Literal.of(accessor.get(packed, index)))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private Object[] getElements() {
+			Object[] elements = this.elements;
+			if (elements == null) {
+				ArrayAccessor accessor = ArrayAccessor.forClass.get(arrayType);
+				elements = new Expression[accessor.getLength(packed)];
+				for (int index = 0; index < elements.length; ++index) {
+					elements[index] = Literal.of(accessor.get(packed, index));
+				}
+			}
+			return elements;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			classLoaders.add(arrayType.getClassLoader());
+			return elements == null ? classLoaders : getClassLoaders(classLoaders, arrayType, elements);
+		}
+
+		private static Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders, Class<?> arrayType, Object[] elements) {
+			Class<?> componentType = arrayType.getComponentType();
+			if (componentType.isArray()) {
+				for (Object[] array : (Object[][]) elements) {
+					classLoaders = getClassLoaders(classLoaders, componentType, array);
+				}
+			}
+			else {
+				for (Expression expression : (Expression[]) elements) {
+					classLoaders = expression.getClassLoaders(classLoaders);
+				}
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return elements != null && hasSideEffects(arrayType, elements);
+		}
+
+		private static boolean hasSideEffects(Class<?> arrayType, Object[] elements) {
+			Class<?> componentType = arrayType.getComponentType();
+			if (componentType.isArray()) {
+				for (Object[] array : (Object[][]) elements) {
+					if (hasSideEffects(componentType, array)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			return hasSideEffects((Expression[]) elements);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			ArrayInitialization o = (ArrayInitialization) obj;
+			if (arrayType != o.arrayType) {
+				return false;
+			}
+			if (elements == null && o.elements == null) {
+				return Objects.deepEquals(packed, o.packed);
+			}
+			return Arrays.deepEquals(getElements(), o.getElements());
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (arrayType == null ? 0 : arrayType.hashCode() * 1021) + Arrays.deepHashCode(getElements());
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			return toString(appendClassName(sb.append("new "), arrayType).append(' '), arrayType, getElements());
+		}
+
+		private static StringBuilder toString(StringBuilder sb, Class<?> arrayType, Object[] elements) {
+			Class<?> componentType = arrayType.getComponentType();
+			if (componentType.isArray()) {
+				Object[][] arrays = (Object[][]) elements;
+				if (arrays.length == 0) {
+					sb.append("{ }");
+				}
+				else {
+					toString(sb.append("{ "), componentType, arrays[0]);
+					for (int index = 1; index < arrays.length; ++index) {
+						toString(sb.append(", "), componentType, arrays[index]);
+					}
+					sb.append(" }");
+				}
+			}
+			else {
+				Expression[] expressions = (Expression[]) elements;
+				if (expressions.length == 0) {
+					sb.append("{ }");
+				}
+				else {
+					parenthesize(sb.append("{ "), Sequence.PRECEDENCE, expressions[0]);
+					for (int index = 1; index < expressions.length; ++index) {
+						parenthesize(sb.append(", "), Sequence.PRECEDENCE, expressions[index]);
+					}
+					sb.append(" }");
+				}
+			}
+			return sb;
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			Object packed = this.packed;
+			if (packed != null) {
+				int length = ArrayAccessor.forClass.get(arrayType).getLength(packed);
+				Object array = Array.newInstance(arrayType.getComponentType(), length);
+				System.arraycopy(packed, 0, array, 0, length);
+				return array;
+			}
+			return evaluate(context, root, arrayType, elements);
+		}
+
+		private static Object evaluate(Context context, Object root, Class<?> arrayType, Object[] elements) throws OgnlException {
+			Class<?> componentType = arrayType.getComponentType();
+			Object array = Array.newInstance(componentType, elements.length);
+			ArrayAccessor accessor = ArrayAccessor.forClass.get(arrayType);
+			if (componentType.isArray()) {
+				Object[][] arrays = (Object[][]) elements;
+				for (int index = 0; index < arrays.length; ++index) {
+					accessor.set(array, index, evaluate(context, root, componentType, arrays[index]));
+				}
+			}
+			else {
+				Expression[] expressions = (Expression[]) elements;
+				for (int index = 0; index < expressions.length; ++index) {
+					accessor.set(array, index, expressions[index].getValue(context, root));
+				}
+			}
+			return array;
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class ListConstruction extends Expression {
+
+		/**
+		 * The element expressions, or null if they are all literals, whose values are then held in {@link #values}.
+		 */
+		private final Expression[] elemExprs;
+		private final Object[] values;
+
+		private static final int PRECEDENCE = 15;
+
+		public ListConstruction(Expression... elemExprs) {
+			assert elemExprs != null;
+			Object[] values = new Object[elemExprs.length];
+			for (int index = 0; index < elemExprs.length; ++index) {
+				if (!(elemExprs[index] instanceof Literal)) {
+					values = null;
+					break;
+				}
+				values[index] = ((Literal<?>) elemExprs[index]).value;
+			}
+			this.elemExprs = values == null ? elemExprs : null;
+			this.values = values;
+		}
+
+		/**
+		 * Returns the values of the elements if they are all literals, or else null.
+		 */
+		Object[] getConstantValues() {
+			return values;
+		}
+
+		private Expression[] getElemExprs() {
+			Expression[] elemExprs = this.elemExprs;
+			if (elemExprs == null) {
+				elemExprs = new Expression[values.length];
+				for (int index = 0; index < elemExprs.length; ++index) {
+					elemExprs[index] = Literal.of(values[index]);
+				}
+			}
+			return elemExprs;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			if (elemExprs != null) {
+				for (Expression elemExpr : elemExprs) {
+					classLoaders = elemExpr.getClassLoaders(classLoaders);
+				}
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return elemExprs != null && hasSideEffects(elemExprs);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			ListConstruction o = (ListConstruction) obj;
+			if (elemExprs == null && o.elemExprs == null) {
+				return Arrays.equals(values, o.values);
+			}
+			return Arrays.equals(getElemExprs(), o.getElemExprs());
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 65521 + Arrays.hashCode(getElemExprs());
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			Expression[] elemExprs = getElemExprs();
+			if (elemExprs.length == 0) {
+				return sb.append("{ }");
+			}
+			parenthesize(sb.append("{ "), Sequence.PRECEDENCE, elemExprs[0]);
+			for (int index = 1; index < elemExprs.length; ++index) {
+				parenthesize(sb.append(", "), Sequence.PRECEDENCE, elemExprs[index]);
+			}
+			return sb.append(" }");
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			if (values != null) {
+				return new ArrayList<>(Arrays.asList(values));
+			}
+			Expression[] elemExprs = this.elemExprs;
+			ArrayList<Object> list = new ArrayList<>(elemExprs.length);
+			for (Expression elemExpr : elemExprs) {
+				list.add(elemExpr.getValue(context, root));
+			}
+			return list;
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class MapConstruction extends Expression {
+
+		final Class<?> mapClass;
+		final Expression[] elemExprs;
+
+		private static final int PRECEDENCE = 15;
+
+		public MapConstruction(Expression... elemExprs) {
+			this(null, elemExprs);
+		}
+
+		public MapConstruction(Class<?> mapClass, Expression... elemExprs) {
+			assert (elemExprs.length & 1) == 0;
+			this.mapClass = mapClass;
+			this.elemExprs = elemExprs;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			if (mapClass != null) {
+				classLoaders.add(mapClass.getClassLoader());
+			}
+			for (Expression elemExpr : elemExprs) {
+				classLoaders = elemExpr.getClassLoaders(classLoaders);
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return hasSideEffects(elemExprs);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			MapConstruction o = (MapConstruction) obj;
+			return mapClass == o.mapClass && Arrays.equals(elemExprs, o.elemExprs);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (mapClass == null ? 0 : mapClass.hashCode() * 1021) + Arrays.hashCode(elemExprs);
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			Expression[] elemExprs = this.elemExprs;
+			sb.append('#');
+			if (mapClass != null) {
+				sb.append('@').append(mapClass.getName()).append('@');
+			}
+			if (elemExprs.length == 0) {
+				return sb.append("{ }");
+			}
+			parenthesize(parenthesize(sb.append("{ "), Sequence.PRECEDENCE, elemExprs[0]).append(" : "), Sequence.PRECEDENCE, elemExprs[1]);
+			for (int index = 2; index < elemExprs.length; ++index) {
+				parenthesize(parenthesize(sb.append(", "), Sequence.PRECEDENCE, elemExprs[index]).append(" : "), Sequence.PRECEDENCE, elemExprs[++index]);
+			}
+			return sb.append(" }");
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		Object evaluate(Context context, Object root) throws OgnlException {
+			Expression[] elemExprs = this.elemExprs;
+			Map<Object, Object> map;
+			if (mapClass == null) {
+				map = new LinkedHashMap<>((elemExprs.length / 2 + 2) / 3 * 4, 0.75f);
+			}
+			else {
+				try {
+					map = (Map<Object, Object>) mapClass.newInstance();
+				}
+				catch (Exception e) {
+					throw new OgnlException(this, e);
+				}
+			}
+			for (int index = 0; index < elemExprs.length; ++index) {
+				map.put(elemExprs[index].getValue(context, root), elemExprs[++index].getValue(context, root));
+			}
+			return map;
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class VariableReference extends Expression {
+
+		final String variableName;
+
+		private static final int PRECEDENCE = 15;
+
+		public VariableReference(String variableName) {
+			assert variableName != null && !"this".equals(variableName);
+			this.variableName = variableName;
+		}
+
+		@Override
+		public boolean isLValue() {
+			return true;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			VariableReference o = (VariableReference) obj;
+			return Objects.equals(variableName, o.variableName);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 65521 + (variableName == null ? 0 : variableName.hashCode());
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			return sb.append('#').append(variableName);
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) {
+			return new ContextVariableLValue(context, variableName);
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) {
+			Object value = context.variables == null ? null : context.variables.get(variableName);
+			for (int i = 0; i < count; ++i) {
+				results[selection[i]] = value;
+			}
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class ThisReference extends Expression {
+
+		public static final ThisReference THIS = new ThisReference();
+
+		private static final int PRECEDENCE = 15;
+
+		/**
+		 * Not instantiable.
+		 */
+		private ThisReference() {
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj || obj != null && getClass() == obj.getClass();
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode();
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			return sb.append("#this");
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) {
+			return root;
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) {
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				results[row] = roots[row];
+			}
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class StaticMethodInvocation extends Expression {
+
+		final Class<?> clazz;
+		final String methodName;
+		final Expression[] argExprs;
+
+		private static final int PRECEDENCE = 15;
+
+		private final ConcurrentHashMap<List<? extends Class<?>>, Method> cache = new ConcurrentHashMap<>(0);
+
+		public StaticMethodInvocation(Class<?> clazz, String methodName, Expression... argExprs) {
+			assert clazz != null && !methodName.isEmpty() && argExprs != null;
+			this.clazz = clazz;
+			this.methodName = methodName;
+			this.argExprs = argExprs;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			classLoaders.add(clazz.getClassLoader());
+			for (Expression argExpr : argExprs) {
+				classLoaders = argExpr.getClassLoaders(classLoaders);
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return true;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			StaticMethodInvocation o = (StaticMethodInvocation) obj;
+			return clazz == o.clazz && Objects.equals(methodName, o.methodName) && Arrays.equals(argExprs, o.argExprs);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 16777213 + (clazz == null ? 0 : clazz.hashCode() * 65521) + (methodName == null ? 0 : methodName.hashCode() * 251) + Arrays.hashCode(argExprs);
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			sb.append('@').append(clazz.getName()).append('@').append(methodName).append('(');
+			Expression[] argExprs = this.argExprs;
+			if (argExprs.length > 0) {
+				parenthesize(sb, Sequence.PRECEDENCE, argExprs[0]);
+				for (int index = 1; index < argExprs.length; ++index) {
+					parenthesize(sb.append(", "), Sequence.PRECEDENCE, argExprs[index]);
+				}
+			}
+			return sb.append(')');
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			Expression[] argExprs = this.argExprs;
+			Object[] args = new Object[argExprs.length];
+			Class<?>[] argTypes = new Class<?>[argExprs.length];
+			for (int index = 0; index < argExprs.length; ++index) {
+				Object arg = args[index] = argExprs[index].getValue(context, root);
+				if (arg != null) {
+					argTypes[index] = arg.getClass();
+				}
+			}
+			Method method;
+			try {
+				method = cache.computeIfAbsent(Arrays.asList(argTypes), a -> {
+					try {
+						return ClassUtil.findMostSpecificStaticMethod(clazz, methodName, argTypes);
+					}
+					catch (NoSuchMethodException | AmbiguousMethodException e) {
+						throw new UndeclaredThrowableException(e);
+					}
+				});
+			}
+			catch (UndeclaredThrowableException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof OgnlException ? (OgnlException) cause : new OgnlException(this, cause);
+			}
+			if (method == null) {
+				throw new OgnlException(this, appendTypeNames(new StringBuilder().append(clazz).append(" has no accessible static method \"").append(methodName).append("\" callable with argument types ("), argTypes).append(')').toString());
+			}
+			try {
+				return ClassUtil.invokeMethod(method, null, args);
+			}
+			catch (InvocationTargetException e) {
+				throw new OgnlException(this, e.getCause());
+			}
+			catch (Exception e) {
+				throw new OgnlException(this, e);
+			}
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class StaticFieldAccess extends Expression {
+
+		final Field field;
+
+		private static final int PRECEDENCE = 15;
+
+		private final FieldLValue.Factory lValueFactory;
+
+		public StaticFieldAccess(Field field) {
+			assert field != null;
+			this.field = field;
+			lValueFactory = new FieldLValue.Factory(field);
+		}
+
+		@Override
+		public boolean isLValue() {
+			return true;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			classLoaders.add(field.getDeclaringClass().getClassLoader());
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			StaticFieldAccess o = (StaticFieldAccess) obj;
+			return field == null ? o.field == null : field.equals(o.field);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 65521 + (field == null ? 0 : field.hashCode());
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			Field field = this.field;
+			return sb.append('@').append(field.getDeclaringClass().getName()).append('@').append(field.getName());
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) {
+			return lValueFactory.createLValue(null);
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	public static class ConstructorInvocation extends Expression {
+
+		final Class<?> clazz;
+		final Expression[] argExprs;
+
+		private static final int PRECEDENCE = 15;
+
+		private final ConcurrentHashMap<List<? extends Class<?>>, Constructor<?>> cache = new ConcurrentHashMap<>(0);
+
+		public ConstructorInvocation(Class<?> clazz, Expression... argExprs) {
+			assert clazz != null && argExprs != null;
+			this.clazz = clazz;
+			this.argExprs = argExprs;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			classLoaders.add(clazz.getClassLoader());
+			for (Expression argExpr : argExprs) {
+				classLoaders = argExpr.getClassLoaders(classLoaders);
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return true;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			ConstructorInvocation o = (ConstructorInvocation) obj;
+			return clazz == o.clazz && Arrays.equals(argExprs, o.argExprs);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (clazz == null ? 0 : clazz.hashCode() * 1021) + Arrays.hashCode(argExprs);
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			sb.append("new ").append(clazz.getName()).append('(');
+			Expression[] argExprs = this.argExprs;
+			if (argExprs.length > 0) {
+				parenthesize(sb, Sequence.PRECEDENCE, argExprs[0]);
+				for (int index = 1; index < argExprs.length; ++index) {
+					parenthesize(sb.append(", "), Sequence.PRECEDENCE, argExprs[index]);
+				}
+			}
+			return sb.append(')');
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			Expression[] argExprs = this.argExprs;
+			Object[] args = new Object[argExprs.length];
+			Class<?>[] argTypes = new Class<?>[argExprs.length];
+			for (int index = 0; index < argExprs.length; ++index) {
+				Object arg = args[index] = argExprs[index].getValue(context, root);
+				if (arg != null) {
+					argTypes[index] = arg.getClass();
+				}
+			}
+			Constructor<?> constructor;
+			try {
+				constructor = cache.computeIfAbsent(Arrays.asList(argTypes), a -> {
+					try {
+						return ClassUtil.findMostSpecificConstructor(clazz, argTypes);
+					}
+					catch (NoSuchMethodException | AmbiguousMethodException e) {
+						throw new UndeclaredThrowableException(e);
+					}
+				});
+			}
+			catch (UndeclaredThrowableException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof OgnlException ? (OgnlException) cause : new OgnlException(this, cause);
+			}
+			if (constructor == null) {
+				throw new OgnlException(this, appendTypeNames(new StringBuilder().append(clazz).append(" has no accessible constructor callable with argument types ("), argTypes).append(')').toString());
+			}
+			try {
+				return ClassUtil.invokeConstructor(constructor, args);
+			}
+			catch (InvocationTargetException e) {
+				throw new OgnlException(this, e.getCause());
+			}
+			catch (Exception e) {
+				throw new OgnlException(this, e);
+			}
+		}
+
+		@Override
+		int getPrecedence() {
+			return PRECEDENCE;
+		}
+
+	}
+
+	static abstract class Unary extends Expression {
+
+		final Expression expression;
+
+		Unary(Expression expression) {
+			assert expression != null;
+			this.expression = expression;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return expression.getClassLoaders(classLoaders);
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return expression.hasSideEffects();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			Unary o = (Unary) obj;
+			return expression == null ? o.expression == null : expression.equals(o.expression);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 65521 + (expression == null ? 0 : expression.hashCode());
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			sb.append(getOperator());
+			Expression expression = this.expression;
+			return expression instanceof InstanceOf ? expression.toString(sb.append('(')).append(')') : parenthesize(sb, getPrecedence(), expression);
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			return apply(expression.getValue(context, root));
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			expression.evaluateVector(context, roots, selection, count, results);
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				results[row] = apply(results[row]);
+			}
+		}
+
+		abstract Object apply(Object operand) throws OgnlException;
+
+		abstract char getOperator();
+
+	}
+
+	static abstract class Binary extends Expression {
+
+		final Expression leftExpr, rightExpr;
+
+		Binary(Expression leftExpr, Expression rightExpr) {
+			assert leftExpr != null && rightExpr != null;
+			this.leftExpr = leftExpr;
+			this.rightExpr = rightExpr;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			return rightExpr.getClassLoaders(leftExpr.getClassLoaders(classLoaders));
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return leftExpr.hasSideEffects() || rightExpr.hasSideEffects();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			Binary o = (Binary) obj;
+			return (leftExpr == null ? o.leftExpr == null : leftExpr.equals(o.leftExpr)) && (rightExpr == null ? o.rightExpr == null : rightExpr.equals(o.rightExpr));
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 1048573 + (leftExpr == null ? 0 : leftExpr.hashCode() * 1021) + (rightExpr == null ? 0 : rightExpr.hashCode());
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			int precedence = getPrecedence();
+			return parenthesize(parenthesize(sb, precedence, leftExpr).append(getOperator()), precedence, rightExpr);
+		}
+
+		@Override
+		Object evaluate(Context context, Object root) throws OgnlException {
+			return apply(leftExpr.getValue(context, root), rightExpr.getValue(context, root));
+		}
+
+		@Override
+		void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+			leftExpr.evaluateVector(context, roots, selection, count, results);
+			Object[] rightValues = new Object[results.length];
+			rightExpr.evaluateVector(context, roots, selection, count, rightValues);
+			for (int i = 0; i < count; ++i) {
+				int row = selection[i];
+				results[row] = apply(results[row], rightValues[row]);
+			}
+		}
+
+		abstract Object apply(Object leftValue, Object rightValue) throws OgnlException;
+
+		abstract String getOperator();
+
+	}
+
+	static abstract class Nary extends Expression {
+
+		final Expression[] expressions;
+
+		Nary(Expression... expressions) {
+			assert expressions.length > 1;
+			this.expressions = expressions;
+		}
+
+		@Override
+		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
+			for (Expression expression : expressions) {
+				classLoaders = expression.getClassLoaders(classLoaders);
+			}
+			return classLoaders;
+		}
+
+		@Override
+		boolean hasSideEffects() {
+			return hasSideEffects(expressions);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj || obj != null && getClass() == obj.getClass() && Arrays.equals(expressions, ((Nary) obj).expressions);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return getClass().hashCode() * 65521 + Arrays.hashCode(expressions);
+		}
+
+		@Override
+		protected StringBuilder toString(StringBuilder sb) {
+			int precedence = getPrecedence();
+			Expression[] expressions = this.expressions;
+			parenthesize(sb, precedence, expressions[0]);
+			String operator = getOperator();
+			for (int index = 1; index < expressions.length; ++index) {
+				parenthesize(sb.append(operator), precedence, expressions[index]);
+			}
+			return sb;
+		}
+
+		abstract String getOperator();
+
+	}
+
+	/**
+	 * Evaluates a sub-expression against the elements of an array or a random-access list on the common fork/join pool,
+	 * storing each result at the position of its element, so that the results are in the same order as the elements.
+	 * Each task evaluates against its own fork of the context, so no variables are shared between threads.
+	 */
+	private static class ParallelEvaluation extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final Context context;
+		final Expression expression;
+		final Object source;
+		final ArrayAccessor accessor;
+		final Object[] results;
+		final AtomicReference<Pair<Integer, Throwable>> failure;
+		final int start, end, grain;
+
+		ParallelEvaluation(Context context, Expression expression, Object source, ArrayAccessor accessor, Object[] results, AtomicReference<Pair<Integer, Throwable>> failure, int start, int end, int grain) {
+			this.context = context;
+			this.expression = expression;
+			this.source = source;
+			this.accessor = accessor;
+			this.results = results;
+			this.failure = failure;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > grain) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ParallelEvaluation(context, expression, source, accessor, results, failure, start, middle, grain), new ParallelEvaluation(context, expression, source, accessor, results, failure, middle, end, grain));
+				return;
+			}
+			Context context = this.context.fork();
+			Expression expression = this.expression;
+			Object[] results = this.results;
+			int index = start;
+			try {
+				// elements after one already known to fail need not be evaluated
+				for (Pair<Integer, Throwable> failed; index < end && ((failed = failure.get()) == null || failed.first > index); ++index) {
+					results[index] = expression.getValue(context, accessor.get(source, index));
+				}
+			}
+			catch (OgnlException | RuntimeException | Error e) {
+				// keep the failure of the first element, which is the one that sequential evaluation would throw
+				Pair<Integer, Throwable> failed = new Pair<>(index, e);
+				for (Pair<Integer, Throwable> current; (current = failure.get()) == null || current.first > index;) {
+					if (failure.compareAndSet(current, failed)) {
+						break;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns whether the given sub-expression may be evaluated in parallel over the given source in the given
+		 * context, which is the case only if the source is an array or a random-access list of at least
+		 * {@link Context#parallelThreshold} elements and the sub-expression has no side effects. The elements of a list
+		 * are copied into an array on the calling thread before any are evaluated, so a list need not be safe to read
+		 * from many threads at once.
+		 */
+		static boolean isApplicable(Context context, Expression expression, Object source, int size) {
+			int threshold = context.parallelThreshold;
+			return threshold > 0 && size >= threshold && (source.getClass().isArray() || source instanceof List<?> && source instanceof RandomAccess) && !expression.hasSideEffects();
+		}
+
+		static Object[] evaluate(Context context, Expression expression, Object source, int size) throws OgnlException {
+			Object[] results = new Object[size];
+			AtomicReference<Pair<Integer, Throwable>> failure = new AtomicReference<>();
+			int grain = Math.max(size / (ForkJoinPool.getCommonPoolParallelism() * 4), 1);
+			Object array = source instanceof List<?> ? ((List<?>) source).toArray() : source;
+			ForkJoinPool.commonPool().invoke(new ParallelEvaluation(context, expression, array, ArrayAccessor.forClass.get(array.getClass()), results, failure, 0, size, grain));
+			Pair<Integer, Throwable> failed = failure.get();
+			Throwable t = failed == null ? null : failed.second;
+			if (t instanceof OgnlException) {
+				throw (OgnlException) t;
+			}
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			}
+			if (t instanceof Error) {
+				throw (Error) t;
+			}
+			return results;
+		}
+
+	}
+
+	private static abstract class LValue {
+
+		LValue() {
+		}
+
+		abstract Object get() throws Throwable;
+
+		abstract void set(Object value) throws Throwable;
+
+	}
+
+	private static abstract class LValueFactory {
+
+		LValueFactory() {
+		}
+
+		abstract LValue createLValue(Object object) throws OgnlException;
+
+	}
+
+	private static abstract class IndexedLValueFactory {
+
+		IndexedLValueFactory() {
+		}
+
+		abstract LValue createLValue(Object object, Object index) throws OgnlException;
+
+	}
+
+	private static class PropertyLValue extends LValue {
+
+		private static class Factory extends LValueFactory {
+
+			final Method readMethod, writeMethod;
+			final Converters.Target writeTarget;
+
+			Factory(PropertyDescriptor propertyDescriptor) {
+				this(propertyDescriptor.getReadMethod(), propertyDescriptor.getWriteMethod());
+			}
+
+			Factory(Method readMethod, Method writeMethod) {
+				this.readMethod = readMethod;
+				this.writeMethod = writeMethod;
+				writeTarget = writeMethod == null ? null : new Converters.Target(writeMethod.getParameterTypes()[0]);
+			}
+
+			@Override
+			LValue createLValue(Object object) {
+				return new PropertyLValue(this, object);
+			}
+
+		}
+
+		final Method readMethod, writeMethod;
+		final Converters.Target writeTarget;
+		final Object object;
+
+		PropertyLValue(Factory factory, Object object) {
+			readMethod = factory.readMethod;
+			writeMethod = factory.writeMethod;
+			writeTarget = factory.writeTarget;
+			this.object = object;
+		}
+
+		@Override
+		Object get() throws Throwable {
+			if (readMethod == null) {
+				throw new UnsupportedOperationException("property is not readable");
+			}
+			try {
+				return readMethod.invoke(object, (Object[]) null);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		@Override
+		void set(Object value) throws Throwable {
+			if (writeMethod == null) {
+				throw new UnsupportedOperationException("property is not writable");
+			}
+			try {
+				writeMethod.invoke(object, writeTarget.convert(value));
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+	}
+
+	private static class FieldLValue extends LValue {
+
+		private static class Factory extends LValueFactory {
+
+			final Field field;
+			final Converters.Target target;
+
+			Factory(Field field) {
+				this.field = field;
+				target = new Converters.Target(field.getType());
+			}
+
+			@Override
+			LValue createLValue(Object object) {
+				return new FieldLValue(this, object);
+			}
+
+		}
+
+		final Field field;
+		final Converters.Target target;
+		final Object object;
+
+		FieldLValue(Factory factory, Object object) {
+			field = factory.field;
+			target = factory.target;
+			this.object = object;
+		}
+
+		@Override
+		Object get() throws IllegalArgumentException, IllegalAccessException {
+			return field.get(object);
+		}
+
+		@Override
+		void set(Object value) throws Exception {
+			field.set(object, target.convert(value));
+		}
+
+	}
+
+	private static class AccessorLValue extends LValue {
+
+		private static class Factory extends LValueFactory {
+
+			final PropertyAccessor.Property property;
+
+			Factory(PropertyAccessor.Property property) {
+				this.property = property;
+			}
+
+			@Override
+			LValue createLValue(Object object) {
+				return new AccessorLValue(property, object);
+			}
+
+		}
+
+		final PropertyAccessor.Property property;
+		final Object object;
+
+		AccessorLValue(PropertyAccessor.Property property, Object object) {
+			this.property = property;
+			this.object = object;
+		}
+
+		@Override
+		Object get() throws Exception {
+			return property.get(object);
+		}
+
+		@Override
+		void set(Object value) throws Exception {
+			property.set(object, value);
+		}
+
+	}
+
+	private static class ArrayLengthLValue extends LValue {
+
+		private static class Factory extends LValueFactory {
+
+			static final Factory instance = new Factory();
+
+			/**
+			 * Not instantiable.
+			 */
+			private Factory() {
+			}
+
+			@Override
+			LValue createLValue(Object object) {
+				return new ArrayLengthLValue(object);
+			}
+
+		}
+
+		final Object array;
+
+		ArrayLengthLValue(Object array) {
+			this.array = array;
+		}
+
+		@Override
+		Object get() {
+			return ArrayAccessor.forClass.get(array.getClass()).getLength(array);
+		}
+
+		@Override
+		void set(Object value) {
+			throw new UnsupportedOperationException("array length is read-only");
+		}
+
+	}
+
+	private static class IndexedPropertyLValue extends LValue {
+
+		private static class Factory extends IndexedLValueFactory {
+
+			final Method indexedReadMethod, indexedWriteMethod;
+			final Converters.Target writeTarget;
+
+			Factory(IndexedPropertyDescriptor indexedPropertyDescriptor) {
+				this(indexedPropertyDescriptor.getIndexedReadMethod(), indexedPropertyDescriptor.getIndexedWriteMethod());
 			}
-			return classLoaders;
-		}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
+			Factory(Method indexedReadMethod, Method indexedWriteMethod) {
+				this.indexedReadMethod = indexedReadMethod;
+				this.indexedWriteMethod = indexedWriteMethod;
+				writeTarget = indexedWriteMethod == null ? null : new Converters.Target(indexedWriteMethod.getParameterTypes()[1]);
 			}
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
+
+			@Override
+			LValue createLValue(Object object, Object index) {
+				return new IndexedPropertyLValue(this, object, asIntegerIndex(asNumber(index)));
 			}
-			ConstructorInvocation o = (ConstructorInvocation) obj;
-			return clazz == o.clazz && Arrays.equals(argExprs, o.argExprs);
-		}
 
-		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 1048573 + (clazz == null ? 0 : clazz.hashCode() * 1021) + Arrays.hashCode(argExprs);
 		}
 
-		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			sb.append("new ").append(clazz.getName()).append('(');
-			Expression[] argExprs = this.argExprs;
-			if (argExprs.length > 0) {
-				parenthesize(sb, Sequence.PRECEDENCE, argExprs[0]);
-				for (int index = 1; index < argExprs.length; ++index) {
-					parenthesize(sb.append(", "), Sequence.PRECEDENCE, argExprs[index]);
-				}
-			}
-			return sb.append(')');
+		final Method indexedReadMethod, indexedWriteMethod;
+		final Converters.Target writeTarget;
+		final Object object, index;
+
+		IndexedPropertyLValue(Factory factory, Object object, Object index) {
+			indexedReadMethod = factory.indexedReadMethod;
+			indexedWriteMethod = factory.indexedWriteMethod;
+			writeTarget = factory.writeTarget;
+			this.object = object;
+			this.index = index;
 		}
 
 		@Override
-		Object evaluate(Context context, Object root) throws OgnlException {
-			Expression[] argExprs = this.argExprs;
-			Object[] args = new Object[argExprs.length];
-			Class<?>[] argTypes = new Class<?>[argExprs.length];
-			for (int index = 0; index < argExprs.length; ++index) {
-				Object arg = args[index] = argExprs[index].getValue(context, root);
-				if (arg != null) {
-					argTypes[index] = arg.getClass();
-				}
+		Object get() throws Throwable {
+			if (indexedReadMethod == null) {
+				throw new UnsupportedOperationException("property is not readable");
 			}
-			Constructor<?> constructor;
 			try {
-				constructor = cache.computeIfAbsent(Arrays.asList(argTypes), a -> {
-					try {
-						return ClassUtil.findMostSpecificConstructor(clazz, argTypes);
-					}
-					catch (NoSuchMethodException | AmbiguousMethodException e) {
-						throw new UndeclaredThrowableException(e);
-					}
-				});
+				return indexedReadMethod.invoke(object, index);
 			}
-			catch (UndeclaredThrowableException e) {
-				Throwable cause = e.getCause();
-				throw cause instanceof OgnlException ? (OgnlException) cause : new OgnlException(this, cause);
+			catch (InvocationTargetException e) {
+				throw e.getCause();
 			}
-			if (constructor == null) {
-				throw new OgnlException(this, appendTypeNames(new StringBuilder().append(clazz).append(" has no accessible constructor callable with argument types ("), argTypes).append(')').toString());
+		}
+
+		@Override
+		void set(Object value) throws Throwable {
+			if (indexedWriteMethod == null) {
+				throw new UnsupportedOperationException("property is not writable");
 			}
 			try {
-				return ClassUtil.invokeConstructor(constructor, args);
+				indexedWriteMethod.invoke(object, index, writeTarget.convert(value));
 			}
 			catch (InvocationTargetException e) {
-				throw new OgnlException(this, e.getCause());
-			}
-			catch (Exception e) {
-				throw new OgnlException(this, e);
+				throw e.getCause();
 			}
 		}
 
-		@Override
-		int getPrecedence() {
-			return PRECEDENCE;
-		}
-
 	}
 
-	static abstract class Unary extends Expression {
+	private static class ArrayElementLValue extends LValue {
 
-		final Expression expression;
+		final ArrayAccessor accessor;
+		final Object array;
+		final int index;
 
-		Unary(Expression expression) {
-			assert expression != null;
-			this.expression = expression;
+		ArrayElementLValue(Object array, int index) {
+			this(ArrayAccessor.forClass.get(array.getClass()), array, index);
 		}
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			return expression.getClassLoaders(classLoaders);
+		ArrayElementLValue(ArrayAccessor accessor, Object array, int index) {
+			this.accessor = accessor;
+			this.array = array;
+			this.index = index;
 		}
 
 		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
-			}
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
-			}
-			Unary o = (Unary) obj;
-			return expression == null ? o.expression == null : expression.equals(o.expression);
+		Object get() {
+			return accessor.get(array, index);
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 65521 + (expression == null ? 0 : expression.hashCode());
+		void set(Object value) {
+			accessor.set(array, index, value);
 		}
 
-		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			sb.append(getOperator());
-			Expression expression = this.expression;
-			return expression instanceof InstanceOf ? expression.toString(sb.append('(')).append(')') : parenthesize(sb, getPrecedence(), expression);
-		}
+	}
 
-		abstract char getOperator();
+	/**
+	 * Reads and writes the elements of the arrays of one class without going through {@link Array}. Values that are not
+	 * of the exact wrapper type of a primitive component type are left to {@link Array#set}, so they are widened or
+	 * rejected exactly as they would be by reflection.
+	 */
+	static abstract class ArrayAccessor {
 
-	}
+		static final ClassValue<ArrayAccessor> forClass = new ClassValue<ArrayAccessor>() {
 
-	static abstract class Binary extends Expression {
+			@Override
+			protected ArrayAccessor computeValue(Class<?> arrayClass) {
+				Class<?> componentType = arrayClass.getComponentType();
+				if (componentType == int.class) {
+					return IntArrayAccessor.instance;
+				}
+				if (componentType == long.class) {
+					return LongArrayAccessor.instance;
+				}
+				if (componentType == double.class) {
+					return DoubleArrayAccessor.instance;
+				}
+				if (componentType == byte.class) {
+					return ByteArrayAccessor.instance;
+				}
+				if (componentType == char.class) {
+					return CharArrayAccessor.instance;
+				}
+				if (componentType == boolean.class) {
+					return BooleanArrayAccessor.instance;
+				}
+				if (componentType == float.class) {
+					return FloatArrayAccessor.instance;
+				}
+				if (componentType == short.class) {
+					return ShortArrayAccessor.instance;
+				}
+				return new ObjectArrayAccessor(componentType);
+			}
 
-		final Expression leftExpr, rightExpr;
+		};
 
-		Binary(Expression leftExpr, Expression rightExpr) {
-			assert leftExpr != null && rightExpr != null;
-			this.leftExpr = leftExpr;
-			this.rightExpr = rightExpr;
+		ArrayAccessor() {
 		}
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			return rightExpr.getClassLoaders(leftExpr.getClassLoaders(classLoaders));
+		abstract int getLength(Object array);
+
+		abstract Object get(Object array, int index);
+
+		abstract void set(Object array, int index, Object value);
+
+	}
+
+	private static class BooleanArrayAccessor extends ArrayAccessor {
+
+		static final BooleanArrayAccessor instance = new BooleanArrayAccessor();
+
+		/**
+		 * Not instantiable.
+		 */
+		private BooleanArrayAccessor() {
 		}
 
 		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
-			}
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
-			}
-			Binary o = (Binary) obj;
-			return (leftExpr == null ? o.leftExpr == null : leftExpr.equals(o.leftExpr)) && (rightExpr == null ? o.rightExpr == null : rightExpr.equals(o.rightExpr));
+		int getLength(Object array) {
+			return ((boolean[]) array).length;
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 1048573 + (leftExpr == null ? 0 : leftExpr.hashCode() * 1021) + (rightExpr == null ? 0 : rightExpr.hashCode());
+		Object get(Object array, int index) {
+			return ((boolean[]) array)[index];
 		}
 
 		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			int precedence = getPrecedence();
-			return parenthesize(parenthesize(sb, precedence, leftExpr).append(getOperator()), precedence, rightExpr);
+		void set(Object array, int index, Object value) {
+			if (value instanceof Boolean) {
+				((boolean[]) array)[index] = (Boolean) value;
+			}
+			else {
+				Array.set(array, index, value);
+			}
 		}
 
-		abstract String getOperator();
-
 	}
 
-	static abstract class Nary extends Expression {
-
-		final Expression[] expressions;
+	private static class ByteArrayAccessor extends ArrayAccessor {
 
-		Nary(Expression... expressions) {
-			assert expressions.length > 1;
-			this.expressions = expressions;
-		}
+		static final ByteArrayAccessor instance = new ByteArrayAccessor();
 
-		@Override
-		protected Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders) {
-			for (Expression expression : expressions) {
-				classLoaders = expression.getClassLoaders(classLoaders);
-			}
-			return classLoaders;
+		/**
+		 * Not instantiable.
+		 */
+		private ByteArrayAccessor() {
 		}
 
 		@Override
-		public boolean equals(Object obj) {
-			return this == obj || obj != null && getClass() == obj.getClass() && Arrays.equals(expressions, ((Nary) obj).expressions);
+		int getLength(Object array) {
+			return ((byte[]) array).length;
 		}
 
 		@Override
-		public int hashCode() {
-			return getClass().hashCode() * 65521 + Arrays.hashCode(expressions);
+		Object get(Object array, int index) {
+			return ((byte[]) array)[index];
 		}
 
 		@Override
-		protected StringBuilder toString(StringBuilder sb) {
-			int precedence = getPrecedence();
-			Expression[] expressions = this.expressions;
-			parenthesize(sb, precedence, expressions[0]);
-			String operator = getOperator();
-			for (int index = 1; index < expressions.length; ++index) {
-				parenthesize(sb.append(operator), precedence, expressions[index]);
+		void set(Object array, int index, Object value) {
+			if (value instanceof Byte) {
+				((byte[]) array)[index] = (Byte) value;
+			}
+			else {
+				Array.set(array, index, value);
 			}
-			return sb;
 		}
 
-		abstract String getOperator();
-
 	}
 
-	private static abstract class LValue {
-
-		LValue() {
-		}
-
-		abstract Object get() throws Throwable;
+	private static class CharArrayAccessor extends ArrayAccessor {
 
-		abstract void set(Object value) throws Throwable;
+		static final CharArrayAccessor instance = new CharArrayAccessor();
 
-	}
+		/**
+		 * Not instantiable.
+		 */
+		private CharArrayAccessor() {
+		}
 
-	private static abstract class LValueFactory {
+		@Override
+		int getLength(Object array) {
+			return ((char[]) array).length;
+		}
 
-		LValueFactory() {
+		@Override
+		Object get(Object array, int index) {
+			return ((char[]) array)[index];
 		}
 
-		abstract LValue createLValue(Object object) throws OgnlException;
+		@Override
+		void set(Object array, int index, Object value) {
+			if (value instanceof Character) {
+				((char[]) array)[index] = (Character) value;
+			}
+			else {
+				Array.set(array, index, value);
+			}
+		}
 
 	}
 
-	private static abstract class IndexedLValueFactory {
-
-		IndexedLValueFactory() {
-		}
-
-		abstract LValue createLValue(Object object, Object index) throws OgnlException;
+	private static class ShortArrayAccessor extends ArrayAccessor {
 
-	}
+		static final ShortArrayAccessor instance = new ShortArrayAccessor();
 
-	private static class PropertyLValue extends LValue {
+		/**
+		 * Not instantiable.
+		 */
+		private ShortArrayAccessor() {
+		}
 
-		private static class Factory extends LValueFactory {
+		@Override
+		int getLength(Object array) {
+			return ((short[]) array).length;
+		}
 
-			final Method readMethod, writeMethod;
+		@Override
+		Object get(Object array, int index) {
+			return ((short[]) array)[index];
+		}
 
-			Factory(PropertyDescriptor propertyDescriptor) {
-				this(propertyDescriptor.getReadMethod(), propertyDescriptor.getWriteMethod());
+		@Override
+		void set(Object array, int index, Object value) {
+			if (value instanceof Short) {
+				((short[]) array)[index] = (Short) value;
 			}
-
-			Factory(Method readMethod, Method writeMethod) {
-				this.readMethod = readMethod;
-				this.writeMethod = writeMethod;
+			else {
+				Array.set(array, index, value);
 			}
+		}
 
-			@Override
-			LValue createLValue(Object object) {
-				return new PropertyLValue(readMethod, writeMethod, object);
-			}
+	}
 
-		}
+	private static class IntArrayAccessor extends ArrayAccessor {
 
-		final Method readMethod, writeMethod;
-		final Object object;
+		static final IntArrayAccessor instance = new IntArrayAccessor();
+
+		/**
+		 * Not instantiable.
+		 */
+		private IntArrayAccessor() {
+		}
 
-		PropertyLValue(Method readMethod, Method writeMethod, Object object) {
-			this.readMethod = readMethod;
-			this.writeMethod = writeMethod;
-			this.object = object;
+		@Override
+		int getLength(Object array) {
+			return ((int[]) array).length;
 		}
 
 		@Override
-		Object get() throws Throwable {
-			if (readMethod == null) {
-				throw new UnsupportedOperationException("property is not readable");
-			}
-			try {
-				return readMethod.invoke(object, (Object[]) null);
-			}
-			catch (InvocationTargetException e) {
-				throw e.getCause();
-			}
+		Object get(Object array, int index) {
+			return ((int[]) array)[index];
 		}
 
 		@Override
-		void set(Object value) throws Throwable {
-			if (writeMethod == null) {
-				throw new UnsupportedOperationException("property is not writable");
-			}
-			try {
-				writeMethod.invoke(object, value);
+		void set(Object array, int index, Object value) {
+			if (value instanceof Integer) {
+				((int[]) array)[index] = (Integer) value;
 			}
-			catch (InvocationTargetException e) {
-				throw e.getCause();
+			else {
+				Array.set(array, index, value);
 			}
 		}
 
 	}
 
-	private static class FieldLValue extends LValue {
-
-		private static class Factory extends LValueFactory {
-
-			final Field field;
-
-			Factory(Field field) {
-				this.field = field;
-			}
+	private static class LongArrayAccessor extends ArrayAccessor {
 
-			@Override
-			LValue createLValue(Object object) {
-				return new FieldLValue(field, object);
-			}
+		static final LongArrayAccessor instance = new LongArrayAccessor();
 
+		/**
+		 * Not instantiable.
+		 */
+		private LongArrayAccessor() {
 		}
 
-		final Field field;
-		final Object object;
-
-		FieldLValue(Field field, Object object) {
-			this.field = field;
-			this.object = object;
+		@Override
+		int getLength(Object array) {
+			return ((long[]) array).length;
 		}
 
 		@Override
-		Object get() throws IllegalArgumentException, IllegalAccessException {
-			return field.get(object);
+		Object get(Object array, int index) {
+			return ((long[]) array)[index];
 		}
 
 		@Override
-		void set(Object value) throws IllegalArgumentException, IllegalAccessException {
-			field.set(object, value);
+		void set(Object array, int index, Object value) {
+			if (value instanceof Long) {
+				((long[]) array)[index] = (Long) value;
+			}
+			else {
+				Array.set(array, index, value);
+			}
 		}
 
 	}
 
-	private static class ArrayLengthLValue extends LValue {
-
-		private static class Factory extends LValueFactory {
-
-			static final Factory instance = new Factory();
-
-			/**
-			 * Not instantiable.
-			 */
-			private Factory() {
-			}
+	private static class FloatArrayAccessor extends ArrayAccessor {
 
-			@Override
-			LValue createLValue(Object object) {
-				return new ArrayLengthLValue(object);
-			}
+		static final FloatArrayAccessor instance = new FloatArrayAccessor();
 
+		/**
+		 * Not instantiable.
+		 */
+		private FloatArrayAccessor() {
 		}
 
-		final Object array;
-
-		ArrayLengthLValue(Object array) {
-			this.array = array;
+		@Override
+		int getLength(Object array) {
+			return ((float[]) array).length;
 		}
 
 		@Override
-		Object get() {
-			return Array.getLength(array);
+		Object get(Object array, int index) {
+			return ((float[]) array)[index];
 		}
 
 		@Override
-		void set(Object value) {
-			throw new UnsupportedOperationException("array length is read-only");
+		void set(Object array, int index, Object value) {
+			if (value instanceof Float) {
+				((float[]) array)[index] = (Float) value;
+			}
+			else {
+				Array.set(array, index, value);
+			}
 		}
 
 	}
 
-	private static class IndexedPropertyLValue extends LValue {
+	private static class DoubleArrayAccessor extends ArrayAccessor {
 
-		private static class Factory extends IndexedLValueFactory {
+		static final DoubleArrayAccessor instance = new DoubleArrayAccessor();
 
-			final Method indexedReadMethod, indexedWriteMethod;
+		/**
+		 * Not instantiable.
+		 */
+		private DoubleArrayAccessor() {
+		}
 
-			Factory(IndexedPropertyDescriptor indexedPropertyDescriptor) {
-				this(indexedPropertyDescriptor.getIndexedReadMethod(), indexedPropertyDescriptor.getIndexedWriteMethod());
-			}
+		@Override
+		int getLength(Object array) {
+			return ((double[]) array).length;
+		}
 
-			Factory(Method indexedReadMethod, Method indexedWriteMethod) {
-				this.indexedReadMethod = indexedReadMethod;
-				this.indexedWriteMethod = indexedWriteMethod;
-			}
+		@Override
+		Object get(Object array, int index) {
+			return ((double[]) array)[index];
+		}
 
-			@Override
-			LValue createLValue(Object object, Object index) {
-				return new IndexedPropertyLValue(indexedReadMethod, indexedWriteMethod, object, asIntegerIndex(asNumber(index)));
+		@Override
+		void set(Object array, int index, Object value) {
+			if (value instanceof Double) {
+				((double[]) array)[index] = (Double) value;
+			}
+			else {
+				Array.set(array, index, value);
 			}
-
 		}
 
-		final Method indexedReadMethod, indexedWriteMethod;
-		final Object object, index;
+	}
 
-		IndexedPropertyLValue(Method indexedReadMethod, Method indexedWriteMethod, Object object, Object index) {
-			this.indexedReadMethod = indexedReadMethod;
-			this.indexedWriteMethod = indexedWriteMethod;
-			this.object = object;
-			this.index = index;
+	private static class ObjectArrayAccessor extends ArrayAccessor {
+
+		final Class<?> componentType;
+
+		ObjectArrayAccessor(Class<?> componentType) {
+			this.componentType = componentType;
 		}
 
 		@Override
-		Object get() throws Throwable {
-			if (indexedReadMethod == null) {
-				throw new UnsupportedOperationException("property is not readable");
-			}
-			try {
-				return indexedReadMethod.invoke(object, index);
-			}
-			catch (InvocationTargetException e) {
-				throw e.getCause();
-			}
+		int getLength(Object array) {
+			return ((Object[]) array).length;
 		}
 
 		@Override
-		void set(Object value) throws Throwable {
-			if (indexedWriteMethod == null) {
-				throw new UnsupportedOperationException("property is not writable");
-			}
-			try {
-				indexedWriteMethod.invoke(object, index, value);
+		Object get(Object array, int index) {
+			return ((Object[]) array)[index];
+		}
+
+		@Override
+		void set(Object array, int index, Object value) {
+			if (value == null || componentType.isInstance(value)) {
+				((Object[]) array)[index] = value;
 			}
-			catch (InvocationTargetException e) {
-				throw e.getCause();
+			else {
+				Array.set(array, index, value);
 			}
 		}
 
 	}
 
-	private static class ArrayElementLValue extends LValue {
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static class ListElementLValue extends LValue {
 
-		final Object array;
+		final List list;
 		final int index;
 
-		ArrayElementLValue(Object array, int index) {
-			this.array = array;
+		ListElementLValue(List list, int index) {
+			this.list = list;
 			this.index = index;
 		}
 
 		@Override
 		Object get() {
-			return Array.get(array, index);
+			return list.get(index);
 		}
 
 		@Override
 		void set(Object value) {
-			Array.set(array, index, value);
+			list.set(index, value);
 		}
 
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private static class ListElementLValue extends LValue {
+	/**
+	 * An element of a lazily computed list, which is read by pulling only as many elements as needed to reach it, but
+	 * assigned to by materializing the list, as an element of any other list would be.
+	 */
+	private static class IteratorElementLValue extends LValue {
 
-		final List list;
+		final Iterator<?> iterator;
 		final int index;
 
-		ListElementLValue(List list, int index) {
-			this.list = list;
+		IteratorElementLValue(Iterator<?> iterator, int index) {
+			this.iterator = iterator;
 			this.index = index;
 		}
 
 		@Override
-		Object get() {
-			return list.get(index);
+		Object get() throws Throwable {
+			if (index < 0) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+			try {
+				for (int i = 0; i < index && iterator.hasNext(); ++i) {
+					iterator.next();
+				}
+				if (!iterator.hasNext()) {
+					throw new IndexOutOfBoundsException("Index: " + index);
+				}
+				return iterator.next();
+			}
+			catch (UndeclaredThrowableException e) {
+				throw e.getCause();
+			}
 		}
 
 		@Override
-		void set(Object value) {
+		void set(Object value) throws Throwable {
+			ArrayList<Object> list = new ArrayList<>();
+			try {
+				while (iterator.hasNext()) {
+					list.add(iterator.next());
+				}
+			}
+			catch (UndeclaredThrowableException e) {
+				throw e.getCause();
+			}
 			list.set(index, value);
 		}
 
@@ -4159,34 +6765,64 @@ public abstract class Expression {
 			final Method indexedReadMethod;
 			final Method[] indexedWriteMethods;
 
+			/**
+			 * The setter resolved for each pair of index and value classes, which is shared by all of the LValues that
+			 * this factory creates.
+			 */
+			private final ConcurrentHashMap<Pair<Class<?>, Class<?>>, Method> cache = new ConcurrentHashMap<>(0);
+
+			/**
+			 * Monomorphic inline cache in front of {@link #cache}, which spares the hash lookup when consecutive writes
+			 * are of the same index and value classes.
+			 */
+			private volatile Pair<Pair<Class<?>, Class<?>>, Method> last;
+
 			Factory(Method indexedReadMethod, Method[] indexedWriteMethods) {
+				assert indexedWriteMethods != null;
 				this.indexedReadMethod = indexedReadMethod;
 				this.indexedWriteMethods = indexedWriteMethods;
 			}
 
 			@Override
 			LValue createLValue(Object object, Object index) throws OgnlException {
-				return new ExtendedIndexedPropertyLValue(indexedReadMethod, indexedWriteMethods, object, index);
+				return new ExtendedIndexedPropertyLValue(this, object, index);
+			}
+
+			/**
+			 * @return the most specific setter callable with arguments of the given classes, or null if there is none
+			 */
+			Method getIndexedWriteMethod(Class<?> indexClass, Class<?> valueClass) throws AmbiguousMethodException {
+				Pair<Pair<Class<?>, Class<?>>, Method> last = this.last;
+				if (last != null && last.first.first == indexClass && last.first.second == valueClass) {
+					return last.second;
+				}
+				Pair<Class<?>, Class<?>> key = new Pair<>(indexClass, valueClass);
+				Method indexedWriteMethod = cache.get(key);
+				if (indexedWriteMethod == null) {
+					indexedWriteMethod = ClassUtil.findMostSpecificExecutable(Arrays.stream(indexedWriteMethods), indexClass, valueClass);
+					if (indexedWriteMethod == null) {
+						return null;
+					}
+					cache.putIfAbsent(key, indexedWriteMethod);
+				}
+				this.last = new Pair<>(key, indexedWriteMethod);
+				return indexedWriteMethod;
 			}
 
 		}
 
-		final Method indexedReadMethod;
-		final Method[] indexedWriteMethods;
+		final Factory factory;
 		final Object object, index;
 
-		private final ConcurrentHashMap<Class<?>, Method> cache = new ConcurrentHashMap<>(0);
-
-		ExtendedIndexedPropertyLValue(Method indexedReadMethod, Method[] indexedWriteMethods, Object object, Object index) {
-			assert indexedReadMethod != null && indexedWriteMethods != null;
-			this.indexedReadMethod = indexedReadMethod;
-			this.indexedWriteMethods = indexedWriteMethods;
+		ExtendedIndexedPropertyLValue(Factory factory, Object object, Object index) {
+			this.factory = factory;
 			this.object = object;
 			this.index = index;
 		}
 
 		@Override
 		Object get() throws Throwable {
+			Method indexedReadMethod = factory.indexedReadMethod;
 			if (indexedReadMethod == null) {
 				throw new UnsupportedOperationException("property is not readable");
 			}
@@ -4200,29 +6836,15 @@ public abstract class Expression {
 
 		@Override
 		void set(Object value) throws Throwable {
-			if (indexedWriteMethods.length == 0) {
+			if (factory.indexedWriteMethods.length == 0) {
 				throw new UnsupportedOperationException("property is not writable");
 			}
 			Method indexedWriteMethod;
 			try {
-				indexedWriteMethod = cache.computeIfAbsent(value == null ? null : value.getClass(), c -> {
-					try {
-						return ClassUtil.findMostSpecificExecutable(Arrays.stream(indexedWriteMethods), index == null ? null : index.getClass(), c);
-					}
-					catch (AmbiguousMethodException e) {
-						throw new UndeclaredThrowableException(e);
-					}
-				});
+				indexedWriteMethod = factory.getIndexedWriteMethod(index == null ? null : index.getClass(), value == null ? null : value.getClass());
 			}
-			catch (UndeclaredThrowableException e) {
-				Throwable cause = e.getCause();
-				if (cause instanceof AmbiguousMethodException) {
-					throw new UnsupportedOperationException("multiple indexed property setter methods are callable " + cause.getMessage(), cause);
-				}
-				if (cause instanceof OgnlException) {
-					throw (OgnlException) cause;
-				}
-				throw e;
+			catch (AmbiguousMethodException e) {
+				throw new UnsupportedOperationException("multiple indexed property setter methods are callable " + e.getMessage(), e);
 			}
 			if (indexedWriteMethod == null) {
 				throw new UnsupportedOperationException(appendTypeNames(new StringBuilder("there is no accessible indexed property setter method callable with argument types ("), index == null ? null : index.getClass(), value == null ? null : value.getClass()).append(')').toString());
@@ -4323,6 +6945,10 @@ public abstract class Expression {
 
 	public static final Expression[] emptyArray = { };
 
+	static final int VECTOR_SIZE = 1024;
+
+	private int hashCode;
+
 	public boolean isLValue() {
 		return false;
 	}
@@ -4331,6 +6957,30 @@ public abstract class Expression {
 		return asRValue(evaluate(context == null ? new Context() : context, root), this);
 	}
 
+	/**
+	 * Returns a view of the elements of the value of this expression against the given root. Each iteration of the view
+	 * evaluates this expression anew, and if it is a projection, selection, limit or skip without side effects, its
+	 * elements are computed only as they are iterated, without materializing the results of any of the chained stages.
+	 * An {@link OgnlException} thrown during iteration is wrapped in an {@link UndeclaredThrowableException}.
+	 */
+	public final Iterable<?> getValues(Context context, Object root) {
+		Context ctx = context == null ? new Context() : context;
+		return new Iterable<Object>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Iterator<Object> iterator() {
+				try {
+					return (Iterator<Object>) iterate(ctx, root);
+				}
+				catch (OgnlException e) {
+					throw new UndeclaredThrowableException(e);
+				}
+			}
+
+		};
+	}
+
 	public final void setValue(Context context, Object root, Object value) throws OgnlException {
 		if (!isLValue()) {
 			throw new IllegalAssignmentException(this, "expression is not assignable");
@@ -4344,12 +6994,93 @@ public abstract class Expression {
 		}
 	}
 
+	/**
+	 * Evaluates this expression against each of the given roots, passing each result to the given sink along with the
+	 * index of its root. A single context is shared by all of the evaluations, and the roots are evaluated grouped by
+	 * their classes, so that the accessors resolved for the first root of each class are reused for the rest. Roots of
+	 * the same class are evaluated in their original order, but roots of different classes may not be.
+	 * <p>
+	 * If this expression has no side effects, the roots are evaluated 1024 at a time, each
+	 * node of the expression processing the whole vector before the next node runs. Results are then passed to the sink
+	 * a vector at a time, and an exception thrown for any root in a vector prevents delivery of all of its results.
+	 *
+	 * @return the number of roots
+	 */
+	public final int evaluateAll(Context context, Iterable<?> roots, ResultSink sink) throws OgnlException {
+		if (context == null) {
+			context = new Context();
+		}
+		Object[] array = toArray(roots);
+		int[] order = groupByClass(array);
+		if (hasSideEffects()) {
+			for (int i = 0; i < array.length; ++i) {
+				int index = order == null ? i : order[i];
+				sink.accept(index, asRValue(evaluate(context, array[index]), this));
+			}
+		}
+		else {
+			int size = Math.min(array.length, VECTOR_SIZE);
+			Object[] vector = new Object[size], results = new Object[size];
+			int[] selection = selectAll(size);
+			for (int start = 0; start < array.length; start += size) {
+				int count = Math.min(size, array.length - start);
+				for (int i = 0; i < count; ++i) {
+					vector[i] = array[order == null ? start + i : order[start + i]];
+				}
+				evaluateVector(context, vector, selection, count, results);
+				for (int i = 0; i < count; ++i) {
+					sink.accept(order == null ? start + i : order[start + i], results[i]);
+				}
+			}
+		}
+		return array.length;
+	}
+
+	/**
+	 * Evaluates this expression against each of the given roots as by {@link #evaluateAll(Context, Iterable, ResultSink)},
+	 * storing the {@code int} value of each result at the index of its root.
+	 */
+	public final int evaluateAll(Context context, Iterable<?> roots, int[] results) throws OgnlException {
+		return evaluateAll(context, roots, (index, value) -> results[index] = asNumber(value).intValue());
+	}
+
+	public final int evaluateAll(Context context, Iterable<?> roots, long[] results) throws OgnlException {
+		return evaluateAll(context, roots, (index, value) -> results[index] = asNumber(value).longValue());
+	}
+
+	public final int evaluateAll(Context context, Iterable<?> roots, double[] results) throws OgnlException {
+		return evaluateAll(context, roots, (index, value) -> results[index] = asNumber(value).doubleValue());
+	}
+
+	/**
+	 * Evaluates this expression against each of the given roots as by {@link #evaluateAll(Context, Iterable, ResultSink)},
+	 * setting or clearing the bit at the index of each root according to the boolean interpretation of its result.
+	 */
+	public final int evaluateAll(Context context, Iterable<?> roots, BitSet results) throws OgnlException {
+		return evaluateAll(context, roots, (index, value) -> results.set(index, asBoolean(value)));
+	}
+
 	public final Set<ClassLoader> getClassLoaders() {
 		return getClassLoaders(Collections.newSetFromMap(new IdentityHashMap<ClassLoader, Boolean>()));
 	}
 
 	protected abstract Set<ClassLoader> getClassLoaders(Set<ClassLoader> classLoaders);
 
+	/**
+	 * Expressions are immutable, so the structural hash code is computed once and then cached. Subtrees that are
+	 * shared (see {@link ExpressionInterner}) therefore contribute their hash codes to every parent in constant time.
+	 */
+	@Override
+	public final int hashCode() {
+		int hashCode = this.hashCode;
+		if (hashCode == 0) {
+			this.hashCode = hashCode = computeHashCode();
+		}
+		return hashCode;
+	}
+
+	protected abstract int computeHashCode();
+
 	@Override
 	public final String toString() {
 		return toString(new StringBuilder()).toString();
@@ -4389,7 +7120,7 @@ public abstract class Expression {
 			return ((Number) value).intValue() != 0;
 		}
 		if (value.getClass().isArray()) {
-			return Array.getLength(value) > 0;
+			return ArrayAccessor.forClass.get(value.getClass()).getLength(value) > 0;
 		}
 		if (value instanceof CharSequence) {
 			return ((CharSequence) value).length() > 0;
@@ -4853,9 +7584,61 @@ public abstract class Expression {
 
 	abstract Object evaluate(Context context, Object root) throws OgnlException;
 
+	/**
+	 * Evaluates this expression against each of the roots at the positions given by the first {@code count} elements of
+	 * {@code selection}, storing each value at the same position in {@code results}. Nodes that override this method
+	 * finish their work on all of the selected roots before moving on, so the evaluations of different roots are
+	 * interleaved; this is only safe for expressions that have no side effects.
+	 */
+	void evaluateVector(Context context, Object[] roots, int[] selection, int count, Object[] results) throws OgnlException {
+		for (int i = 0; i < count; ++i) {
+			int row = selection[i];
+			results[row] = asRValue(evaluate(context, roots[row]), this);
+		}
+	}
+
+	/**
+	 * Returns whether evaluating this expression may change any state that the evaluation of an expression could
+	 * observe, in which case it must be evaluated against one root at a time. Method and constructor invocations are
+	 * assumed to have side effects; property reads are not.
+	 */
+	abstract boolean hasSideEffects();
+
 	abstract int getPrecedence();
 
+	/**
+	 * Returns whether {@link #iterate} computes the elements of the value of this expression as they are pulled, so that
+	 * a consumer that stops early spares the rest of the work. Projections, selections, limits and skips are lazy when
+	 * their sub-expressions have no side effects, so chains of them are fused into a single pass.
+	 */
+	boolean isLazy() {
+		return false;
+	}
+
+	/**
+	 * Returns an iterator over the elements of the value of this expression, which must not be null. The iterators of
+	 * lazy expressions throw {@link UndeclaredThrowableException}s wrapping the {@link OgnlException}s thrown while
+	 * computing their elements.
+	 */
+	Iterator<?> iterate(Context context, Object root) throws OgnlException {
+		Object value = getValue(context, root);
+		if (value == null) {
+			throw new NullPointerException(toString());
+		}
+		return asIterator(value);
+	}
+
 	LValueFactory createPropertyLValueFactory(Class<?> objClass, String propertyName) throws OgnlException {
+		PropertyAccessor.Property property;
+		try {
+			property = PropertyAccessors.getProperty(objClass, propertyName);
+		}
+		catch (Exception e) {
+			throw new OgnlException(this, e);
+		}
+		if (property != null) {
+			return new AccessorLValue.Factory(property);
+		}
 		PropertyDescriptor propertyDescriptor = Beans.getPropertyDescriptor(objClass, propertyName);
 		if (propertyDescriptor != null) {
 			return new PropertyLValue.Factory(propertyDescriptor);
@@ -4903,6 +7686,68 @@ public abstract class Expression {
 		return new DegenerateIndexedPropertyLValueFactory(this, createPropertyLValueFactory(objClass, propertyName));
 	}
 
+	static boolean hasSideEffects(Expression[] expressions) {
+		for (Expression expression : expressions) {
+			if (expression.hasSideEffects()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static int[] selectAll(int count) {
+		int[] selection = new int[count];
+		for (int i = 0; i < count; ++i) {
+			selection[i] = i;
+		}
+		return selection;
+	}
+
+	static Object[] toArray(Iterable<?> iterable) {
+		if (iterable instanceof Collection<?>) {
+			return ((Collection<?>) iterable).toArray();
+		}
+		ArrayList<Object> list = new ArrayList<>();
+		for (Object element : iterable) {
+			list.add(element);
+		}
+		return list.toArray();
+	}
+
+	/**
+	 * Returns a permutation of the indices of the given objects that groups them by class, with the groups in order of
+	 * first appearance and the indices within each group in ascending order, or null if the objects are all of the
+	 * same class.
+	 */
+	static int[] groupByClass(Object[] objects) {
+		IdentityHashMap<Class<?>, int[]> groups = new IdentityHashMap<>();
+		ArrayList<int[]> offsets = new ArrayList<>();
+		for (Object object : objects) {
+			Class<?> objClass = object == null ? null : object.getClass();
+			int[] group = groups.get(objClass);
+			if (group == null) {
+				groups.put(objClass, group = new int[1]);
+				offsets.add(group);
+			}
+			++group[0];
+		}
+		if (offsets.size() <= 1) {
+			return null;
+		}
+		int offset = 0;
+		for (int[] group : offsets) {
+			int count = group[0];
+			group[0] = offset;
+			offset += count;
+		}
+		int[] order = new int[objects.length];
+		for (int index = 0; index < objects.length; ++index) {
+			Object object = objects[index];
+			order[groups.get(object == null ? null : object.getClass())[0]++] = index;
+		}
+		return order;
+	}
+
 	static Object asRValue(Object value, Expression expression) throws OgnlException {
 		if (value instanceof LValue) {
 			try {
@@ -4915,6 +7760,11 @@ public abstract class Expression {
 		return value;
 	}
 
+	static OgnlException unwrap(UndeclaredThrowableException e, Expression expression) {
+		Throwable cause = e.getCause();
+		return cause instanceof OgnlException ? (OgnlException) cause : new OgnlException(expression, cause);
+	}
+
 	static StringBuilder parenthesize(StringBuilder sb, int outerPrecedence, Expression expr) {
 		return expr.getPrecedence() <= outerPrecedence ? expr.toString(sb.append('(')).append(')') : expr.toString(sb);
 	}
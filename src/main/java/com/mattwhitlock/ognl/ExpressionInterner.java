@@ -0,0 +1,48 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deduplicates structurally equal expressions. Expressions are immutable, and their per-node caches are keyed only
+ * by runtime types, so a single canonical instance can safely stand in for all of its equals, allowing the reflection
+ * caches warmed by one parsed expression to be reused by every other expression that shares the subtree.
+ *
+ * @see OgnlParser#parse(String, ExpressionInterner)
+ * @author Matt Whitlock
+ */
+public class ExpressionInterner {
+
+	private final ConcurrentHashMap<Expression, Expression> expressions;
+
+	public ExpressionInterner() {
+		expressions = new ConcurrentHashMap<>();
+	}
+
+	public ExpressionInterner(int initialCapacity) {
+		expressions = new ConcurrentHashMap<>(initialCapacity);
+	}
+
+	/**
+	 * Returns the canonical instance that is equal to the given expression, making the given expression canonical if
+	 * there is none yet. Interning is shallow: the children of the given expression should already be canonical, as
+	 * they are when the expression is built bottom-up by the parser, so that comparisons against existing entries
+	 * reduce to identity checks on the children.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Expression> E intern(E expression) {
+		Expression canonical = expressions.putIfAbsent(expression, expression);
+		return canonical == null ? expression : (E) canonical;
+	}
+
+	public int size() {
+		return expressions.size();
+	}
+
+	public void clear() {
+		expressions.clear();
+	}
+
+}
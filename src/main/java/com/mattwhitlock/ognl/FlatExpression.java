@@ -0,0 +1,327 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A compact, non-recursive form of an {@link Expression}. Compilation flattens the tree into an array of instructions
+ * and a pool of constants, and {@link #getValue(Context, Object)} executes the instructions in a loop over a small
+ * register file, so evaluation uses a constant amount of Java stack however deeply the tree was nested. Nodes that
+ * have no instruction of their own are kept in the constant pool and evaluated as trees.
+ *
+ * @author Matt Whitlock
+ */
+public final class FlatExpression {
+
+	private static final int CONSTANT = 0; // dst, constant
+	private static final int MOVE = 1; // dst, src
+	private static final int LOAD_VARIABLE = 2; // dst, constant
+	private static final int STORE_VARIABLE = 3; // src, constant
+	private static final int GET_PROPERTY = 4; // dst, obj, constant
+	private static final int SET_PROPERTY = 5; // dst, obj, src, constant
+	private static final int UNARY = 6; // dst, src, constant
+	private static final int BINARY = 7; // dst, left, right, constant
+	private static final int ARITHMETIC_BEGIN = 8; // dst, src, constant
+	private static final int ARITHMETIC_STEP = 9; // dst, src, constant
+	private static final int BITWISE_BEGIN = 10; // dst, src, constant
+	private static final int BITWISE_STEP = 11; // dst, src, constant
+	private static final int JUMP = 12; // target
+	private static final int JUMP_IF_TRUE = 13; // src, target
+	private static final int JUMP_IF_FALSE = 14; // src, target
+	private static final int EVALUATE = 15; // dst, root, constant
+
+	private static final int ROOT = 0, RESULT = 1;
+
+	private static final HashMap<Class<?>, Expression> operators = new HashMap<>();
+
+	static {
+		Expression[] operands = { Expression.ThisReference.THIS, Expression.ThisReference.THIS };
+		Expression.ThisReference operand = Expression.ThisReference.THIS;
+		for (Expression operator : new Expression[] {
+				new Expression.Bitwise.Or(operands), new Expression.Bitwise.Xor(operands), new Expression.Bitwise.And(operands),
+				new Expression.Equal(operand, operand), new Expression.Equal.Not(operand, operand),
+				new Expression.Comparison.Less(operand, operand), new Expression.Comparison.LessOrEqual(operand, operand), new Expression.Comparison.Greater(operand, operand), new Expression.Comparison.GreaterOrEqual(operand, operand),
+				new Expression.In(operand, operand), new Expression.In.Not(operand, operand),
+				new Expression.Shift.Left(operand, operand), new Expression.Shift.Right(operand, operand), new Expression.Shift.LogicalRight(operand, operand),
+				new Expression.Arithmetic.Addition(operands), new Expression.Arithmetic.Subtraction(operands), new Expression.Arithmetic.Multiplication(operands), new Expression.Arithmetic.Division(operands), new Expression.Arithmetic.Remainder(operands),
+				new Expression.Positive(operand), new Expression.Negative(operand), new Expression.LogicalNot(operand), new Expression.BitwiseNot(operand) }) {
+			operators.put(operator.getClass(), operator);
+		}
+	}
+
+	private final int[] code;
+	private final Object[] constants;
+	private final int registerCount;
+
+	private FlatExpression(int[] code, Object[] constants, int registerCount) {
+		this.code = code;
+		this.constants = constants;
+		this.registerCount = registerCount;
+	}
+
+	public static FlatExpression compile(Expression expression) {
+		return compile(expression, null);
+	}
+
+	/**
+	 * Flattens the given expression. If an interner is given, the property accessors and tree fallbacks held in the
+	 * constant pool are interned with it, so that many flattened expressions compiled with the same interner share
+	 * their reflection caches.
+	 */
+	public static FlatExpression compile(Expression expression, ExpressionInterner interner) {
+		Compiler compiler = new Compiler(interner);
+		compiler.compile(expression, ROOT, RESULT);
+		return new FlatExpression(Arrays.copyOf(compiler.code, compiler.length), compiler.constants.toArray(), compiler.maxRegisterCount);
+	}
+
+	public Object getValue(Context context, Object root) throws OgnlException {
+		if (context == null) {
+			context = new Context();
+		}
+		int[] code = this.code;
+		Object[] constants = this.constants;
+		Object[] registers = new Object[registerCount];
+		registers[ROOT] = root;
+		for (int pc = 0; pc < code.length;) {
+			switch (code[pc]) {
+				case CONSTANT:
+					registers[code[pc + 1]] = constants[code[pc + 2]];
+					pc += 3;
+					break;
+				case MOVE:
+					registers[code[pc + 1]] = registers[code[pc + 2]];
+					pc += 3;
+					break;
+				case LOAD_VARIABLE:
+					registers[code[pc + 1]] = context.variables == null ? null : context.variables.get(constants[code[pc + 2]]);
+					pc += 3;
+					break;
+				case STORE_VARIABLE:
+					(context.variables == null ? context.variables = new HashMap<>(2) : context.variables).put((String) constants[code[pc + 2]], registers[code[pc + 1]]);
+					pc += 3;
+					break;
+				case GET_PROPERTY:
+					registers[code[pc + 1]] = ((Expression) constants[code[pc + 3]]).getValue(context, registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				case SET_PROPERTY: {
+					Object value = registers[code[pc + 3]];
+					((Expression) constants[code[pc + 4]]).setValue(context, registers[code[pc + 2]], value);
+					registers[code[pc + 1]] = value;
+					pc += 5;
+					break;
+				}
+				case UNARY:
+					registers[code[pc + 1]] = ((Expression.Unary) constants[code[pc + 3]]).apply(registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				case BINARY:
+					registers[code[pc + 1]] = ((Expression.Binary) constants[code[pc + 4]]).apply(registers[code[pc + 2]], registers[code[pc + 3]]);
+					pc += 5;
+					break;
+				case ARITHMETIC_BEGIN:
+					registers[code[pc + 1]] = ((Expression.Arithmetic) constants[code[pc + 3]]).begin(registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				case ARITHMETIC_STEP:
+					registers[code[pc + 1]] = ((Expression.Arithmetic) constants[code[pc + 3]]).step(registers[code[pc + 1]], registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				case BITWISE_BEGIN:
+					registers[code[pc + 1]] = ((Expression.Bitwise) constants[code[pc + 3]]).begin(registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				case BITWISE_STEP:
+					registers[code[pc + 1]] = ((Expression.Bitwise) constants[code[pc + 3]]).step(registers[code[pc + 1]], registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				case JUMP:
+					pc = code[pc + 1];
+					break;
+				case JUMP_IF_TRUE:
+					pc = Expression.asBoolean(registers[code[pc + 1]]) ? code[pc + 2] : pc + 3;
+					break;
+				case JUMP_IF_FALSE:
+					pc = Expression.asBoolean(registers[code[pc + 1]]) ? pc + 3 : code[pc + 2];
+					break;
+				case EVALUATE:
+					registers[code[pc + 1]] = ((Expression) constants[code[pc + 3]]).getValue(context, registers[code[pc + 2]]);
+					pc += 4;
+					break;
+				default:
+					throw new InternalError();
+			}
+		}
+		return registers[RESULT];
+	}
+
+	private static class Compiler {
+
+		final ExpressionInterner interner;
+		final ArrayList<Object> constants = new ArrayList<>();
+		final HashMap<Object, Integer> constantIndices = new HashMap<>();
+		int[] code = new int[16];
+		int length, registerCount = RESULT + 1, maxRegisterCount = RESULT + 1;
+
+		Compiler(ExpressionInterner interner) {
+			this.interner = interner;
+		}
+
+		/**
+		 * Emits the instructions that leave the value of the given expression in register {@code dst}, evaluated
+		 * against the root object in register {@code root}. No register other than {@code dst} and those not yet allocated
+		 * is written.
+		 */
+		void compile(Expression expression, int root, int dst) {
+			Class<?> clazz = expression.getClass();
+			if (expression instanceof Expression.Literal) {
+				emit(CONSTANT, dst, constant(((Expression.Literal<?>) expression).value));
+			}
+			else if (expression instanceof Expression.ThisReference) {
+				emit(MOVE, dst, root);
+			}
+			else if (clazz == Expression.VariableReference.class) {
+				emit(LOAD_VARIABLE, dst, constant(((Expression.VariableReference) expression).variableName));
+			}
+			else if (clazz == Expression.PropertyAccess.class) {
+				Expression.PropertyAccess propertyAccess = (Expression.PropertyAccess) expression;
+				int obj = root;
+				if (propertyAccess.objExpr != null) {
+					compile(propertyAccess.objExpr, root, obj = dst);
+				}
+				emit(GET_PROPERTY, dst, obj, constant(property(propertyAccess.propertyName)));
+			}
+			else if (clazz == Expression.Subexpression.class) {
+				Expression.Subexpression subexpression = (Expression.Subexpression) expression;
+				int obj = allocate();
+				compile(subexpression.objExpr, root, obj);
+				compile(subexpression.subExpr, obj, dst);
+				release();
+			}
+			else if (clazz == Expression.Sequence.class) {
+				for (Expression subexpression : ((Expression.Sequence) expression).expressions) {
+					compile(subexpression, root, dst);
+				}
+			}
+			else if (clazz == Expression.Conditional.class) {
+				Expression.Conditional conditional = (Expression.Conditional) expression;
+				compile(conditional.condExpr, root, dst);
+				int elseJump = emit(JUMP_IF_FALSE, dst, -1);
+				compile(conditional.trueExpr, root, dst);
+				int endJump = emit(JUMP, -1);
+				code[elseJump + 2] = length;
+				compile(conditional.falseExpr, root, dst);
+				code[endJump + 1] = length;
+			}
+			else if (clazz == Expression.Logical.Or.class || clazz == Expression.Logical.And.class) {
+				Expression[] expressions = ((Expression.Logical) expression).expressions;
+				int opcode = clazz == Expression.Logical.Or.class ? JUMP_IF_TRUE : JUMP_IF_FALSE, lastIndex = expressions.length - 1;
+				int[] jumps = new int[lastIndex];
+				for (int index = 0; index < lastIndex; ++index) {
+					compile(expressions[index], root, dst);
+					jumps[index] = emit(opcode, dst, -1);
+				}
+				compile(expressions[lastIndex], root, dst);
+				for (int jump : jumps) {
+					code[jump + 2] = length;
+				}
+			}
+			else if (clazz == Expression.Assignment.class && isFlatLValue(((Expression.Assignment) expression).leftExpr)) {
+				Expression.Assignment assignment = (Expression.Assignment) expression;
+				if (assignment.leftExpr instanceof Expression.VariableReference) {
+					compile(assignment.rightExpr, root, dst);
+					emit(STORE_VARIABLE, dst, constant(((Expression.VariableReference) assignment.leftExpr).variableName));
+				}
+				else {
+					Expression.PropertyAccess propertyAccess = (Expression.PropertyAccess) assignment.leftExpr;
+					int obj = root;
+					if (propertyAccess.objExpr != null) {
+						compile(propertyAccess.objExpr, root, obj = dst);
+					}
+					int src = allocate();
+					compile(assignment.rightExpr, root, src);
+					emit(SET_PROPERTY, dst, obj, src, constant(property(propertyAccess.propertyName)));
+					release();
+				}
+			}
+			else {
+				Expression operator = operators.get(clazz);
+				if (operator instanceof Expression.Unary) {
+					compile(((Expression.Unary) expression).expression, root, dst);
+					emit(UNARY, dst, dst, constant(operator));
+				}
+				else if (operator instanceof Expression.Binary) {
+					Expression.Binary binary = (Expression.Binary) expression;
+					compile(binary.leftExpr, root, dst);
+					int right = allocate();
+					compile(binary.rightExpr, root, right);
+					emit(BINARY, dst, dst, right, constant(operator));
+					release();
+				}
+				else if (operator instanceof Expression.Arithmetic || operator instanceof Expression.Bitwise) {
+					boolean arithmetic = operator instanceof Expression.Arithmetic;
+					Expression[] expressions = ((Expression.Nary) expression).expressions;
+					int k = constant(operator);
+					compile(expressions[0], root, dst);
+					emit(arithmetic ? ARITHMETIC_BEGIN : BITWISE_BEGIN, dst, dst, k);
+					int operand = allocate();
+					for (int index = 1; index < expressions.length; ++index) {
+						compile(expressions[index], root, operand);
+						emit(arithmetic ? ARITHMETIC_STEP : BITWISE_STEP, dst, operand, k);
+					}
+					release();
+				}
+				else {
+					emit(EVALUATE, dst, root, constant(interner == null ? expression : interner.intern(expression)));
+				}
+			}
+		}
+
+		private static boolean isFlatLValue(Expression expression) {
+			Class<?> clazz = expression.getClass();
+			return clazz == Expression.VariableReference.class || clazz == Expression.PropertyAccess.class;
+		}
+
+		private Expression property(String propertyName) {
+			Expression.PropertyAccess propertyAccess = new Expression.PropertyAccess(propertyName);
+			return interner == null ? propertyAccess : interner.intern(propertyAccess);
+		}
+
+		private int constant(Object value) {
+			Integer index = constantIndices.get(value);
+			if (index == null) {
+				constantIndices.put(value, index = constants.size());
+				constants.add(value);
+			}
+			return index;
+		}
+
+		private int allocate() {
+			int register = registerCount++;
+			if (registerCount > maxRegisterCount) {
+				maxRegisterCount = registerCount;
+			}
+			return register;
+		}
+
+		private void release() {
+			--registerCount;
+		}
+
+		private int emit(int... instruction) {
+			int start = length;
+			if (start + instruction.length > code.length) {
+				code = Arrays.copyOf(code, Math.max(code.length * 2, start + instruction.length));
+			}
+			System.arraycopy(instruction, 0, code, start, instruction.length);
+			length = start + instruction.length;
+			return start;
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Groups and deduplicates elements by the values of a key expression, evaluating the key only once per element. Keys
+ * are matched as by {@link Expression#equals(Object, Object)}, so numbers of different types having the same value,
+ * such as {@code 1}, {@code 1L} and {@code 1.0}, are the same key. Groups and distinct elements are in the order in
+ * which their first elements were encountered.
+ *
+ * @author Matt Whitlock
+ */
+public final class Grouping {
+
+	/**
+	 * Not instantiable.
+	 */
+	private Grouping() {
+	}
+
+	/**
+	 * Returns a map from each distinct value of the given key expression to the list of the given elements having that
+	 * key, sized for the given expected number of groups. Each key in the map is the key of the first element of its
+	 * group.
+	 */
+	public static Map<Object, List<Object>> groupBy(Context context, Iterable<?> elements, Expression keyExpr, int expectedGroups) throws OgnlException {
+		return groupBy(context == null ? new Context() : context, elements.iterator(), keyExpr, expectedGroups);
+	}
+
+	/**
+	 * Returns a list of the first of the given elements having each distinct value of the given key expression, sized
+	 * for the given expected number of distinct keys.
+	 */
+	public static List<Object> distinct(Context context, Iterable<?> elements, Expression keyExpr, int expectedSize) throws OgnlException {
+		ArrayList<Object> distinct = new ArrayList<>(expectedSize);
+		for (Iterator<?> iterator = distinct(context == null ? new Context() : context, elements.iterator(), keyExpr, expectedSize); iterator.hasNext();) {
+			distinct.add(iterator.next());
+		}
+		return distinct;
+	}
+
+	static LinkedHashMap<Object, List<Object>> groupBy(Context context, Iterator<?> iterator, Expression keyExpr, int expectedGroups) throws OgnlException {
+		int capacity = getCapacity(expectedGroups);
+		HashMap<Object, ArrayList<Object>> groups = new HashMap<>(capacity);
+		LinkedHashMap<Object, List<Object>> result = new LinkedHashMap<>(capacity);
+		while (iterator.hasNext()) {
+			Object element = iterator.next(), key = keyExpr.getValue(context, element), hashKey = getHashKey(key);
+			ArrayList<Object> group = groups.get(hashKey);
+			if (group == null) {
+				groups.put(hashKey, group = new ArrayList<>());
+				result.put(key, group);
+			}
+			group.add(element);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an iterator over the first of the elements of the given iterator having each distinct value of the given
+	 * key expression, which pulls elements from the given iterator only as it is advanced. The iterator throws an
+	 * {@link UndeclaredThrowableException} wrapping any {@link OgnlException} thrown by the key expression.
+	 */
+	static Iterator<Object> distinct(Context context, Iterator<?> iterator, Expression keyExpr, int expectedSize) {
+		HashSet<Object> seen = new HashSet<>(getCapacity(expectedSize));
+		return new Iterator<Object>() {
+
+			boolean hasNext;
+			Object next;
+
+			@Override
+			public boolean hasNext() {
+				try {
+					while (!hasNext && iterator.hasNext()) {
+						Object element = iterator.next();
+						if (seen.add(getHashKey(keyExpr.getValue(context, element)))) {
+							next = element;
+							hasNext = true;
+						}
+					}
+				}
+				catch (OgnlException e) {
+					throw new UndeclaredThrowableException(e);
+				}
+				return hasNext;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Object ret = next;
+				next = null;
+				hasNext = false;
+				return ret;
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a key for the given value such that values that are equal as by {@link Expression#equals(Object, Object)}
+	 * have equal keys. Numbers are keyed by their exact values: integral values as {@link Long}s or, if they are too
+	 * large, {@link BigInteger}s, and other finite values as {@link BigDecimal}s without trailing zeros.
+	 */
+	static Object getHashKey(Object value) {
+		if (!(value instanceof Number)) {
+			return value;
+		}
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			if (d != d || Double.isInfinite(d) || d == 0 && 1 / d < 0) {
+				// NaN, infinities and negative zero equal only themselves
+				return d;
+			}
+			if (d == (long) d) {
+				return (long) d;
+			}
+			value = BigDecimal.valueOf(d);
+		}
+		if (value instanceof BigDecimal) {
+			BigDecimal bigDecimal = ((BigDecimal) value).stripTrailingZeros();
+			if (bigDecimal.scale() > 0) {
+				return bigDecimal;
+			}
+			value = bigDecimal.toBigInteger();
+		}
+		if (value instanceof BigInteger) {
+			BigInteger bigInteger = (BigInteger) value;
+			return bigInteger.bitLength() < 64 ? bigInteger.longValue() : bigInteger;
+		}
+		return value;
+	}
+
+	private static int getCapacity(int expectedSize) {
+		return expectedSize < 3 ? 4 : (int) Math.min(expectedSize / 0.75f + 1, 1 << 30);
+	}
+
+}
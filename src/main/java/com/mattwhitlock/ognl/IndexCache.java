@@ -0,0 +1,216 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash indices built on demand for collections that are repeatedly scanned by equality selections, such as
+ * {@code refs.{? code == #code }}. Set as the {@link Context#indexCache} of the contexts in which such selections are
+ * evaluated, a cache counts the scans of each pair of a collection (by identity) and a key path, and once a pair has
+ * been scanned the given number of times, it indexes the collection by the key path and answers later selections
+ * from the index.
+ * <p>
+ * An index is discarded when its collection is found to have changed: when the {@link Versioned#getVersion() version}
+ * of a {@link Versioned} collection or the size of any other collection or array differs from when the index was
+ * built. Changes that replace elements without changing the size of a collection that is not {@link Versioned} are
+ * <em>not</em> detected, so such collections should be {@link Versioned} or not modified once they are in use.
+ * <p>
+ * The estimated memory used by the indices is kept within the given budget by discarding the least recently used
+ * indices. The cache holds only weak references to the collections.
+ *
+ * @author Matt Whitlock
+ */
+public final class IndexCache {
+
+	/**
+	 * A collection that counts its modifications, like {@code modCount} in {@link java.util.AbstractList}.
+	 */
+	public interface Versioned {
+
+		/**
+		 * @return a value that changes whenever the elements of this collection change
+		 */
+		long getVersion();
+
+	}
+
+	private static final class Key {
+
+		final WeakReference<Object> source;
+		final Expression keyExpr;
+		final int hashCode;
+
+		Key(Object source, Expression keyExpr) {
+			this.source = new WeakReference<>(source);
+			this.keyExpr = keyExpr;
+			hashCode = System.identityHashCode(source) * 31 + keyExpr.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key o = (Key) obj;
+			Object source = this.source.get();
+			return source != null && source == o.source.get() && keyExpr.equals(o.keyExpr);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+	}
+
+	private static final class Entry {
+
+		int scans;
+		HashMap<Object, ArrayList<Object>> index;
+		long version;
+		int size;
+		long weight;
+
+		Entry() {
+		}
+
+	}
+
+	/**
+	 * The number of collections whose scans are counted before they are hot enough to index, beyond which the least
+	 * recently scanned are forgotten.
+	 */
+	private static final int MAX_ENTRIES = 4096;
+
+	private final int threshold;
+	private final long budget;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight;
+
+	/**
+	 * @param threshold
+	 *            the number of scans of a collection by a key path after which it is indexed by that key path
+	 * @param budget
+	 *            the estimated number of bytes that the indices may occupy in total
+	 */
+	public IndexCache(int threshold, long budget) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("threshold must be positive");
+		}
+		this.threshold = threshold;
+		this.budget = budget;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * @return the elements of the given collection or array whose values of the given key expression equal the given
+	 *         value, as by {@link Expression#equals(Object, Object)}, or null if the pair of the collection and the key
+	 *         expression is not yet hot, in which case the caller must scan the collection
+	 */
+	List<Object> select(Context context, Object source, Expression keyExpr, Object value) throws OgnlException {
+		long version = source instanceof Versioned ? ((Versioned) source).getVersion() : 0;
+		int size = getSize(source);
+		Key key = new Key(source, keyExpr);
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry == null) {
+				entries.put(key, entry = new Entry());
+				if (entries.size() > MAX_ENTRIES) {
+					evict(MAX_ENTRIES, Long.MAX_VALUE);
+				}
+			}
+			else if (entry.index != null && (entry.version != version || entry.size != size)) {
+				// the collection has changed since it was indexed
+				weight -= entry.weight;
+				entry.index = null;
+				entry.weight = 0;
+				entry.scans = 0;
+			}
+			if (entry.index != null) {
+				ArrayList<Object> matches = entry.index.get(Grouping.getHashKey(value));
+				return matches == null ? new ArrayList<>(0) : new ArrayList<>(matches);
+			}
+			if (++entry.scans < threshold) {
+				return null;
+			}
+		}
+		HashMap<Object, ArrayList<Object>> index = new HashMap<>();
+		for (Iterator<?> iterator = Expression.asIterator(source); iterator.hasNext();) {
+			Object element = iterator.next();
+			index.computeIfAbsent(Grouping.getHashKey(keyExpr.getValue(context, element)), k -> new ArrayList<>(1)).add(element);
+		}
+		long indexWeight = index.size() * 80L + size * 8L;
+		synchronized (this) {
+			if (indexWeight <= budget && entries.get(key) == entry && entry.index == null) {
+				entry.index = index;
+				entry.version = version;
+				entry.size = size;
+				entry.weight = indexWeight;
+				weight += indexWeight;
+				evict(Integer.MAX_VALUE, budget);
+			}
+			else {
+				entry.scans = 0;
+			}
+		}
+		ArrayList<Object> matches = index.get(Grouping.getHashKey(value));
+		return matches == null ? new ArrayList<>(0) : new ArrayList<>(matches);
+	}
+
+	/**
+	 * Forgets the least recently used entries until there are no more than the given number of them and their indices
+	 * weigh no more than the given budget. Entries whose collections have been collected are forgotten first.
+	 */
+	private void evict(int maxEntries, long budget) {
+		for (Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<Key, Entry> mapEntry = iterator.next();
+			if (mapEntry.getKey().source.get() == null) {
+				weight -= mapEntry.getValue().weight;
+				iterator.remove();
+			}
+		}
+		for (Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext() && (entries.size() > maxEntries || weight > budget);) {
+			weight -= iterator.next().getValue().weight;
+			iterator.remove();
+		}
+	}
+
+	static boolean isIndexable(Object source) {
+		return source instanceof Collection<?> || source != null && source.getClass().isArray();
+	}
+
+	private static int getSize(Object source) {
+		return source instanceof Collection<?> ? ((Collection<?>) source).size() : Expression.ArrayAccessor.forClass.get(source.getClass()).getLength(source);
+	}
+
+	/**
+	 * @return the number of indices currently held
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (Entry entry : entries.values()) {
+			if (entry.index != null) {
+				++size;
+			}
+		}
+		return size;
+	}
+
+}
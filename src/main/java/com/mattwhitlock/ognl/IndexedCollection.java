@@ -0,0 +1,35 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.Collection;
+
+/**
+ * A collection that maintains indices of its elements by the values of key expressions. A {@link Expression.Selection}
+ * over an indexed collection whose sub-expression compares a key path, such as {@code region} or
+ * {@code customer.region}, with literals and variables, as in {@code users.{? region == #r }} or
+ * {@code events.{? ts >= #from && ts < #to }}, asks the collection for the matching elements instead of scanning it.
+ * The key expressions passed to the collection are those of the selections' sub-expressions, which compare equal to
+ * the expressions parsed from the same key paths.
+ *
+ * @author Matt Whitlock
+ */
+public interface IndexedCollection<E> extends Collection<E> {
+
+	/**
+	 * @return the elements whose values of the given key expression equal the given value, as by
+	 *         {@link Expression#equals(Object, Object)}, or null if this collection has no index by that key that can
+	 *         answer the lookup
+	 */
+	Collection<E> lookup(Expression keyExpr, Object value);
+
+	/**
+	 * Returns the elements whose values of the given key expression lie between the given bounds, as ordered by
+	 * {@link Expression#compare(Object, Object)}. A null bound is unbounded.
+	 *
+	 * @return the elements in the range, or null if this collection has no sorted index by that key
+	 */
+	Collection<E> range(Expression keyExpr, Object from, boolean fromInclusive, Object to, boolean toInclusive);
+
+}
@@ -0,0 +1,802 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Evaluates an expression directly over JSON text. The chains of property accesses and constant index accesses from the
+ * root of the expression, such as {@code a.b[3].c} or {@code ["a-b"]}, and the chains that projections and selections
+ * iterate, such as {@code items} in {@code items.{? price > 10 }}, are matched against the document in a single
+ * streaming pass, which materializes only the values those chains read and skips every other subtree without building
+ * it. Operators, conditionals and method invocations on their values are then evaluated without a document tree.
+ * <p>
+ * JSON objects are materialized as {@link LinkedHashMap}s and arrays as {@link ArrayList}s; integers become
+ * {@link Integer}, {@link Long} or {@link BigInteger}, and other numbers {@link Double}. The chains are evaluated by
+ * the expression itself against a partial document holding the objects and arrays they step through and the values
+ * they end at, and a value is materialized in full wherever a step does not simply select a member of an object or an
+ * element of an array, so a chain has the same value, or fails with the same exception, as against the whole document.
+ * Any other part of the expression is evaluated against the whole materialized document.
+ *
+ * @author Matt Whitlock
+ */
+public final class JsonEvaluator {
+
+	private static class PathNode {
+
+		final LinkedHashMap<Object, PathNode> children = new LinkedHashMap<>(2);
+
+		/**
+		 * Whether a chain ends at this node, which is then materialized in full.
+		 */
+		boolean end;
+
+		/**
+		 * Whether every child is a key, or every child an index, and so may be selected from an object, or from an
+		 * array, as it is streamed.
+		 */
+		boolean keys = true, indices = true;
+
+		/**
+		 * The number of nodes below this one.
+		 */
+		int descendants;
+
+	}
+
+	private static abstract class Node {
+
+		abstract Object evaluate(Context context, Object document) throws OgnlException;
+
+	}
+
+	private static class RootlessNode extends Node {
+
+		final Expression expression;
+
+		RootlessNode(Expression expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			return expression.getValue(context, null);
+		}
+
+	}
+
+	private static class UnaryNode extends Node {
+
+		final Expression.Unary expression;
+		final Node operand;
+
+		UnaryNode(Expression.Unary expression, Node operand) {
+			this.expression = expression;
+			this.operand = operand;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			return expression.apply(operand.evaluate(context, document));
+		}
+
+	}
+
+	private static class BinaryNode extends Node {
+
+		final Expression.Binary expression;
+		final Node left, right;
+
+		BinaryNode(Expression.Binary expression, Node left, Node right) {
+			this.expression = expression;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			return expression.apply(left.evaluate(context, document), right.evaluate(context, document));
+		}
+
+	}
+
+	private static class FoldNode extends Node {
+
+		final Expression.Nary expression;
+		final Node[] operands;
+
+		FoldNode(Expression.Nary expression, Node[] operands) {
+			this.expression = expression;
+			this.operands = operands;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			Node[] operands = this.operands;
+			if (expression instanceof Expression.Arithmetic) {
+				Expression.Arithmetic arithmetic = (Expression.Arithmetic) expression;
+				Object value = arithmetic.begin(operands[0].evaluate(context, document));
+				for (int index = 1; index < operands.length; ++index) {
+					value = arithmetic.step(value, operands[index].evaluate(context, document));
+				}
+				return value;
+			}
+			Expression.Bitwise bitwise = (Expression.Bitwise) expression;
+			Object value = bitwise.begin(operands[0].evaluate(context, document));
+			for (int index = 1; index < operands.length; ++index) {
+				value = bitwise.step(value, operands[index].evaluate(context, document));
+			}
+			return value;
+		}
+
+	}
+
+	private static class LogicalNode extends Node {
+
+		final boolean shortCircuitValue;
+		final Node[] operands;
+
+		LogicalNode(boolean shortCircuitValue, Node[] operands) {
+			this.shortCircuitValue = shortCircuitValue;
+			this.operands = operands;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			Node[] operands = this.operands;
+			int lastIndex = operands.length - 1;
+			for (int index = 0; index < lastIndex; ++index) {
+				Object value = operands[index].evaluate(context, document);
+				if (Expression.asBoolean(value) == shortCircuitValue) {
+					return value;
+				}
+			}
+			return operands[lastIndex].evaluate(context, document);
+		}
+
+	}
+
+	private static class ConditionalNode extends Node {
+
+		final Node condition, trueNode, falseNode;
+
+		ConditionalNode(Node condition, Node trueNode, Node falseNode) {
+			this.condition = condition;
+			this.trueNode = trueNode;
+			this.falseNode = falseNode;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			return (Expression.asBoolean(condition.evaluate(context, document)) ? trueNode : falseNode).evaluate(context, document);
+		}
+
+	}
+
+	/**
+	 * Invokes a method on a matched value, passing that value and the arguments to a qualified invocation of the method
+	 * as variables of a fork of the context, so the invocation sees the same settings as the caller but never its global
+	 * methods.
+	 */
+	private static class MethodNode extends Node {
+
+		final Node target;
+		final Node[] args;
+		final Expression targetExpr;
+		final Expression.MethodInvocation invocation;
+
+		MethodNode(Expression.MethodInvocation expression, Node target, Node[] args) {
+			this.target = target;
+			this.args = args;
+			targetExpr = expression.objExpr;
+			Expression[] argExprs = new Expression[args.length];
+			for (int index = 0; index < argExprs.length; ++index) {
+				argExprs[index] = new Expression.VariableReference("arg" + index);
+			}
+			invocation = new Expression.MethodInvocation(new Expression.VariableReference("target"), expression.methodName, argExprs);
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			Object target = this.target.evaluate(context, document);
+			if (target == null) {
+				throw new NullPointerException(targetExpr.toString());
+			}
+			Context fork = context.fork();
+			if (fork.variables == null) {
+				fork.variables = new HashMap<>();
+			}
+			fork.variables.put("target", target);
+			for (int index = 0; index < args.length; ++index) {
+				fork.variables.put("arg" + index, args[index].evaluate(context, document));
+			}
+			return invocation.getValue(fork, null);
+		}
+
+	}
+
+	/**
+	 * Evaluates an expression against the document, which is only partially materialized if the expression is a chain
+	 * whose path was scanned.
+	 */
+	private static class DocumentNode extends Node {
+
+		final Expression expression;
+
+		DocumentNode(Expression expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		Object evaluate(Context context, Object document) throws OgnlException {
+			return expression.getValue(context, document);
+		}
+
+	}
+
+	private static abstract class Source {
+
+		abstract int length();
+
+		abstract int charAt(int index);
+
+		abstract String substring(int start, int end);
+
+	}
+
+	private static class CharSequenceSource extends Source {
+
+		final CharSequence chars;
+
+		CharSequenceSource(CharSequence chars) {
+			this.chars = chars;
+		}
+
+		@Override
+		int length() {
+			return chars.length();
+		}
+
+		@Override
+		int charAt(int index) {
+			return chars.charAt(index);
+		}
+
+		@Override
+		String substring(int start, int end) {
+			return chars.subSequence(start, end).toString();
+		}
+
+	}
+
+	/**
+	 * Reads UTF-8 bytes in place. The structural characters of JSON are all ASCII, and no byte of a multi-byte UTF-8
+	 * sequence is, so only the strings that are materialized need to be decoded.
+	 */
+	private static class ByteBufferSource extends Source {
+
+		final ByteBuffer bytes;
+		final int base, length;
+
+		ByteBufferSource(ByteBuffer bytes) {
+			this.bytes = bytes;
+			base = bytes.position();
+			length = bytes.remaining();
+		}
+
+		@Override
+		int length() {
+			return length;
+		}
+
+		@Override
+		int charAt(int index) {
+			return bytes.get(base + index) & 0xFF;
+		}
+
+		@Override
+		String substring(int start, int end) {
+			byte[] array = new byte[end - start];
+			for (int index = 0; index < array.length; ++index) {
+				array[index] = bytes.get(base + start + index);
+			}
+			return new String(array, StandardCharsets.UTF_8);
+		}
+
+	}
+
+	private static class Scanner {
+
+		final Source source;
+		final int length;
+		int pos, pending;
+
+		Scanner(Source source) {
+			this.source = source;
+			length = source.length();
+		}
+
+		/**
+		 * Scans the value at the current position into the partial document that the paths below the given node read,
+		 * materializing the value in full if a path ends at it or steps into it other than by selecting a member of an
+		 * object or an element of an array that it has, and else skipping every member or element that no path steps
+		 * into. Returns early, leaving the rest of the input unread, once every path has been resolved.
+		 */
+		Object scan(PathNode node) throws ParseException {
+			int start = pos, pendingAtStart = pending;
+			if (!node.end) {
+				int c = peek();
+				if (c == '{' && node.keys) {
+					++pos;
+					LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+					if (peek() == '}') {
+						++pos;
+					}
+					else {
+						do {
+							String key = parseString();
+							expect(':');
+							PathNode child = node.children.get(key);
+							if (child == null) {
+								skipValue();
+							}
+							else {
+								--pending;
+								map.put(key, scan(child));
+								if (pending == 0) {
+									return map;
+								}
+							}
+						} while (next(',', '}'));
+					}
+					if (map.size() == node.children.size()) {
+						return map;
+					}
+				}
+				else if (c == '[' && node.indices) {
+					++pos;
+					ArrayList<Object> list = new ArrayList<>();
+					int found = 0;
+					if (peek() == ']') {
+						++pos;
+					}
+					else {
+						int index = 0;
+						do {
+							PathNode child = node.children.get(index);
+							if (child == null) {
+								skipValue();
+							}
+							else {
+								// the elements that no path reads are left null
+								while (list.size() < index) {
+									list.add(null);
+								}
+								--pending;
+								list.add(scan(child));
+								++found;
+								if (pending == 0) {
+									return list;
+								}
+							}
+							++index;
+						} while (next(',', ']'));
+					}
+					if (found == node.children.size()) {
+						return list;
+					}
+				}
+				// a path steps into this value other than by selecting one of its members or elements
+				pos = start;
+			}
+			pending = pendingAtStart - node.descendants;
+			return parseValue();
+		}
+
+		Object parseValue() throws ParseException {
+			int c = peek();
+			switch (c) {
+				case '{': {
+					++pos;
+					LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+					if (peek() == '}') {
+						++pos;
+						return map;
+					}
+					do {
+						String key = parseString();
+						expect(':');
+						map.put(key, parseValue());
+					} while (next(',', '}'));
+					return map;
+				}
+				case '[': {
+					++pos;
+					ArrayList<Object> list = new ArrayList<>();
+					if (peek() == ']') {
+						++pos;
+						return list;
+					}
+					do {
+						list.add(parseValue());
+					} while (next(',', ']'));
+					return list;
+				}
+				case '"':
+					return parseString();
+				case 't':
+					expectWord("true");
+					return Boolean.TRUE;
+				case 'f':
+					expectWord("false");
+					return Boolean.FALSE;
+				case 'n':
+					expectWord("null");
+					return null;
+				default:
+					return parseNumber();
+			}
+		}
+
+		String parseString() throws ParseException {
+			if (peek() != '"') {
+				throw error("expected string");
+			}
+			int start = ++pos;
+			StringBuilder sb = null;
+			for (;;) {
+				if (pos >= length) {
+					throw error("unterminated string");
+				}
+				int c = source.charAt(pos);
+				if (c == '"') {
+					String string = source.substring(start, pos++);
+					return sb == null ? string : sb.append(string).toString();
+				}
+				if (c == '\\') {
+					if (sb == null) {
+						sb = new StringBuilder();
+					}
+					sb.append(source.substring(start, pos));
+					if (++pos >= length) {
+						throw error("unterminated string");
+					}
+					switch (c = source.charAt(pos++)) {
+						case 'b':
+							sb.append('\b');
+							break;
+						case 'f':
+							sb.append('\f');
+							break;
+						case 'n':
+							sb.append('\n');
+							break;
+						case 'r':
+							sb.append('\r');
+							break;
+						case 't':
+							sb.append('\t');
+							break;
+						case 'u':
+							if (pos + 4 > length) {
+								throw error("truncated escape sequence");
+							}
+							try {
+								sb.append((char) Integer.parseInt(source.substring(pos, pos += 4), 16));
+							}
+							catch (NumberFormatException e) {
+								throw error("invalid escape sequence");
+							}
+							break;
+						default:
+							sb.append((char) c);
+					}
+					start = pos;
+				}
+				else {
+					++pos;
+				}
+			}
+		}
+
+		Object parseNumber() throws ParseException {
+			int start = pos;
+			boolean integral = true;
+			for (; pos < length; ++pos) {
+				int c = source.charAt(pos);
+				if (c == '.' || c == 'e' || c == 'E') {
+					integral = false;
+				}
+				else if ((c < '0' || c > '9') && c != '-' && c != '+') {
+					break;
+				}
+			}
+			if (pos == start) {
+				throw error("unexpected character");
+			}
+			String string = source.substring(start, pos);
+			try {
+				if (integral) {
+					if (string.length() <= 18) {
+						long value = Long.parseLong(string);
+						return value == (int) value ? (Object) (int) value : (Object) value;
+					}
+					BigInteger value = new BigInteger(string);
+					return value.bitLength() < 64 ? (Object) value.longValue() : value;
+				}
+				return new BigDecimal(string).doubleValue();
+			}
+			catch (NumberFormatException e) {
+				throw error("invalid number");
+			}
+		}
+
+		void skipValue() throws ParseException {
+			int c = peek();
+			if (c == '"') {
+				skipString();
+				return;
+			}
+			if (c != '{' && c != '[') {
+				// scalars end at the next delimiter
+				while (pos < length && (c = source.charAt(pos)) != ',' && c != '}' && c != ']' && !isWhitespace(c)) {
+					++pos;
+				}
+				return;
+			}
+			int depth = 0;
+			do {
+				if (pos >= length) {
+					throw error("unexpected end of input");
+				}
+				c = source.charAt(pos);
+				if (c == '"') {
+					skipString();
+					continue;
+				}
+				if (c == '{' || c == '[') {
+					++depth;
+				}
+				else if (c == '}' || c == ']') {
+					--depth;
+				}
+				++pos;
+			} while (depth > 0);
+		}
+
+		private void skipString() throws ParseException {
+			for (++pos; pos < length; ++pos) {
+				int c = source.charAt(pos);
+				if (c == '\\') {
+					++pos;
+				}
+				else if (c == '"') {
+					++pos;
+					return;
+				}
+			}
+			throw error("unterminated string");
+		}
+
+		private int peek() throws ParseException {
+			while (pos < length && isWhitespace(source.charAt(pos))) {
+				++pos;
+			}
+			if (pos >= length) {
+				throw error("unexpected end of input");
+			}
+			return source.charAt(pos);
+		}
+
+		private void expect(char expected) throws ParseException {
+			if (peek() != expected) {
+				throw error("expected '" + expected + '\'');
+			}
+			++pos;
+		}
+
+		private void expectWord(String word) throws ParseException {
+			for (int index = 0; index < word.length(); ++index, ++pos) {
+				if (pos >= length || source.charAt(pos) != word.charAt(index)) {
+					throw error("expected " + word);
+				}
+			}
+		}
+
+		/**
+		 * Consumes either a separator, returning true, or a terminator, returning false.
+		 */
+		private boolean next(char separator, char terminator) throws ParseException {
+			int c = peek();
+			++pos;
+			if (c == separator) {
+				return true;
+			}
+			if (c == terminator) {
+				return false;
+			}
+			throw error("expected '" + separator + "' or '" + terminator + '\'');
+		}
+
+		private ParseException error(String message) {
+			return new ParseException(message + " at offset " + pos, pos);
+		}
+
+		private static boolean isWhitespace(int c) {
+			return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+		}
+
+	}
+
+	private final Node root;
+	private final PathNode paths = new PathNode();
+	private final boolean needsDocument;
+
+	private JsonEvaluator(Expression expression) {
+		ArrayList<Expression> documentExprs = new ArrayList<>(0);
+		root = compile(expression, documentExprs);
+		needsDocument = !documentExprs.isEmpty();
+	}
+
+	public static JsonEvaluator compile(Expression expression) {
+		return new JsonEvaluator(expression);
+	}
+
+	public Object getValue(Context context, CharSequence json) throws ParseException, OgnlException {
+		return getValue(context, new CharSequenceSource(json));
+	}
+
+	/**
+	 * Evaluates over the UTF-8 encoded JSON between the position and the limit of the given buffer, without changing
+	 * its position.
+	 */
+	public Object getValue(Context context, ByteBuffer json) throws ParseException, OgnlException {
+		return getValue(context, new ByteBufferSource(json));
+	}
+
+	private Object getValue(Context context, Source source) throws ParseException, OgnlException {
+		if (context == null) {
+			context = new Context();
+		}
+		Scanner scanner = new Scanner(source);
+		Object document = null;
+		if (needsDocument) {
+			document = scanner.parseValue();
+		}
+		else if (paths.descendants > 0) {
+			scanner.pending = paths.descendants;
+			document = scanner.scan(paths);
+		}
+		return root.evaluate(context, document);
+	}
+
+	private Node compile(Expression expression, List<Expression> documentExprs) {
+		List<Object> path = getPath(getSource(expression));
+		if (path != null) {
+			addPath(path);
+			return new DocumentNode(expression);
+		}
+		if (expression instanceof Expression.Literal || expression instanceof Expression.VariableReference || expression instanceof Expression.StaticFieldAccess) {
+			return new RootlessNode(expression);
+		}
+		if (expression instanceof Expression.Unary) {
+			return new UnaryNode((Expression.Unary) expression, compile(((Expression.Unary) expression).expression, documentExprs));
+		}
+		if (expression instanceof Expression.Binary && !(expression instanceof Expression.Assignment)) {
+			Expression.Binary binary = (Expression.Binary) expression;
+			return new BinaryNode(binary, compile(binary.leftExpr, documentExprs), compile(binary.rightExpr, documentExprs));
+		}
+		if (expression instanceof Expression.Arithmetic || expression instanceof Expression.Bitwise) {
+			return new FoldNode((Expression.Nary) expression, compile(((Expression.Nary) expression).expressions, documentExprs));
+		}
+		if (expression instanceof Expression.Logical) {
+			return new LogicalNode(((Expression.Logical) expression).getShortCircuitValue(), compile(((Expression.Logical) expression).expressions, documentExprs));
+		}
+		if (expression instanceof Expression.Conditional) {
+			Expression.Conditional conditional = (Expression.Conditional) expression;
+			return new ConditionalNode(compile(conditional.condExpr, documentExprs), compile(conditional.trueExpr, documentExprs), compile(conditional.falseExpr, documentExprs));
+		}
+		if (expression instanceof Expression.MethodInvocation && ((Expression.MethodInvocation) expression).objExpr != null) {
+			Expression.MethodInvocation methodInvocation = (Expression.MethodInvocation) expression;
+			return new MethodNode(methodInvocation, compile(methodInvocation.objExpr, documentExprs), compile(methodInvocation.argExprs, documentExprs));
+		}
+		documentExprs.add(expression);
+		return new DocumentNode(expression);
+	}
+
+	private void addPath(List<Object> path) {
+		ArrayList<PathNode> nodes = new ArrayList<>(path.size() + 1);
+		nodes.add(paths);
+		for (Object key : path) {
+			PathNode node = nodes.get(nodes.size() - 1), child = node.children.get(key);
+			if (child == null) {
+				node.children.put(key, child = new PathNode());
+				node.keys &= key instanceof String;
+				node.indices &= key instanceof Integer && (Integer) key >= 0;
+				for (PathNode ancestor : nodes) {
+					++ancestor.descendants;
+				}
+			}
+			nodes.add(child);
+		}
+		nodes.get(nodes.size() - 1).end = true;
+	}
+
+	private Node[] compile(Expression[] expressions, List<Expression> documentExprs) {
+		Node[] nodes = new Node[expressions.length];
+		for (int index = 0; index < expressions.length; ++index) {
+			nodes[index] = compile(expressions[index], documentExprs);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns the expression that a chain of projections and selections iterates, which is the only part of the chain
+	 * evaluated against the root, or the given expression itself if it is neither a projection nor a selection.
+	 */
+	private static Expression getSource(Expression expression) {
+		for (;;) {
+			if (expression instanceof Expression.Projection) {
+				expression = ((Expression.Projection) expression).listExpr;
+			}
+			else if (expression instanceof Expression.Selection) {
+				expression = ((Expression.Selection) expression).listExpr;
+			}
+			else {
+				return expression;
+			}
+		}
+	}
+
+	/**
+	 * Returns the keys and indices of a chain of property accesses and constant index accesses from the root, or null
+	 * if the given expression is not such a chain.
+	 */
+	private static List<Object> getPath(Expression expression) {
+		if (expression instanceof Expression.PropertyAccess) {
+			Expression.PropertyAccess propertyAccess = (Expression.PropertyAccess) expression;
+			return append(getPrefix(propertyAccess.objExpr), propertyAccess.propertyName);
+		}
+		if (expression instanceof Expression.IndexedPropertyAccess) {
+			Expression.IndexedPropertyAccess indexedPropertyAccess = (Expression.IndexedPropertyAccess) expression;
+			return append(append(getPrefix(indexedPropertyAccess.objExpr), indexedPropertyAccess.propertyName), getKey(indexedPropertyAccess.indexExpr));
+		}
+		if (expression instanceof Expression.IndexAccess) {
+			Expression.IndexAccess indexAccess = (Expression.IndexAccess) expression;
+			return append(getPrefix(indexAccess.objExpr), getKey(indexAccess.indexExpr));
+		}
+		return null;
+	}
+
+	private static List<Object> getPrefix(Expression objExpr) {
+		return objExpr == null ? new ArrayList<>(4) : getPath(objExpr);
+	}
+
+	private static Object getKey(Expression indexExpr) {
+		if (indexExpr instanceof Expression.Literal) {
+			Object value = ((Expression.Literal<?>) indexExpr).value;
+			if (value instanceof String || value instanceof Integer) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	private static List<Object> append(List<Object> path, Object key) {
+		if (path == null || key == null) {
+			return null;
+		}
+		path.add(key);
+		return path;
+	}
+
+}
@@ -0,0 +1,1011 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+/**
+ * A node of an expression compiled for evaluation over the columns of a {@link Table}, computing its values for a chunk
+ * of rows at a time. Integral values are held in a {@code long[]} and floating-point values in a {@code double[]};
+ * results of {@code int} and {@code float} operations are narrowed after every operation, so they wrap and round
+ * exactly as they do in the tree evaluator, and {@code byte} and {@code short} values keep their types until an
+ * operation promotes them, as it does there.
+ *
+ * @author Matt Whitlock
+ */
+abstract class Kernel {
+
+	static class ConstantKernel extends Kernel {
+
+		ConstantKernel(Object value) {
+			super(kindOf(value));
+			for (int i = 0; i < CHUNK_SIZE; ++i) {
+				switch (kind) {
+					case BYTE:
+					case SHORT:
+					case INT:
+					case LONG:
+						longs[i] = ((Number) value).longValue();
+						break;
+					case FLOAT:
+					case DOUBLE:
+						doubles[i] = ((Number) value).doubleValue();
+						break;
+					case BOOLEAN:
+						booleans[i] = (Boolean) value;
+						break;
+					default:
+						objects[i] = value;
+				}
+			}
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) {
+		}
+
+		private static int kindOf(Object value) {
+			if (value instanceof Integer) {
+				return INT;
+			}
+			if (value instanceof Short) {
+				return SHORT;
+			}
+			if (value instanceof Byte) {
+				return BYTE;
+			}
+			if (value instanceof Long) {
+				return LONG;
+			}
+			if (value instanceof Float) {
+				return FLOAT;
+			}
+			if (value instanceof Double) {
+				return DOUBLE;
+			}
+			if (value instanceof Boolean) {
+				return BOOLEAN;
+			}
+			return OBJECT;
+		}
+
+	}
+
+	static class ColumnKernel extends Kernel {
+
+		final Column column;
+
+		ColumnKernel(Column column) {
+			super(kindOf(column.getType()));
+			this.column = column;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) {
+			switch (kind) {
+				case BYTE:
+				case SHORT:
+				case INT:
+				case LONG:
+					column.getLongs(start, length, longs);
+					break;
+				case FLOAT:
+				case DOUBLE:
+					column.getDoubles(start, length, doubles);
+					break;
+				case BOOLEAN:
+					column.getBooleans(start, length, booleans);
+					break;
+				default:
+					column.getObjects(start, length, objects);
+			}
+		}
+
+		private static int kindOf(Class<?> type) {
+			if (type == int.class) {
+				return INT;
+			}
+			if (type == short.class) {
+				return SHORT;
+			}
+			if (type == byte.class) {
+				return BYTE;
+			}
+			if (type == long.class) {
+				return LONG;
+			}
+			if (type == float.class) {
+				return FLOAT;
+			}
+			if (type == double.class) {
+				return DOUBLE;
+			}
+			if (type == boolean.class) {
+				return BOOLEAN;
+			}
+			return OBJECT;
+		}
+
+	}
+
+	static class ArithmeticKernel extends Kernel {
+
+		private static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3, REMAINDER = 4;
+
+		final int operator;
+		final Kernel[] operands;
+		final double[] operandDoubles;
+
+		ArithmeticKernel(Expression.Arithmetic expression, Kernel[] operands) {
+			super(maxKind(operands));
+			this.operands = operands;
+			if (expression instanceof Expression.Arithmetic.Addition) {
+				operator = ADD;
+			}
+			else if (expression instanceof Expression.Arithmetic.Subtraction) {
+				operator = SUBTRACT;
+			}
+			else if (expression instanceof Expression.Arithmetic.Multiplication) {
+				operator = MULTIPLY;
+			}
+			else if (expression instanceof Expression.Arithmetic.Division) {
+				operator = DIVIDE;
+			}
+			else {
+				operator = REMAINDER;
+			}
+			if (isIntegral(operands[0].kind) && !isIntegral(kind)) {
+				longs = new long[CHUNK_SIZE];
+			}
+			operandDoubles = isIntegral(kind) ? null : new double[CHUNK_SIZE];
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			Kernel[] operands = this.operands;
+			Kernel first = operands[0];
+			first.evaluate(start, length, active);
+			int accKind = first.kind;
+			if (isIntegral(accKind)) {
+				System.arraycopy(first.longs, 0, longs, 0, length);
+			}
+			else {
+				System.arraycopy(first.doubles, 0, doubles, 0, length);
+			}
+			for (int index = 1; index < operands.length; ++index) {
+				Kernel operand = operands[index];
+				operand.evaluate(start, length, active);
+				int stepKind = Math.max(INT, Math.max(accKind, operand.kind));
+				if (stepKind == INT) {
+					applyInt(longs, operand.longs, length, active);
+				}
+				else if (stepKind == LONG) {
+					applyLong(longs, operand.longs, length, active);
+				}
+				else {
+					if (isIntegral(accKind)) {
+						widen(longs, doubles, length, stepKind == FLOAT);
+					}
+					double[] operandDoubles = operand.doubles;
+					if (isIntegral(operand.kind)) {
+						widen(operand.longs, operandDoubles = this.operandDoubles, length, stepKind == FLOAT);
+					}
+					if (stepKind == FLOAT) {
+						applyFloat(doubles, operandDoubles, length);
+					}
+					else {
+						applyDouble(doubles, operandDoubles, length);
+					}
+				}
+				accKind = stepKind;
+			}
+		}
+
+		private void applyInt(long[] values, long[] operands, int length, boolean[] active) {
+			switch (operator) {
+				case ADD:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (int) values[i] + (int) operands[i];
+					}
+					break;
+				case SUBTRACT:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (int) values[i] - (int) operands[i];
+					}
+					break;
+				case MULTIPLY:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (int) values[i] * (int) operands[i];
+					}
+					break;
+				case DIVIDE:
+					for (int i = 0; i < length; ++i) {
+						if (active == null || active[i]) {
+							values[i] = (int) values[i] / (int) operands[i];
+						}
+					}
+					break;
+				default:
+					for (int i = 0; i < length; ++i) {
+						if (active == null || active[i]) {
+							values[i] = (int) values[i] % (int) operands[i];
+						}
+					}
+			}
+		}
+
+		private void applyLong(long[] values, long[] operands, int length, boolean[] active) {
+			switch (operator) {
+				case ADD:
+					for (int i = 0; i < length; ++i) {
+						values[i] += operands[i];
+					}
+					break;
+				case SUBTRACT:
+					for (int i = 0; i < length; ++i) {
+						values[i] -= operands[i];
+					}
+					break;
+				case MULTIPLY:
+					for (int i = 0; i < length; ++i) {
+						values[i] *= operands[i];
+					}
+					break;
+				case DIVIDE:
+					for (int i = 0; i < length; ++i) {
+						if (active == null || active[i]) {
+							values[i] /= operands[i];
+						}
+					}
+					break;
+				default:
+					for (int i = 0; i < length; ++i) {
+						if (active == null || active[i]) {
+							values[i] %= operands[i];
+						}
+					}
+			}
+		}
+
+		private void applyFloat(double[] values, double[] operands, int length) {
+			switch (operator) {
+				case ADD:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (float) values[i] + (float) operands[i];
+					}
+					break;
+				case SUBTRACT:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (float) values[i] - (float) operands[i];
+					}
+					break;
+				case MULTIPLY:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (float) values[i] * (float) operands[i];
+					}
+					break;
+				case DIVIDE:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (float) values[i] / (float) operands[i];
+					}
+					break;
+				default:
+					for (int i = 0; i < length; ++i) {
+						values[i] = (float) values[i] % (float) operands[i];
+					}
+			}
+		}
+
+		private void applyDouble(double[] values, double[] operands, int length) {
+			switch (operator) {
+				case ADD:
+					for (int i = 0; i < length; ++i) {
+						values[i] += operands[i];
+					}
+					break;
+				case SUBTRACT:
+					for (int i = 0; i < length; ++i) {
+						values[i] -= operands[i];
+					}
+					break;
+				case MULTIPLY:
+					for (int i = 0; i < length; ++i) {
+						values[i] *= operands[i];
+					}
+					break;
+				case DIVIDE:
+					for (int i = 0; i < length; ++i) {
+						values[i] /= operands[i];
+					}
+					break;
+				default:
+					for (int i = 0; i < length; ++i) {
+						values[i] %= operands[i];
+					}
+			}
+		}
+
+	}
+
+	static class CompareKernel extends Kernel {
+
+		private static final int LESS = 0, LESS_OR_EQUAL = 1, GREATER = 2, GREATER_OR_EQUAL = 3, EQUAL = 4, NOT_EQUAL = 5;
+
+		final int predicate, compareKind;
+		final Kernel left, right;
+		final int[] comparisons = new int[CHUNK_SIZE];
+		final double[] leftDoubles, rightDoubles;
+
+		CompareKernel(Expression.Binary expression, Kernel left, Kernel right) {
+			super(BOOLEAN);
+			if (expression instanceof Expression.Comparison.Less) {
+				predicate = LESS;
+			}
+			else if (expression instanceof Expression.Comparison.LessOrEqual) {
+				predicate = LESS_OR_EQUAL;
+			}
+			else if (expression instanceof Expression.Comparison.Greater) {
+				predicate = GREATER;
+			}
+			else if (expression instanceof Expression.Comparison.GreaterOrEqual) {
+				predicate = GREATER_OR_EQUAL;
+			}
+			else {
+				predicate = expression instanceof Expression.Equal.Not ? NOT_EQUAL : EQUAL;
+			}
+			this.left = left;
+			this.right = right;
+			// int <> long => long <> long; ? <> double => double <> double; ? <> float => float <> float
+			compareKind = isIntegral(left.kind) && isIntegral(right.kind) ? LONG : left.kind == DOUBLE || right.kind == DOUBLE ? DOUBLE : FLOAT;
+			leftDoubles = compareKind != LONG && isIntegral(left.kind) ? new double[CHUNK_SIZE] : null;
+			rightDoubles = compareKind != LONG && isIntegral(right.kind) ? new double[CHUNK_SIZE] : null;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			left.evaluate(start, length, active);
+			right.evaluate(start, length, active);
+			int[] comparisons = this.comparisons;
+			if (compareKind == LONG) {
+				long[] leftLongs = left.longs, rightLongs = right.longs;
+				for (int i = 0; i < length; ++i) {
+					comparisons[i] = Long.compare(leftLongs[i], rightLongs[i]);
+				}
+			}
+			else {
+				double[] leftDoubles = left.doubles, rightDoubles = right.doubles;
+				if (isIntegral(left.kind)) {
+					widen(left.longs, leftDoubles = this.leftDoubles, length, compareKind == FLOAT);
+				}
+				if (isIntegral(right.kind)) {
+					widen(right.longs, rightDoubles = this.rightDoubles, length, compareKind == FLOAT);
+				}
+				for (int i = 0; i < length; ++i) {
+					comparisons[i] = Double.compare(leftDoubles[i], rightDoubles[i]);
+				}
+			}
+			boolean[] booleans = this.booleans;
+			switch (predicate) {
+				case LESS:
+					for (int i = 0; i < length; ++i) {
+						booleans[i] = comparisons[i] < 0;
+					}
+					break;
+				case LESS_OR_EQUAL:
+					for (int i = 0; i < length; ++i) {
+						booleans[i] = comparisons[i] <= 0;
+					}
+					break;
+				case GREATER:
+					for (int i = 0; i < length; ++i) {
+						booleans[i] = comparisons[i] > 0;
+					}
+					break;
+				case GREATER_OR_EQUAL:
+					for (int i = 0; i < length; ++i) {
+						booleans[i] = comparisons[i] >= 0;
+					}
+					break;
+				case EQUAL:
+					for (int i = 0; i < length; ++i) {
+						booleans[i] = comparisons[i] == 0;
+					}
+					break;
+				default:
+					for (int i = 0; i < length; ++i) {
+						booleans[i] = comparisons[i] != 0;
+					}
+			}
+		}
+
+	}
+
+	static class LogicalKernel extends Kernel {
+
+		final boolean shortCircuitValue;
+		final Kernel[] operands;
+		final boolean[] pending = new boolean[CHUNK_SIZE];
+
+		LogicalKernel(Expression.Logical expression, Kernel[] operands) {
+			super(allOfKind(operands, BOOLEAN) ? BOOLEAN : OBJECT);
+			shortCircuitValue = expression.getShortCircuitValue();
+			this.operands = operands;
+		}
+
+		/**
+		 * Each operand is evaluated only for the rows whose results have not been decided by the operands before it.
+		 */
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			boolean[] pending = this.pending;
+			for (int i = 0; i < length; ++i) {
+				pending[i] = active == null || active[i];
+			}
+			Kernel[] operands = this.operands;
+			int lastIndex = operands.length - 1;
+			for (int index = 0; index <= lastIndex; ++index) {
+				Kernel operand = operands[index];
+				operand.evaluate(start, length, pending);
+				for (int i = 0; i < length; ++i) {
+					if (pending[i] && (index == lastIndex || operand.test(i) == shortCircuitValue)) {
+						if (kind == BOOLEAN) {
+							booleans[i] = operand.booleans[i];
+						}
+						else {
+							objects[i] = operand.box(i);
+						}
+						pending[i] = false;
+					}
+				}
+			}
+		}
+
+	}
+
+	static class ConditionalKernel extends Kernel {
+
+		final Kernel condition, trueKernel, falseKernel;
+		final boolean[] trueActive = new boolean[CHUNK_SIZE], falseActive = new boolean[CHUNK_SIZE];
+
+		ConditionalKernel(Kernel condition, Kernel trueKernel, Kernel falseKernel) {
+			super(trueKernel.kind == falseKernel.kind ? trueKernel.kind : OBJECT);
+			this.condition = condition;
+			this.trueKernel = trueKernel;
+			this.falseKernel = falseKernel;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			condition.evaluate(start, length, active);
+			boolean[] trueActive = this.trueActive, falseActive = this.falseActive;
+			for (int i = 0; i < length; ++i) {
+				if (active == null || active[i]) {
+					falseActive[i] = !(trueActive[i] = condition.test(i));
+				}
+				else {
+					trueActive[i] = falseActive[i] = false;
+				}
+			}
+			trueKernel.evaluate(start, length, trueActive);
+			falseKernel.evaluate(start, length, falseActive);
+			for (int i = 0; i < length; ++i) {
+				Kernel kernel = trueActive[i] ? trueKernel : falseKernel;
+				switch (kind) {
+					case BYTE:
+					case SHORT:
+					case INT:
+					case LONG:
+						longs[i] = kernel.longs[i];
+						break;
+					case FLOAT:
+					case DOUBLE:
+						doubles[i] = kernel.doubles[i];
+						break;
+					case BOOLEAN:
+						booleans[i] = kernel.booleans[i];
+						break;
+					default:
+						objects[i] = trueActive[i] || falseActive[i] ? kernel.box(i) : null;
+				}
+			}
+		}
+
+	}
+
+	static class NegateKernel extends Kernel {
+
+		final Kernel operand;
+
+		NegateKernel(Kernel operand) {
+			// byte and short values are negated as ints
+			super(Math.max(INT, operand.kind));
+			this.operand = operand;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			operand.evaluate(start, length, active);
+			switch (kind) {
+				case INT:
+					for (int i = 0; i < length; ++i) {
+						longs[i] = -(int) operand.longs[i];
+					}
+					break;
+				case LONG:
+					for (int i = 0; i < length; ++i) {
+						longs[i] = -operand.longs[i];
+					}
+					break;
+				default:
+					for (int i = 0; i < length; ++i) {
+						doubles[i] = -operand.doubles[i];
+					}
+			}
+		}
+
+	}
+
+	static class NotKernel extends Kernel {
+
+		final Kernel operand;
+
+		NotKernel(Kernel operand) {
+			super(BOOLEAN);
+			this.operand = operand;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			operand.evaluate(start, length, active);
+			for (int i = 0; i < length; ++i) {
+				booleans[i] = !operand.test(i);
+			}
+		}
+
+	}
+
+	/**
+	 * Applies a unary operator to boxed operand values, row by row.
+	 */
+	static class UnaryKernel extends Kernel {
+
+		final Expression.Unary expression;
+		final Kernel operand;
+
+		UnaryKernel(Expression.Unary expression, Kernel operand) {
+			super(OBJECT);
+			this.expression = expression;
+			this.operand = operand;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			operand.evaluate(start, length, active);
+			for (int i = 0; i < length; ++i) {
+				if (active == null || active[i]) {
+					objects[i] = expression.apply(operand.box(i));
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Applies a binary operator to boxed operand values, row by row.
+	 */
+	static class BinaryKernel extends Kernel {
+
+		final Expression.Binary expression;
+		final Kernel left, right;
+
+		BinaryKernel(Expression.Binary expression, Kernel left, Kernel right) {
+			super(expression instanceof Expression.Equal || expression instanceof Expression.Comparison || expression instanceof Expression.In ? BOOLEAN : OBJECT);
+			this.expression = expression;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			left.evaluate(start, length, active);
+			right.evaluate(start, length, active);
+			for (int i = 0; i < length; ++i) {
+				if (active == null || active[i]) {
+					Object value = expression.apply(left.box(i), right.box(i));
+					if (kind == BOOLEAN) {
+						booleans[i] = (Boolean) value;
+					}
+					else {
+						objects[i] = value;
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Folds boxed operand values with an arithmetic or bitwise operator, row by row.
+	 */
+	static class FoldKernel extends Kernel {
+
+		final Expression.Nary expression;
+		final Kernel[] operands;
+
+		FoldKernel(Expression.Nary expression, Kernel[] operands) {
+			super(OBJECT);
+			this.expression = expression;
+			this.operands = operands;
+		}
+
+		@Override
+		void evaluate(int start, int length, boolean[] active) throws OgnlException {
+			Kernel[] operands = this.operands;
+			for (Kernel operand : operands) {
+				operand.evaluate(start, length, active);
+			}
+			for (int i = 0; i < length; ++i) {
+				if (active == null || active[i]) {
+					Object value;
+					if (expression instanceof Expression.Arithmetic) {
+						Expression.Arithmetic arithmetic = (Expression.Arithmetic) expression;
+						value = arithmetic.begin(operands[0].box(i));
+						for (int index = 1; index < operands.length; ++index) {
+							value = arithmetic.step(value, operands[index].box(i));
+						}
+					}
+					else {
+						Expression.Bitwise bitwise = (Expression.Bitwise) expression;
+						value = bitwise.begin(operands[0].box(i));
+						for (int index = 1; index < operands.length; ++index) {
+							value = bitwise.step(value, operands[index].box(i));
+						}
+					}
+					objects[i] = value;
+				}
+			}
+		}
+
+	}
+
+	static final int CHUNK_SIZE = Expression.VECTOR_SIZE;
+
+	static final int BYTE = 0, SHORT = 1, INT = 2, LONG = 3, FLOAT = 4, DOUBLE = 5, BOOLEAN = 6, OBJECT = 7;
+
+	final int kind;
+	long[] longs;
+	double[] doubles;
+	boolean[] booleans;
+	Object[] objects;
+
+	Kernel(int kind) {
+		switch (this.kind = kind) {
+			case BYTE:
+			case SHORT:
+			case INT:
+			case LONG:
+				longs = new long[CHUNK_SIZE];
+				break;
+			case FLOAT:
+			case DOUBLE:
+				doubles = new double[CHUNK_SIZE];
+				break;
+			case BOOLEAN:
+				booleans = new boolean[CHUNK_SIZE];
+				break;
+			default:
+				objects = new Object[CHUNK_SIZE];
+		}
+	}
+
+	static Kernel compile(Expression expression, Table table) throws OgnlException {
+		return compile(expression, table, null);
+	}
+
+	/**
+	 * @param context if not null, the context whose variables are taken to be constant throughout the evaluation
+	 */
+	static Kernel compile(Expression expression, Table table, Context context) throws OgnlException {
+		if (expression instanceof Expression.Literal) {
+			return new ConstantKernel(((Expression.Literal<?>) expression).value);
+		}
+		if (expression instanceof Expression.VariableReference && context != null) {
+			return new ConstantKernel(context.variables == null ? null : context.variables.get(((Expression.VariableReference) expression).variableName));
+		}
+		if (expression == Expression.ThisReference.THIS && table.get(Table.THIS) != null) {
+			return new ColumnKernel(table.get(Table.THIS));
+		}
+		String columnName = getColumnName(expression);
+		if (columnName != null) {
+			Column column = table.get(columnName);
+			if (column == null) {
+				throw new OgnlException(expression, "no such column");
+			}
+			return new ColumnKernel(column);
+		}
+		if (expression instanceof Expression.Arithmetic) {
+			Kernel[] operands = compile(((Expression.Arithmetic) expression).expressions, table, context);
+			return allNumeric(operands) ? new ArithmeticKernel((Expression.Arithmetic) expression, operands) : new FoldKernel((Expression.Arithmetic) expression, operands);
+		}
+		else if (expression instanceof Expression.Bitwise) {
+			return new FoldKernel((Expression.Bitwise) expression, compile(((Expression.Bitwise) expression).expressions, table, context));
+		}
+		else if (expression instanceof Expression.Logical) {
+			return new LogicalKernel((Expression.Logical) expression, compile(((Expression.Logical) expression).expressions, table, context));
+		}
+		else if (expression instanceof Expression.Binary && !(expression instanceof Expression.Assignment)) {
+			Expression.Binary binary = (Expression.Binary) expression;
+			Kernel left = compile(binary.leftExpr, table, context), right = compile(binary.rightExpr, table, context);
+			if ((binary instanceof Expression.Comparison || binary instanceof Expression.Equal) && isNumeric(left.kind) && isNumeric(right.kind)) {
+				return new CompareKernel(binary, left, right);
+			}
+			return new BinaryKernel(binary, left, right);
+		}
+		else if (expression instanceof Expression.Unary) {
+			Expression.Unary unary = (Expression.Unary) expression;
+			Kernel operand = compile(unary.expression, table, context);
+			if (unary instanceof Expression.LogicalNot) {
+				return new NotKernel(operand);
+			}
+			if (isNumeric(operand.kind)) {
+				if (unary instanceof Expression.Positive && operand.kind >= INT) {
+					return operand;
+				}
+				if (unary instanceof Expression.Negative) {
+					return new NegateKernel(operand);
+				}
+			}
+			return new UnaryKernel(unary, operand);
+		}
+		else if (expression instanceof Expression.Conditional) {
+			Expression.Conditional conditional = (Expression.Conditional) expression;
+			return new ConditionalKernel(compile(conditional.condExpr, table, context), compile(conditional.trueExpr, table, context), compile(conditional.falseExpr, table, context));
+		}
+		throw new OgnlException(expression, "cannot be evaluated over columns");
+	}
+
+	private static Kernel[] compile(Expression[] expressions, Table table, Context context) throws OgnlException {
+		Kernel[] kernels = new Kernel[expressions.length];
+		for (int index = 0; index < expressions.length; ++index) {
+			kernels[index] = compile(expressions[index], table, context);
+		}
+		return kernels;
+	}
+
+	/**
+	 * Returns the name of the column referenced by a chain of property accesses and constant index accesses from the
+	 * root, such as {@code header.samples[2]}, or null if the given expression is not such a chain.
+	 */
+	private static String getColumnName(Expression expression) {
+		if (expression instanceof Expression.PropertyAccess) {
+			Expression.PropertyAccess propertyAccess = (Expression.PropertyAccess) expression;
+			return qualify(propertyAccess.objExpr, propertyAccess.propertyName);
+		}
+		if (expression instanceof Expression.IndexedPropertyAccess) {
+			Expression.IndexedPropertyAccess indexedPropertyAccess = (Expression.IndexedPropertyAccess) expression;
+			return index(qualify(indexedPropertyAccess.objExpr, indexedPropertyAccess.propertyName), indexedPropertyAccess.indexExpr);
+		}
+		if (expression instanceof Expression.IndexAccess) {
+			Expression.IndexAccess indexAccess = (Expression.IndexAccess) expression;
+			return indexAccess.objExpr == null ? null : index(getColumnName(indexAccess.objExpr), indexAccess.indexExpr);
+		}
+		return null;
+	}
+
+	private static String qualify(Expression objExpr, String propertyName) {
+		if (objExpr == null) {
+			return propertyName;
+		}
+		String prefix = getColumnName(objExpr);
+		return prefix == null ? null : prefix + '.' + propertyName;
+	}
+
+	private static String index(String name, Expression indexExpr) {
+		if (name == null || !(indexExpr instanceof Expression.Literal) || !(((Expression.Literal<?>) indexExpr).value instanceof Integer)) {
+			return null;
+		}
+		return name + '[' + ((Expression.Literal<?>) indexExpr).value + ']';
+	}
+
+	/**
+	 * Computes the values of this node for the {@code length} rows beginning at row {@code start} into the first
+	 * {@code length} elements of its buffer. Rows whose elements in {@code active} are false need not be computed, and
+	 * they must not be if computing them could throw; {@code active} is null if all rows are active.
+	 */
+	abstract void evaluate(int start, int length, boolean[] active) throws OgnlException;
+
+	/**
+	 * Returns the boolean interpretation of the value in element {@code i} of this node's buffer.
+	 *
+	 * @see Expression#asBoolean(Object)
+	 */
+	final boolean test(int i) {
+		switch (kind) {
+			case BYTE:
+			case SHORT:
+			case INT:
+			case LONG:
+				return longs[i] != 0;
+			case FLOAT:
+			case DOUBLE:
+				double value = doubles[i];
+				return value != 0 && !Double.isNaN(value);
+			case BOOLEAN:
+				return booleans[i];
+			default:
+				return Expression.asBoolean(objects[i]);
+		}
+	}
+
+	final Object box(int i) {
+		switch (kind) {
+			case BYTE:
+				return (byte) longs[i];
+			case SHORT:
+				return (short) longs[i];
+			case INT:
+				return (int) longs[i];
+			case LONG:
+				return longs[i];
+			case FLOAT:
+				return (float) doubles[i];
+			case DOUBLE:
+				return doubles[i];
+			case BOOLEAN:
+				return booleans[i];
+			default:
+				return objects[i];
+		}
+	}
+
+	final Object newArray(int length) {
+		switch (kind) {
+			case BYTE:
+				return new byte[length];
+			case SHORT:
+				return new short[length];
+			case INT:
+				return new int[length];
+			case LONG:
+				return new long[length];
+			case FLOAT:
+				return new float[length];
+			case DOUBLE:
+				return new double[length];
+			case BOOLEAN:
+				return new boolean[length];
+			default:
+				return new Object[length];
+		}
+	}
+
+	/**
+	 * Copies the values in the first {@code length} elements of this node's buffer into an array created by
+	 * {@link #newArray(int)}, beginning at the given offset.
+	 */
+	final void copyTo(Object array, int offset, int length) {
+		switch (kind) {
+			case BYTE: {
+				byte[] dst = (byte[]) array;
+				for (int i = 0; i < length; ++i) {
+					dst[offset + i] = (byte) longs[i];
+				}
+				break;
+			}
+			case SHORT: {
+				short[] dst = (short[]) array;
+				for (int i = 0; i < length; ++i) {
+					dst[offset + i] = (short) longs[i];
+				}
+				break;
+			}
+			case INT: {
+				int[] dst = (int[]) array;
+				for (int i = 0; i < length; ++i) {
+					dst[offset + i] = (int) longs[i];
+				}
+				break;
+			}
+			case LONG:
+				System.arraycopy(longs, 0, array, offset, length);
+				break;
+			case FLOAT: {
+				float[] dst = (float[]) array;
+				for (int i = 0; i < length; ++i) {
+					dst[offset + i] = (float) doubles[i];
+				}
+				break;
+			}
+			case DOUBLE:
+				System.arraycopy(doubles, 0, array, offset, length);
+				break;
+			case BOOLEAN:
+				System.arraycopy(booleans, 0, array, offset, length);
+				break;
+			default:
+				System.arraycopy(objects, 0, array, offset, length);
+		}
+	}
+
+	final void getLongs(int length, long[] dst, int offset) {
+		if (isIntegral(kind)) {
+			System.arraycopy(longs, 0, dst, offset, length);
+		}
+		else if (isNumeric(kind)) {
+			for (int i = 0; i < length; ++i) {
+				dst[offset + i] = (long) doubles[i];
+			}
+		}
+		else {
+			for (int i = 0; i < length; ++i) {
+				dst[offset + i] = Expression.asNumber(box(i)).longValue();
+			}
+		}
+	}
+
+	final void getDoubles(int length, double[] dst, int offset) {
+		if (isIntegral(kind)) {
+			for (int i = 0; i < length; ++i) {
+				dst[offset + i] = longs[i];
+			}
+		}
+		else if (isNumeric(kind)) {
+			System.arraycopy(doubles, 0, dst, offset, length);
+		}
+		else {
+			for (int i = 0; i < length; ++i) {
+				dst[offset + i] = Expression.asNumber(box(i)).doubleValue();
+			}
+		}
+	}
+
+	static boolean isIntegral(int kind) {
+		return kind <= LONG;
+	}
+
+	static boolean isNumeric(int kind) {
+		return kind <= DOUBLE;
+	}
+
+	private static int maxKind(Kernel[] kernels) {
+		int kind = INT;
+		for (Kernel kernel : kernels) {
+			kind = Math.max(kind, kernel.kind);
+		}
+		return kind;
+	}
+
+	private static boolean allNumeric(Kernel[] kernels) {
+		for (Kernel kernel : kernels) {
+			if (!isNumeric(kernel.kind)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean allOfKind(Kernel[] kernels, int kind) {
+		for (Kernel kernel : kernels) {
+			if (kernel.kind != kind) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Converts integral values to floating point, rounding them to {@code float} precision if requested.
+	 */
+	static void widen(long[] src, double[] dst, int length, boolean toFloat) {
+		if (toFloat) {
+			for (int i = 0; i < length; ++i) {
+				dst[i] = (float) src[i];
+			}
+		}
+		else {
+			for (int i = 0; i < length; ++i) {
+				dst[i] = src[i];
+			}
+		}
+	}
+
+}
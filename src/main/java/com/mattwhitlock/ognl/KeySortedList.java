@@ -0,0 +1,21 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A random-access list whose elements are in ascending order of the values of a key expression, as ordered by
+ * {@link Expression#compare(Object, Object)}, none of which is null. A {@link Expression.Selection} over such a list
+ * whose sub-expression compares the key with literals and variables, as {@link IndexedCollection} describes, finds the
+ * matching elements by binary search.
+ *
+ * @author Matt Whitlock
+ */
+public interface KeySortedList<E> extends List<E>, RandomAccess {
+
+	Expression getSortKey();
+
+}
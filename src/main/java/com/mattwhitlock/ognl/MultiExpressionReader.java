@@ -0,0 +1,172 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Reads the values of many expressions from the same root into a row. The expressions that are chains of property
+ * accesses and constant index accesses, such as {@code order.customer.name}, {@code order.customer.address.city} and
+ * {@code order.lines[0].sku}, are merged into a trie of their steps, so each distinct prefix, here {@code order} and
+ * {@code order.customer}, is evaluated once per root however many of the expressions share it. Any other expression is
+ * evaluated as a whole.
+ * <p>
+ * The values are those of {@link Expression#getValue(Context, Object)}, and a step from a null value throws the same
+ * {@link NullPointerException}, but the expressions are not evaluated in the order of the columns.
+ *
+ * @author Matt Whitlock
+ */
+public final class MultiExpressionReader {
+
+	private static final class Node {
+
+		/**
+		 * The step from the value of the parent node to the value of this node, and the whole path to this node.
+		 */
+		final Expression stepExpr, pathExpr;
+
+		final LinkedHashMap<Expression, Node> childMap = new LinkedHashMap<>();
+		final ArrayList<Integer> columnList = new ArrayList<>();
+		Node[] children;
+		int[] columns;
+
+		Node(Expression stepExpr, Expression pathExpr) {
+			this.stepExpr = stepExpr;
+			this.pathExpr = pathExpr;
+		}
+
+		void freeze() {
+			children = childMap.values().toArray(new Node[childMap.size()]);
+			columns = columnList.stream().mapToInt(Integer::intValue).toArray();
+			for (Node child : children) {
+				child.freeze();
+			}
+		}
+
+		void read(Context context, Object value, Object[] row) throws OgnlException {
+			for (Node child : children) {
+				if (value == null) {
+					throw new NullPointerException(pathExpr == null ? null : pathExpr.toString());
+				}
+				Object childValue = child.stepExpr.getValue(context, value);
+				for (int column : child.columns) {
+					row[column] = childValue;
+				}
+				child.read(context, childValue, row);
+			}
+		}
+
+	}
+
+	private final int width;
+	private final Node root = new Node(null, null);
+	private final Expression[] others;
+	private final int[] otherColumns;
+
+	private MultiExpressionReader(Expression[] expressions) {
+		width = expressions.length;
+		ArrayList<Expression> others = new ArrayList<>();
+		ArrayList<Integer> otherColumns = new ArrayList<>();
+		for (int column = 0; column < expressions.length; ++column) {
+			Expression expression = expressions[column];
+			Node node = getNode(expression);
+			if (node != null) {
+				node.columnList.add(column);
+			}
+			else {
+				others.add(expression);
+				otherColumns.add(column);
+			}
+		}
+		root.freeze();
+		this.others = others.toArray(new Expression[others.size()]);
+		this.otherColumns = otherColumns.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	public static MultiExpressionReader compile(List<Expression> expressions) {
+		return new MultiExpressionReader(expressions.toArray(new Expression[expressions.size()]));
+	}
+
+	/**
+	 * @return the number of expressions, which is the length of the rows read
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	public Object[] read(Context context, Object root) throws OgnlException {
+		Object[] row = new Object[width];
+		read(context, root, row);
+		return row;
+	}
+
+	/**
+	 * Stores the value of each expression against the given root at the same position in the given row.
+	 */
+	public void read(Context context, Object root, Object[] row) throws OgnlException {
+		if (context == null) {
+			context = new Context();
+		}
+		for (int column : this.root.columns) {
+			row[column] = root;
+		}
+		this.root.read(context, root, row);
+		for (int index = 0; index < others.length; ++index) {
+			row[otherColumns[index]] = others[index].getValue(context, root);
+		}
+	}
+
+	/**
+	 * Returns the node of the trie for the given expression, adding it and its ancestors as needed, or null if the
+	 * expression is not a chain of property accesses and constant index accesses.
+	 */
+	private Node getNode(Expression expression) {
+		if (expression == Expression.ThisReference.THIS) {
+			return root;
+		}
+		Expression stepExpr = getStep(expression);
+		if (stepExpr == null) {
+			return null;
+		}
+		Expression objExpr = getPrefix(expression);
+		Node parent = objExpr == null ? root : getNode(objExpr);
+		if (parent == null) {
+			return null;
+		}
+		Node node = parent.childMap.get(stepExpr);
+		if (node == null) {
+			parent.childMap.put(stepExpr, node = new Node(stepExpr, expression));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns an expression for the last step of the given chain of property accesses and constant index accesses, to
+	 * be evaluated against the value of the rest of the chain, or null if the given expression is not such a step.
+	 */
+	static Expression getStep(Expression expression) {
+		if (expression instanceof Expression.PropertyAccess) {
+			return new Expression.PropertyAccess(((Expression.PropertyAccess) expression).propertyName);
+		}
+		if (expression instanceof Expression.IndexedPropertyAccess && ((Expression.IndexedPropertyAccess) expression).indexExpr instanceof Expression.Literal<?>) {
+			Expression.IndexedPropertyAccess indexedPropertyAccess = (Expression.IndexedPropertyAccess) expression;
+			return new Expression.IndexedPropertyAccess(indexedPropertyAccess.propertyName, indexedPropertyAccess.indexExpr);
+		}
+		if (expression instanceof Expression.IndexAccess && ((Expression.IndexAccess) expression).indexExpr instanceof Expression.Literal<?>) {
+			return new Expression.IndexAccess(((Expression.IndexAccess) expression).indexExpr);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the rest of the chain before the step returned by {@link #getStep(Expression)}, or null if the step is
+	 * taken from the root.
+	 */
+	static Expression getPrefix(Expression expression) {
+		return expression instanceof Expression.PropertyAccess ? ((Expression.PropertyAccess) expression).objExpr : expression instanceof Expression.IndexedPropertyAccess ? ((Expression.IndexedPropertyAccess) expression).objExpr : ((Expression.IndexAccess) expression).objExpr;
+	}
+
+}
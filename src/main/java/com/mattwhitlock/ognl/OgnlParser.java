@@ -19,8 +19,16 @@ public class OgnlParser {
 	private static final Pattern numberPattern = Pattern.compile("[-+]?(?:NaN|Infinity|0x(?:\\p{XDigit}+\\.\\p{XDigit}*|\\.?\\p{XDigit}+)(?:p[-+]?\\d+)?[LfdHB]?|(?:\\d+\\.\\d*|\\.?\\d+)(?:e[-+]?\\d+)?[LfdHB]?)", Pattern.CASE_INSENSITIVE);
 
 	public static Expression parse(String str) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		return parse(str, null);
+	}
+
+	/**
+	 * Parses the given string, replacing every node of the resulting tree with its canonical instance from the given
+	 * interner (if not null), so that subtrees common to many parsed expressions are held in memory only once.
+	 */
+	public static Expression parse(String str, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
 		IntWrapper index = new IntWrapper(0);
-		Expression expression = parseSequence(str, index);
+		Expression expression = parseSequence(str, index, interner);
 		Symbol.skipWhitespace(str, index);
 		if (index.value < str.length()) {
 			Symbol.COMMA.requireNext(str, index); // throws ParseException
@@ -29,113 +37,113 @@ public class OgnlParser {
 		return expression;
 	}
 
-	private static Expression parseSequence(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseAssignment(str, index);
+	private static Expression parseSequence(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseAssignment(str, index, interner);
 		if (!Symbol.COMMA.isNext(str, index)) {
 			return expression;
 		}
 		ArrayList<Expression> expressions = new ArrayList<>();
 		expressions.add(expression);
 		do {
-			expressions.add(parseAssignment(str, index));
+			expressions.add(parseAssignment(str, index, interner));
 		} while (Symbol.COMMA.isNext(str, index));
-		return new Expression.Sequence(expressions.toArray(new Expression[expressions.size()]));
+		return intern(interner, new Expression.Sequence(expressions.toArray(new Expression[expressions.size()])));
 	}
 
-	private static Expression parseAssignment(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression leftExpr = parseConditional(str, index);
+	private static Expression parseAssignment(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression leftExpr = parseConditional(str, index, interner);
 		if (!Symbol.EQUALS.isNext(str, index)) {
 			return leftExpr;
 		}
 		if (!leftExpr.isLValue()) {
 			throw new IllegalAssignmentException(leftExpr, "expression is not assignable");
 		}
-		return new Expression.Assignment(leftExpr, parseAssignment(str, index));
+		return intern(interner, new Expression.Assignment(leftExpr, parseAssignment(str, index, interner)));
 	}
 
-	private static Expression parseConditional(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression condExpr = parseLogicalOr(str, index);
+	private static Expression parseConditional(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression condExpr = parseLogicalOr(str, index, interner);
 		if (!Symbol.QUESTION.isNext(str, index)) {
 			return condExpr;
 		}
-		Expression trueExpr = parseConditional(str, index);
+		Expression trueExpr = parseConditional(str, index, interner);
 		Symbol.COLON.requireNext(str, index);
-		return new Expression.Conditional(condExpr, trueExpr, parseConditional(str, index));
+		return intern(interner, new Expression.Conditional(condExpr, trueExpr, parseConditional(str, index, interner)));
 	}
 
-	private static Expression parseLogicalOr(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseLogicalAnd(str, index);
+	private static Expression parseLogicalOr(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseLogicalAnd(str, index, interner);
 		if (!Symbol.DOUBLE_PIPE.isNext(str, index)) {
 			return expression;
 		}
 		ArrayList<Expression> expressions = new ArrayList<>();
 		expressions.add(expression);
 		do {
-			expressions.add(parseLogicalAnd(str, index));
+			expressions.add(parseLogicalAnd(str, index, interner));
 		} while (Symbol.DOUBLE_PIPE.isNext(str, index));
-		return new Expression.Logical.Or(expressions.toArray(new Expression[expressions.size()]));
+		return intern(interner, new Expression.Logical.Or(expressions.toArray(new Expression[expressions.size()])));
 	}
 
-	private static Expression parseLogicalAnd(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseBitwiseOr(str, index);
+	private static Expression parseLogicalAnd(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseBitwiseOr(str, index, interner);
 		if (!Symbol.DOUBLE_AMPERSAND.isNext(str, index)) {
 			return expression;
 		}
 		ArrayList<Expression> expressions = new ArrayList<>();
 		expressions.add(expression);
 		do {
-			expressions.add(parseBitwiseOr(str, index));
+			expressions.add(parseBitwiseOr(str, index, interner));
 		} while (Symbol.DOUBLE_AMPERSAND.isNext(str, index));
-		return new Expression.Logical.And(expressions.toArray(new Expression[expressions.size()]));
+		return intern(interner, new Expression.Logical.And(expressions.toArray(new Expression[expressions.size()])));
 	}
 
-	private static Expression parseBitwiseOr(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseBitwiseXor(str, index);
+	private static Expression parseBitwiseOr(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseBitwiseXor(str, index, interner);
 		if (!Symbol.PIPE.isNext(str, index)) {
 			return expression;
 		}
 		ArrayList<Expression> expressions = new ArrayList<>();
 		expressions.add(expression);
 		do {
-			expressions.add(parseBitwiseXor(str, index));
+			expressions.add(parseBitwiseXor(str, index, interner));
 		} while (Symbol.PIPE.isNext(str, index));
-		return new Expression.Bitwise.Or(expressions.toArray(new Expression[expressions.size()]));
+		return intern(interner, new Expression.Bitwise.Or(expressions.toArray(new Expression[expressions.size()])));
 	}
 
-	private static Expression parseBitwiseXor(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseBitwiseAnd(str, index);
+	private static Expression parseBitwiseXor(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseBitwiseAnd(str, index, interner);
 		if (!Symbol.CIRCUMFLEX.isNext(str, index)) {
 			return expression;
 		}
 		ArrayList<Expression> expressions = new ArrayList<>();
 		expressions.add(expression);
 		do {
-			expressions.add(parseBitwiseAnd(str, index));
+			expressions.add(parseBitwiseAnd(str, index, interner));
 		} while (Symbol.CIRCUMFLEX.isNext(str, index));
-		return new Expression.Bitwise.Xor(expressions.toArray(new Expression[expressions.size()]));
+		return intern(interner, new Expression.Bitwise.Xor(expressions.toArray(new Expression[expressions.size()])));
 	}
 
-	private static Expression parseBitwiseAnd(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseEquality(str, index);
+	private static Expression parseBitwiseAnd(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseEquality(str, index, interner);
 		if (!Symbol.AMPERSAND.isNext(str, index)) {
 			return expression;
 		}
 		ArrayList<Expression> expressions = new ArrayList<>();
 		expressions.add(expression);
 		do {
-			expressions.add(parseEquality(str, index));
+			expressions.add(parseEquality(str, index, interner));
 		} while (Symbol.AMPERSAND.isNext(str, index));
-		return new Expression.Bitwise.And(expressions.toArray(new Expression[expressions.size()]));
+		return intern(interner, new Expression.Bitwise.And(expressions.toArray(new Expression[expressions.size()])));
 	}
 
-	private static Expression parseEquality(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression leftExpr = parseComparison(str, index);
+	private static Expression parseEquality(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression leftExpr = parseComparison(str, index, interner);
 		for (;;) {
 			if (Symbol.DOUBLE_EQUALS.isNext(str, index)) {
-				leftExpr = new Expression.Equal(leftExpr, parseComparison(str, index));
+				leftExpr = intern(interner, new Expression.Equal(leftExpr, parseComparison(str, index, interner)));
 			}
 			else if (Symbol.BANG_EQUALS.isNext(str, index)) {
-				leftExpr = new Expression.Equal.Not(leftExpr, parseComparison(str, index));
+				leftExpr = intern(interner, new Expression.Equal.Not(leftExpr, parseComparison(str, index, interner)));
 			}
 			else {
 				return leftExpr;
@@ -143,26 +151,26 @@ public class OgnlParser {
 		}
 	}
 
-	private static Expression parseComparison(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression leftExpr = parseShift(str, index);
+	private static Expression parseComparison(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression leftExpr = parseShift(str, index, interner);
 		for (;;) {
 			if (Symbol.LESS.isNext(str, index)) {
-				leftExpr = new Expression.Comparison.Less(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Comparison.Less(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.LESS_EQUALS.isNext(str, index)) {
-				leftExpr = new Expression.Comparison.LessOrEqual(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Comparison.LessOrEqual(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.GREATER.isNext(str, index)) {
-				leftExpr = new Expression.Comparison.Greater(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Comparison.Greater(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.GREATER_EQUALS.isNext(str, index)) {
-				leftExpr = new Expression.Comparison.GreaterOrEqual(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Comparison.GreaterOrEqual(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.IN.isNext(str, index)) {
-				leftExpr = new Expression.In(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.In(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.NOT_IN.isNext(str, index)) {
-				leftExpr = new Expression.In.Not(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.In.Not(leftExpr, parseShift(str, index, interner)));
 			}
 			else {
 				return leftExpr;
@@ -170,17 +178,17 @@ public class OgnlParser {
 		}
 	}
 
-	private static Expression parseShift(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression leftExpr = parseAdditionSubtraction(str, index);
+	private static Expression parseShift(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression leftExpr = parseAdditionSubtraction(str, index, interner);
 		for (;;) {
 			if (Symbol.DOUBLE_LESS.isNext(str, index)) {
-				leftExpr = new Expression.Shift.Left(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Shift.Left(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.DOUBLE_GREATER.isNext(str, index)) {
-				leftExpr = new Expression.Shift.Right(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Shift.Right(leftExpr, parseShift(str, index, interner)));
 			}
 			else if (Symbol.TRIPLE_GREATER.isNext(str, index)) {
-				leftExpr = new Expression.Shift.LogicalRight(leftExpr, parseShift(str, index));
+				leftExpr = intern(interner, new Expression.Shift.LogicalRight(leftExpr, parseShift(str, index, interner)));
 			}
 			else {
 				return leftExpr;
@@ -188,24 +196,24 @@ public class OgnlParser {
 		}
 	}
 
-	private static Expression parseAdditionSubtraction(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseMultiplicationDivision(str, index);
+	private static Expression parseAdditionSubtraction(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseMultiplicationDivision(str, index, interner);
 		for (;;) {
 			if (Symbol.PLUS.isNext(str, index)) {
 				ArrayList<Expression> expressions = new ArrayList<>();
 				expressions.add(expression);
 				do {
-					expressions.add(parseMultiplicationDivision(str, index));
+					expressions.add(parseMultiplicationDivision(str, index, interner));
 				} while (Symbol.PLUS.isNext(str, index));
-				expression = new Expression.Arithmetic.Addition(expressions.toArray(new Expression[expressions.size()]));
+				expression = intern(interner, new Expression.Arithmetic.Addition(expressions.toArray(new Expression[expressions.size()])));
 			}
 			else if (Symbol.MINUS.isNext(str, index)) {
 				ArrayList<Expression> expressions = new ArrayList<>();
 				expressions.add(expression);
 				do {
-					expressions.add(parseMultiplicationDivision(str, index));
+					expressions.add(parseMultiplicationDivision(str, index, interner));
 				} while (Symbol.MINUS.isNext(str, index));
-				expression = new Expression.Arithmetic.Subtraction(expressions.toArray(new Expression[expressions.size()]));
+				expression = intern(interner, new Expression.Arithmetic.Subtraction(expressions.toArray(new Expression[expressions.size()])));
 			}
 			else {
 				return expression;
@@ -213,32 +221,32 @@ public class OgnlParser {
 		}
 	}
 
-	private static Expression parseMultiplicationDivision(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression expression = parseInstanceOf(str, index);
+	private static Expression parseMultiplicationDivision(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression expression = parseInstanceOf(str, index, interner);
 		for (;;) {
 			if (Symbol.ASTERISK.isNext(str, index)) {
 				ArrayList<Expression> expressions = new ArrayList<>();
 				expressions.add(expression);
 				do {
-					expressions.add(parseInstanceOf(str, index));
+					expressions.add(parseInstanceOf(str, index, interner));
 				} while (Symbol.ASTERISK.isNext(str, index));
-				expression = new Expression.Arithmetic.Multiplication(expressions.toArray(new Expression[expressions.size()]));
+				expression = intern(interner, new Expression.Arithmetic.Multiplication(expressions.toArray(new Expression[expressions.size()])));
 			}
 			else if (Symbol.SOLIDUS.isNext(str, index)) {
 				ArrayList<Expression> expressions = new ArrayList<>();
 				expressions.add(expression);
 				do {
-					expressions.add(parseInstanceOf(str, index));
+					expressions.add(parseInstanceOf(str, index, interner));
 				} while (Symbol.SOLIDUS.isNext(str, index));
-				expression = new Expression.Arithmetic.Division(expressions.toArray(new Expression[expressions.size()]));
+				expression = intern(interner, new Expression.Arithmetic.Division(expressions.toArray(new Expression[expressions.size()])));
 			}
 			else if (Symbol.PERCENT.isNext(str, index)) {
 				ArrayList<Expression> expressions = new ArrayList<>();
 				expressions.add(expression);
 				do {
-					expressions.add(parseInstanceOf(str, index));
+					expressions.add(parseInstanceOf(str, index, interner));
 				} while (Symbol.PERCENT.isNext(str, index));
-				expression = new Expression.Arithmetic.Remainder(expressions.toArray(new Expression[expressions.size()]));
+				expression = intern(interner, new Expression.Arithmetic.Remainder(expressions.toArray(new Expression[expressions.size()])));
 			}
 			else {
 				return expression;
@@ -246,37 +254,37 @@ public class OgnlParser {
 		}
 	}
 
-	private static Expression parseInstanceOf(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression objExpr = parseUnary(str, index);
-		return Symbol.INSTANCEOF.isNext(str, index) ? new Expression.InstanceOf(objExpr, parseClass(str, index)) : objExpr;
+	private static Expression parseInstanceOf(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression objExpr = parseUnary(str, index, interner);
+		return Symbol.INSTANCEOF.isNext(str, index) ? intern(interner, new Expression.InstanceOf(objExpr, parseClass(str, index))) : objExpr;
 	}
 
-	private static Expression parseUnary(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+	private static Expression parseUnary(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
 		if (Symbol.PLUS.isNext(str, index)) {
 			int i = index.value - 1;
 			Symbol.skipWhitespace(str, index);
 			if (str.length() > index.value && Character.isDigit(str.codePointAt(index.value))) {
 				index.value = i;
-				return parseChain(str, index);
+				return parseChain(str, index, interner);
 			}
-			return new Expression.Positive(parseUnary(str, index));
+			return intern(interner, new Expression.Positive(parseUnary(str, index, interner)));
 		}
 		if (Symbol.MINUS.isNext(str, index)) {
 			int i = index.value - 1;
 			Symbol.skipWhitespace(str, index);
 			if (str.length() > index.value && Character.isDigit(str.codePointAt(index.value))) {
 				index.value = i;
-				return parseChain(str, index);
+				return parseChain(str, index, interner);
 			}
-			return new Expression.Negative(parseUnary(str, index));
+			return intern(interner, new Expression.Negative(parseUnary(str, index, interner)));
 		}
 		if (Symbol.BANG.isNext(str, index)) {
-			return new Expression.LogicalNot(parseUnary(str, index));
+			return intern(interner, new Expression.LogicalNot(parseUnary(str, index, interner)));
 		}
 		if (Symbol.TILDE.isNext(str, index)) {
-			return new Expression.BitwiseNot(parseUnary(str, index));
+			return intern(interner, new Expression.BitwiseNot(parseUnary(str, index, interner)));
 		}
-		return parseChain(str, index);
+		return parseChain(str, index, interner);
 	}
 
 	private static Class<?> parseClass(String str, IntWrapper index) throws ParseException, ClassNotFoundException {
@@ -346,56 +354,76 @@ public class OgnlParser {
 		return Thread.currentThread().getContextClassLoader().loadClass(str);
 	}
 
-	private static Expression parseChain(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
-		Expression leftExpr = parseSimple(str, index);
+	private static Expression parseChain(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		Expression leftExpr = parseSimple(str, index, interner);
 		for (;;) {
 			if (Symbol.DOT.isNext(str, index)) {
 				if (Symbol.OPEN_BRACE.isNext(str, index)) {
 					if (Symbol.QUESTION.isNext(str, index)) {
-						leftExpr = new Expression.Selection(leftExpr, parseSequence(str, index));
+						leftExpr = intern(interner, new Expression.Selection(leftExpr, parseSequence(str, index, interner)));
 					}
 					else if (Symbol.CIRCUMFLEX.isNext(str, index)) {
-						leftExpr = new Expression.Selection.First(leftExpr, parseSequence(str, index));
+						leftExpr = intern(interner, new Expression.Selection.First(leftExpr, parseSequence(str, index, interner)));
 					}
 					else if (Symbol.DOLLAR.isNext(str, index)) {
-						leftExpr = new Expression.Selection.Last(leftExpr, parseSequence(str, index));
+						leftExpr = intern(interner, new Expression.Selection.Last(leftExpr, parseSequence(str, index, interner)));
+					}
+					else if (Symbol.LESS.isNext(str, index)) {
+						leftExpr = intern(interner, new Expression.Limit(leftExpr, parseSequence(str, index, interner)));
+					}
+					else if (Symbol.GREATER.isNext(str, index)) {
+						leftExpr = intern(interner, new Expression.Limit.Skip(leftExpr, parseSequence(str, index, interner)));
 					}
 					else {
-						leftExpr = new Expression.Projection(leftExpr, parseSequence(str, index));
+						int start = index.value;
+						String keyword = parseKeyword(str, index);
+						if (keyword != null && Symbol.COLON.isNext(str, index)) {
+							leftExpr = intern(interner, parseKeywordOperation(str, index, start, keyword, leftExpr, interner));
+						}
+						else {
+							index.value = start;
+							if (Symbol.OPEN_BRACKET.isNext(str, index) && Symbol.CLOSE_BRACKET.isNext(str, index)) {
+								leftExpr = intern(interner, new Expression.Projection.Primitive(leftExpr, parseSequence(str, index, interner)));
+							}
+							else {
+								index.value = start;
+								leftExpr = intern(interner, new Expression.Projection(leftExpr, parseSequence(str, index, interner)));
+							}
+						}
 					}
 					Symbol.CLOSE_BRACE.requireNext(str, index);
 				}
 				else if (Symbol.OPEN_PAREN.isNext(str, index)) {
-					leftExpr = new Expression.Subexpression(leftExpr, parseSequence(str, index));
+					leftExpr = intern(interner, new Expression.Subexpression(leftExpr, parseSequence(str, index, interner)));
 					Symbol.CLOSE_PAREN.requireNext(str, index);
 				}
 				else {
 					String identifier = parseIdentifier(str, index);
 					if (Symbol.OPEN_PAREN.isNext(str, index)) {
 						if (Symbol.CLOSE_PAREN.isNext(str, index)) {
-							leftExpr = new Expression.MethodInvocation(leftExpr, identifier, Expression.emptyArray);
+							leftExpr = intern(interner, new Expression.MethodInvocation(leftExpr, identifier, Expression.emptyArray));
 						}
 						else {
 							ArrayList<Expression> argExprs = new ArrayList<>();
 							do {
-								argExprs.add(parseAssignment(str, index));
+								argExprs.add(parseAssignment(str, index, interner));
 							} while (Symbol.COMMA.isNext(str, index));
 							Symbol.CLOSE_PAREN.requireNext(str, index);
-							leftExpr = new Expression.MethodInvocation(leftExpr, identifier, argExprs.toArray(new Expression[argExprs.size()]));
+							leftExpr = intern(interner, new Expression.MethodInvocation(leftExpr, identifier, argExprs.toArray(new Expression[argExprs.size()])));
 						}
 					}
 					else if (Symbol.OPEN_BRACKET.isNext(str, index)) {
-						Expression indexExpr = parseSequence(str, index);
+						Expression indexExpr = parseSequence(str, index, interner);
 						Symbol.CLOSE_BRACKET.requireNext(str, index);
-						leftExpr = new Expression.IndexedPropertyAccess(leftExpr, identifier, indexExpr);
+						leftExpr = intern(interner, new Expression.IndexedPropertyAccess(leftExpr, identifier, indexExpr));
 					}
 					else {
-						leftExpr = new Expression.PropertyAccess(leftExpr, identifier);
+						leftExpr = intern(interner, new Expression.PropertyAccess(leftExpr, identifier));
 					}
 				}
 			}
 			else if (Symbol.OPEN_BRACKET.isNext(str, index)) {
-				leftExpr = new Expression.IndexAccess(leftExpr, parseSequence(str, index));
+				leftExpr = intern(interner, new Expression.IndexAccess(leftExpr, parseSequence(str, index, interner)));
 				Symbol.CLOSE_BRACKET.requireNext(str, index);
 			}
 			else {
@@ -404,27 +432,27 @@ public class OgnlParser {
 		}
 	}
 
-	private static Expression parseSimple(String str, IntWrapper index) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+	private static Expression parseSimple(String str, IntWrapper index, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
 		if (Symbol.OPEN_PAREN.isNext(str, index)) {
-			Expression expression = parseSequence(str, index);
+			Expression expression = parseSequence(str, index, interner);
 			Symbol.CLOSE_PAREN.requireNext(str, index);
 			return expression;
 		}
 		if (Symbol.OPEN_BRACE.isNext(str, index)) {
 			if (Symbol.CLOSE_BRACE.isNext(str, index)) {
-				return new Expression.ListConstruction(Expression.emptyArray);
+				return intern(interner, new Expression.ListConstruction(Expression.emptyArray));
 			}
 			ArrayList<Expression> elemExprs = new ArrayList<>();
 			do {
-				elemExprs.add(parseAssignment(str, index));
+				elemExprs.add(parseAssignment(str, index, interner));
 			} while (Symbol.COMMA.isNext(str, index));
 			Symbol.CLOSE_BRACE.requireNext(str, index);
-			return new Expression.ListConstruction(elemExprs.toArray(new Expression[elemExprs.size()]));
+			return intern(interner, new Expression.ListConstruction(elemExprs.toArray(new Expression[elemExprs.size()])));
 		}
 		if (Symbol.OPEN_BRACKET.isNext(str, index)) {
-			Expression indexExpr = parseSequence(str, index);
+			Expression indexExpr = parseSequence(str, index, interner);
 			Symbol.CLOSE_BRACKET.requireNext(str, index);
-			return new Expression.IndexAccess(indexExpr);
+			return intern(interner, new Expression.IndexAccess(indexExpr));
 		}
 		if (Symbol.HASH.isNext(str, index)) {
 			Class<?> mapClass;
@@ -436,21 +464,21 @@ public class OgnlParser {
 			else {
 				if (!Symbol.OPEN_BRACE.isNext(str, index)) {
 					String identifier = parseIdentifier(str, index);
-					return "this".equals(identifier) ? Expression.ThisReference.THIS : new Expression.VariableReference(identifier);
+					return "this".equals(identifier) ? Expression.ThisReference.THIS : intern(interner, new Expression.VariableReference(identifier));
 				}
 				mapClass = null;
 			}
 			if (Symbol.CLOSE_BRACE.isNext(str, index)) {
-				return new Expression.MapConstruction(mapClass, Expression.emptyArray);
+				return intern(interner, new Expression.MapConstruction(mapClass, Expression.emptyArray));
 			}
 			ArrayList<Expression> elemExprs = new ArrayList<>();
 			do {
-				elemExprs.add(parseAssignment(str, index));
+				elemExprs.add(parseAssignment(str, index, interner));
 				Symbol.COLON.requireNext(str, index);
-				elemExprs.add(parseAssignment(str, index));
+				elemExprs.add(parseAssignment(str, index, interner));
 			} while (Symbol.COMMA.isNext(str, index));
 			Symbol.CLOSE_BRACE.requireNext(str, index);
-			return new Expression.MapConstruction(mapClass, elemExprs.toArray(new Expression[elemExprs.size()]));
+			return intern(interner, new Expression.MapConstruction(mapClass, elemExprs.toArray(new Expression[elemExprs.size()])));
 		}
 		if (Symbol.AMPERSAT.isNext(str, index)) {
 			Class<?> clazz = parseClass(str, index);
@@ -458,16 +486,16 @@ public class OgnlParser {
 			String identifier = parseIdentifier(str, index);
 			if (Symbol.OPEN_PAREN.isNext(str, index)) {
 				if (Symbol.CLOSE_PAREN.isNext(str, index)) {
-					return new Expression.StaticMethodInvocation(clazz, identifier, Expression.emptyArray);
+					return intern(interner, new Expression.StaticMethodInvocation(clazz, identifier, Expression.emptyArray));
 				}
 				ArrayList<Expression> argExprs = new ArrayList<>();
 				do {
-					argExprs.add(parseAssignment(str, index));
+					argExprs.add(parseAssignment(str, index, interner));
 				} while (Symbol.COMMA.isNext(str, index));
 				Symbol.CLOSE_PAREN.requireNext(str, index);
-				return new Expression.StaticMethodInvocation(clazz, identifier, argExprs.toArray(new Expression[argExprs.size()]));
+				return intern(interner, new Expression.StaticMethodInvocation(clazz, identifier, argExprs.toArray(new Expression[argExprs.size()])));
 			}
-			return new Expression.StaticFieldAccess(clazz.getField(identifier));
+			return intern(interner, new Expression.StaticFieldAccess(clazz.getField(identifier)));
 		}
 		if (Symbol.NEW.isNext(str, index)) {
 			Class<?> clazz = parseClass(str, index);
@@ -482,11 +510,11 @@ public class OgnlParser {
 						Symbol.CLOSE_BRACKET.requireNext(str, index);
 						++dimensionality;
 					}
-					return new Expression.ArrayInitialization(clazz, parseArrayConstruction(str, index, dimensionality));
+					return intern(interner, new Expression.ArrayInitialization(clazz, parseArrayConstruction(str, index, dimensionality, interner)));
 				}
 				ArrayList<Expression> dimExprs = new ArrayList<>();
 				for (;;) {
-					dimExprs.add(parseSequence(str, index));
+					dimExprs.add(parseSequence(str, index, interner));
 					Symbol.CLOSE_BRACKET.requireNext(str, index);
 					if (!Symbol.OPEN_BRACKET.isNext(str, index)) {
 						break;
@@ -502,25 +530,25 @@ public class OgnlParser {
 						break;
 					}
 				}
-				return new Expression.ArrayAllocation(clazz, dimExprs.toArray(new Expression[dimExprs.size()]));
+				return intern(interner, new Expression.ArrayAllocation(clazz, dimExprs.toArray(new Expression[dimExprs.size()])));
 			}
 			Symbol.OPEN_PAREN.requireNext(str, index);
 			if (Symbol.CLOSE_PAREN.isNext(str, index)) {
-				return new Expression.ConstructorInvocation(clazz, Expression.emptyArray);
+				return intern(interner, new Expression.ConstructorInvocation(clazz, Expression.emptyArray));
 			}
 			ArrayList<Expression> argExprs = new ArrayList<>();
 			do {
-				argExprs.add(parseAssignment(str, index));
+				argExprs.add(parseAssignment(str, index, interner));
 			} while (Symbol.COMMA.isNext(str, index));
 			Symbol.CLOSE_PAREN.requireNext(str, index);
-			return new Expression.ConstructorInvocation(clazz, argExprs.toArray(new Expression[argExprs.size()]));
+			return intern(interner, new Expression.ConstructorInvocation(clazz, argExprs.toArray(new Expression[argExprs.size()])));
 		}
 		if (Symbol.QUOTE.isNext(str, index)) {
-			return new Expression.Literal.String(parseStringLiteral(str, index, '"'));
+			return intern(interner, new Expression.Literal.String(parseStringLiteral(str, index, '"')));
 		}
 		if (Symbol.APOSTROPHE.isNext(str, index)) {
 			String literal = parseStringLiteral(str, index, '\'');
-			return literal.length() == 1 ? new Expression.Literal.Character(literal.charAt(0)) : new Expression.Literal.String(literal);
+			return literal.length() == 1 ? intern(interner, new Expression.Literal.Character(literal.charAt(0))) : intern(interner, new Expression.Literal.String(literal));
 		}
 		if (Symbol.TRUE.isNext(str, index)) {
 			return Expression.Literal.Boolean.TRUE;
@@ -538,24 +566,24 @@ public class OgnlParser {
 				switch (numberStr.charAt(k)) {
 					default:
 						if (numberStr.indexOf('.') >= 0 || numberStr.indexOf('e') >= 0 || numberStr.indexOf('E') >= 0 || numberStr.indexOf('p') >= 0 || numberStr.indexOf('P') >= 0) {
-							return new Expression.Literal.Double(Double.valueOf(numberStr));
+							return intern(interner, new Expression.Literal.Double(Double.valueOf(numberStr)));
 						}
-						return new Expression.Literal.Integer(Integer.decode(numberStr.charAt(0) == '+' ? numberStr.substring(1) : numberStr));
+						return intern(interner, new Expression.Literal.Integer(Integer.decode(numberStr.charAt(0) == '+' ? numberStr.substring(1) : numberStr)));
 					case 'L':
 					case 'l':
-						return new Expression.Literal.Long(Long.decode(numberStr.substring(numberStr.charAt(0) == '+' ? 1 : 0, k)));
+						return intern(interner, new Expression.Literal.Long(Long.decode(numberStr.substring(numberStr.charAt(0) == '+' ? 1 : 0, k))));
 					case 'F':
 					case 'f':
-						return new Expression.Literal.Float(Float.valueOf(numberStr.substring(0, k)));
+						return intern(interner, new Expression.Literal.Float(Float.valueOf(numberStr.substring(0, k))));
 					case 'D':
 					case 'd':
-						return new Expression.Literal.Double(Double.valueOf(numberStr.substring(0, k)));
+						return intern(interner, new Expression.Literal.Double(Double.valueOf(numberStr.substring(0, k))));
 					case 'H':
 					case 'h':
-						return new Expression.Literal.BigInteger(new BigInteger(numberStr.substring(numberStr.charAt(0) == '+' ? 1 : 0, k)));
+						return intern(interner, new Expression.Literal.BigInteger(new BigInteger(numberStr.substring(numberStr.charAt(0) == '+' ? 1 : 0, k))));
 					case 'B':
 					case 'b':
-						return new Expression.Literal.BigDecimal(new BigDecimal(numberStr.substring(0, k)));
+						return intern(interner, new Expression.Literal.BigDecimal(new BigDecimal(numberStr.substring(0, k))));
 				}
 			}
 			catch (NumberFormatException e) {
@@ -567,21 +595,68 @@ public class OgnlParser {
 		String identifier = parseIdentifier(str, index);
 		if (Symbol.OPEN_PAREN.isNext(str, index)) {
 			if (Symbol.CLOSE_PAREN.isNext(str, index)) {
-				return new Expression.MethodInvocation(null, identifier, Expression.emptyArray);
+				return intern(interner, new Expression.MethodInvocation(null, identifier, Expression.emptyArray));
 			}
 			ArrayList<Expression> argExprs = new ArrayList<>();
 			do {
-				argExprs.add(parseAssignment(str, index));
+				argExprs.add(parseAssignment(str, index, interner));
 			} while (Symbol.COMMA.isNext(str, index));
 			Symbol.CLOSE_PAREN.requireNext(str, index);
-			return new Expression.MethodInvocation(null, identifier, argExprs.toArray(new Expression[argExprs.size()]));
+			return intern(interner, new Expression.MethodInvocation(null, identifier, argExprs.toArray(new Expression[argExprs.size()])));
 		}
 		if (Symbol.OPEN_BRACKET.isNext(str, index)) {
-			Expression indexExpr = parseSequence(str, index);
+			Expression indexExpr = parseSequence(str, index, interner);
 			Symbol.CLOSE_BRACKET.requireNext(str, index);
-			return new Expression.IndexedPropertyAccess(null, identifier, indexExpr);
+			return intern(interner, new Expression.IndexedPropertyAccess(null, identifier, indexExpr));
+		}
+		return intern(interner, new Expression.PropertyAccess(null, identifier));
+	}
+
+	private static <E extends Expression> E intern(ExpressionInterner interner, E expression) {
+		return interner == null ? expression : interner.intern(expression);
+	}
+
+	/**
+	 * Parses the operand of an operator of the form {@code list.{keyword: operand }}.
+	 */
+	private static Expression parseKeywordOperation(String str, IntWrapper index, int start, String keyword, Expression listExpr, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		switch (keyword) {
+			case "sort":
+				return new Expression.Sort(listExpr, parseSequence(str, index, interner));
+			case "sortDesc":
+				return new Expression.Sort.Descending(listExpr, parseSequence(str, index, interner));
+			case "groupBy":
+				return new Expression.GroupBy(listExpr, parseSequence(str, index, interner));
+			case "distinct":
+				return new Expression.Distinct(listExpr, parseSequence(str, index, interner));
+			case "join":
+			case "leftJoin": {
+				// join: otherList, key, otherKey[, projection]
+				ArrayList<Expression> operands = new ArrayList<>(4);
+				do {
+					operands.add(parseAssignment(str, index, interner));
+				} while (Symbol.COMMA.isNext(str, index));
+				if (operands.size() < 3 || operands.size() > 4) {
+					throw new ParseException("expected 3 or 4 operands to \"" + keyword + "\" at offset " + start + " in: " + str, start);
+				}
+				Expression projExpr = operands.size() == 4 ? operands.get(3) : null;
+				return "join".equals(keyword) ? new Expression.Join(listExpr, operands.get(0), operands.get(1), operands.get(2), projExpr) : new Expression.Join.Left(listExpr, operands.get(0), operands.get(1), operands.get(2), projExpr);
+			}
+		}
+		Expression aggregation = Expression.Aggregation.of(keyword, listExpr, parseSequence(str, index, interner));
+		if (aggregation == null) {
+			throw new ParseException("unknown operator \"" + keyword + "\" at offset " + start + " in: " + str, start);
 		}
-		return new Expression.PropertyAccess(null, identifier);
+		return aggregation;
+	}
+
+	/**
+	 * Parses an identifier if there is one next, or else returns null.
+	 */
+	private static String parseKeyword(String str, IntWrapper index) throws ParseException {
+		Symbol.skipWhitespace(str, index);
+		int i = index.value;
+		return i < str.length() && Character.isJavaIdentifierStart(str.codePointAt(i)) ? parseIdentifier(str, index) : null;
 	}
 
 	private static String parseIdentifier(String str, IntWrapper index) throws ParseException {
@@ -595,20 +670,20 @@ public class OgnlParser {
 		return str.substring(index.value, index.value = i);
 	}
 
-	private static Object[] parseArrayConstruction(String str, IntWrapper index, int dimensionality) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+	private static Object[] parseArrayConstruction(String str, IntWrapper index, int dimensionality, ExpressionInterner interner) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
 		Symbol.OPEN_BRACE.requireNext(str, index);
 		Object[] ret;
 		if (--dimensionality == 0) {
 			ArrayList<Expression> expressions = new ArrayList<>();
 			do {
-				expressions.add(parseAssignment(str, index));
+				expressions.add(parseAssignment(str, index, interner));
 			} while (Symbol.COMMA.isNext(str, index));
 			ret = expressions.toArray(new Expression[expressions.size()]);
 		}
 		else {
 			ArrayList<Object[]> arrays = new ArrayList<>();
 			do {
-				arrays.add(parseArrayConstruction(str, index, dimensionality));
+				arrays.add(parseArrayConstruction(str, index, dimensionality, interner));
 			} while (Symbol.COMMA.isNext(str, index));
 			ret = arrays.toArray(new Object[arrays.size()][]);
 		}
@@ -0,0 +1,32 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+/**
+ * Resolves the properties of the instances of the classes for which it is registered with {@link PropertyAccessors}.
+ * A property is resolved once per class and property name at each {@link Expression.PropertyAccess} and then cached
+ * there, so an accessor may do as much work as it needs to in {@link #getProperty} in order to make the returned
+ * {@link Property} fast.
+ *
+ * @author Matt Whitlock
+ */
+public interface PropertyAccessor {
+
+	public interface Property {
+
+		Object get(Object object) throws Exception;
+
+		default void set(Object object, Object value) throws Exception {
+			throw new UnsupportedOperationException("property is not writable");
+		}
+
+	}
+
+	/**
+	 * @return the named property of the instances of the given class, or null if this accessor does not provide it,
+	 *         in which case it is resolved by the next applicable accessor or else as a bean property
+	 */
+	Property getProperty(Class<?> objClass, String propertyName) throws Exception;
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.mattwhitlock.common.Beans;
+
+/**
+ * The registry of {@link PropertyAccessor}s. The accessor registered for the class of an object is consulted first,
+ * then those registered for its superclasses, and then those registered for the interfaces it implements, nearest
+ * first. Properties that no accessor provides are resolved as bean properties, public fields or public methods taking
+ * no arguments.
+ * <p>
+ * Built-in accessors resolve the properties of {@link Map}s to the entries having the property names as keys (falling
+ * back to the maps' own bean properties, such as {@code size} and {@code empty}, when there is no such entry), the
+ * {@code size} and {@code empty} properties of {@link List}s, and the components of records.
+ * <p>
+ * Property resolutions are cached at each property access, so accessors should be registered before any expression
+ * that is to use them is evaluated.
+ *
+ * @author Matt Whitlock
+ */
+public final class PropertyAccessors {
+
+	private static class MapPropertyAccessor implements PropertyAccessor {
+
+		MapPropertyAccessor() {
+		}
+
+		@Override
+		public Property getProperty(Class<?> objClass, String propertyName) throws Exception {
+			Property fallback = getReadableProperty(objClass, propertyName);
+			return new Property() {
+
+				@Override
+				public Object get(Object object) throws Exception {
+					Map<?, ?> map = (Map<?, ?>) object;
+					Object value = map.get(propertyName);
+					return value != null || fallback == null || map.containsKey(propertyName) ? value : fallback.get(object);
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public void set(Object object, Object value) {
+					((Map<Object, Object>) object).put(propertyName, value);
+				}
+
+			};
+		}
+
+	}
+
+	private static class ListPropertyAccessor implements PropertyAccessor {
+
+		static final Property SIZE = object -> ((List<?>) object).size(), EMPTY = object -> ((List<?>) object).isEmpty();
+
+		ListPropertyAccessor() {
+		}
+
+		@Override
+		public Property getProperty(Class<?> objClass, String propertyName) {
+			switch (propertyName) {
+				case "size":
+					return SIZE;
+				case "empty":
+					return EMPTY;
+				default:
+					return null;
+			}
+		}
+
+	}
+
+	/**
+	 * Reads the components of records through method handles, which are not subject to the access checks and argument
+	 * array allocation of reflective invocation.
+	 */
+	private static class RecordPropertyAccessor implements PropertyAccessor {
+
+		RecordPropertyAccessor() {
+		}
+
+		@Override
+		public Property getProperty(Class<?> objClass, String propertyName) throws Exception {
+			Method method;
+			MethodHandle handle;
+			try {
+				method = objClass.getMethod(propertyName, (Class<?>[]) null);
+				if (method.getReturnType() == void.class || Modifier.isStatic(method.getModifiers())) {
+					return null;
+				}
+				handle = MethodHandles.publicLookup().unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+			}
+			catch (NoSuchMethodException | IllegalAccessException e) {
+				// not a component accessible to us; leave it to reflection
+				return null;
+			}
+			return object -> {
+				try {
+					return handle.invokeExact(object);
+				}
+				catch (Exception | Error e) {
+					throw e;
+				}
+				catch (Throwable t) {
+					throw new InvocationTargetException(t);
+				}
+			};
+		}
+
+	}
+
+	private static final ConcurrentHashMap<Class<?>, PropertyAccessor> accessors = new ConcurrentHashMap<>();
+
+	static {
+		accessors.put(Map.class, new MapPropertyAccessor());
+		accessors.put(List.class, new ListPropertyAccessor());
+		try {
+			accessors.put(Class.forName("java.lang.Record"), new RecordPropertyAccessor());
+		}
+		catch (ClassNotFoundException e) {
+			// records predate this runtime
+		}
+	}
+
+	/**
+	 * Not instantiable.
+	 */
+	private PropertyAccessors() {
+	}
+
+	/**
+	 * Registers an accessor for the properties of the instances of the given class or interface and its subclasses,
+	 * replacing any accessor previously registered for it.
+	 */
+	public static void register(Class<?> objClass, PropertyAccessor accessor) {
+		accessors.put(objClass, accessor);
+	}
+
+	public static void unregister(Class<?> objClass) {
+		accessors.remove(objClass);
+	}
+
+	/**
+	 * @return the named property of the instances of the given class as provided by a registered accessor, or null if
+	 *         no accessor provides it
+	 */
+	static PropertyAccessor.Property getProperty(Class<?> objClass, String propertyName) throws Exception {
+		for (Class<?> c = objClass; c != null; c = c.getSuperclass()) {
+			PropertyAccessor accessor = accessors.get(c);
+			if (accessor != null) {
+				PropertyAccessor.Property property = accessor.getProperty(objClass, propertyName);
+				if (property != null) {
+					return property;
+				}
+			}
+		}
+		ArrayDeque<Class<?>> queue = new ArrayDeque<>();
+		HashSet<Class<?>> seen = new HashSet<>();
+		for (Class<?> c = objClass; c != null; c = c.getSuperclass()) {
+			for (Class<?> i : c.getInterfaces()) {
+				queue.add(i);
+			}
+		}
+		for (Class<?> i; (i = queue.poll()) != null;) {
+			if (seen.add(i)) {
+				PropertyAccessor accessor = accessors.get(i);
+				if (accessor != null) {
+					PropertyAccessor.Property property = accessor.getProperty(objClass, propertyName);
+					if (property != null) {
+						return property;
+					}
+				}
+				for (Class<?> superinterface : i.getInterfaces()) {
+					queue.add(superinterface);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the named bean property of the instances of the given class or else the public method of theirs having
+	 * the given name and no parameters, or null if they have neither.
+	 */
+	static PropertyAccessor.Property getReadableProperty(Class<?> objClass, String propertyName) {
+		PropertyDescriptor propertyDescriptor = Beans.getPropertyDescriptor(objClass, propertyName);
+		Method method = propertyDescriptor == null ? null : propertyDescriptor.getReadMethod();
+		if (method == null) {
+			try {
+				method = objClass.getMethod(propertyName, (Class<?>[]) null);
+			}
+			catch (NoSuchMethodException e) {
+				return null;
+			}
+			if (method.getReturnType() == void.class) {
+				return null;
+			}
+		}
+		Method readMethod = method;
+		return object -> {
+			try {
+				return readMethod.invoke(object, (Object[]) null);
+			}
+			catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				throw e;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The layout of fixed-size binary records, mapping property names to the offsets and primitive types of their fields.
+ * A buffer of consecutive records can be viewed as a {@link Table} whose columns read the fields directly from the
+ * buffer, so expressions can be evaluated over the records, for example in a memory-mapped file, without decoding any
+ * of them into objects.
+ *
+ * @author Matt Whitlock
+ */
+public class RecordSchema {
+
+	private static class Field {
+
+		final Class<?> type;
+		final int offset;
+
+		Field(Class<?> type, int offset) {
+			this.type = type;
+			this.offset = offset;
+		}
+
+	}
+
+	private static class BufferColumn extends Column {
+
+		final ByteBuffer buffer;
+		final Class<?> type;
+		final int base, stride, size;
+
+		BufferColumn(ByteBuffer buffer, Class<?> type, int base, int stride, int size) {
+			this.buffer = buffer;
+			this.type = type;
+			this.base = base;
+			this.stride = stride;
+			this.size = size;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return type;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Object get(int row) {
+			if (row < 0 || row >= size) {
+				throw new IndexOutOfBoundsException(String.valueOf(row));
+			}
+			int position = base + row * stride;
+			if (type == byte.class) {
+				return buffer.get(position);
+			}
+			if (type == short.class) {
+				return buffer.getShort(position);
+			}
+			if (type == int.class) {
+				return buffer.getInt(position);
+			}
+			if (type == long.class) {
+				return buffer.getLong(position);
+			}
+			if (type == float.class) {
+				return buffer.getFloat(position);
+			}
+			if (type == double.class) {
+				return buffer.getDouble(position);
+			}
+			return buffer.get(position) != 0;
+		}
+
+		@Override
+		void getLongs(int start, int length, long[] dst) {
+			ByteBuffer buffer = this.buffer;
+			int stride = this.stride, position = base + start * stride;
+			if (type == byte.class) {
+				for (int i = 0; i < length; ++i, position += stride) {
+					dst[i] = buffer.get(position);
+				}
+			}
+			else if (type == short.class) {
+				for (int i = 0; i < length; ++i, position += stride) {
+					dst[i] = buffer.getShort(position);
+				}
+			}
+			else if (type == int.class) {
+				for (int i = 0; i < length; ++i, position += stride) {
+					dst[i] = buffer.getInt(position);
+				}
+			}
+			else {
+				for (int i = 0; i < length; ++i, position += stride) {
+					dst[i] = buffer.getLong(position);
+				}
+			}
+		}
+
+		@Override
+		void getDoubles(int start, int length, double[] dst) {
+			ByteBuffer buffer = this.buffer;
+			int stride = this.stride, position = base + start * stride;
+			if (type == float.class) {
+				for (int i = 0; i < length; ++i, position += stride) {
+					dst[i] = buffer.getFloat(position);
+				}
+			}
+			else {
+				for (int i = 0; i < length; ++i, position += stride) {
+					dst[i] = buffer.getDouble(position);
+				}
+			}
+		}
+
+		@Override
+		void getBooleans(int start, int length, boolean[] dst) {
+			ByteBuffer buffer = this.buffer;
+			int stride = this.stride, position = base + start * stride;
+			for (int i = 0; i < length; ++i, position += stride) {
+				dst[i] = buffer.get(position) != 0;
+			}
+		}
+
+	}
+
+	private final LinkedHashMap<String, Field> fields = new LinkedHashMap<>();
+	private final int recordSize;
+
+	public RecordSchema(int recordSize) {
+		if (recordSize <= 0) {
+			throw new IllegalArgumentException("record size must be positive");
+		}
+		this.recordSize = recordSize;
+	}
+
+	public int getRecordSize() {
+		return recordSize;
+	}
+
+	/**
+	 * Declares a field of the given primitive type at the given offset within each record. Fields of type
+	 * {@code boolean} occupy one byte, which is true if it is not zero.
+	 */
+	public RecordSchema field(String name, Class<?> type, int offset) {
+		int width = getWidth(type);
+		if (width == 0) {
+			throw new IllegalArgumentException("unsupported field type: " + type.getName());
+		}
+		if (offset < 0 || offset + width > recordSize) {
+			throw new IllegalArgumentException("field \"" + name + "\" does not fit in a record of " + recordSize + " bytes");
+		}
+		fields.put(name, new Field(type, offset));
+		return this;
+	}
+
+	/**
+	 * Declares a fixed-length array of contiguous fields of the given primitive type, beginning at the given offset
+	 * within each record. The elements are accessed with constant indices, as in {@code name[2]}.
+	 */
+	public RecordSchema array(String name, Class<?> componentType, int offset, int length) {
+		int width = getWidth(componentType);
+		for (int index = 0; index < length; ++index) {
+			field(name + '[' + index + ']', componentType, offset + index * width);
+		}
+		return this;
+	}
+
+	/**
+	 * Declares a nested record of the given schema at the given offset within each record. Its fields are accessed as
+	 * properties of the named property, as in {@code name.field}.
+	 */
+	public RecordSchema struct(String name, RecordSchema schema, int offset) {
+		if (offset < 0 || offset + schema.recordSize > recordSize) {
+			throw new IllegalArgumentException("struct \"" + name + "\" does not fit in a record of " + recordSize + " bytes");
+		}
+		for (Map.Entry<String, Field> entry : schema.fields.entrySet()) {
+			Field field = entry.getValue();
+			fields.put(name + '.' + entry.getKey(), new Field(field.type, offset + field.offset));
+		}
+		return this;
+	}
+
+	public Map<String, Class<?>> getFields() {
+		LinkedHashMap<String, Class<?>> types = new LinkedHashMap<>();
+		for (Map.Entry<String, Field> entry : fields.entrySet()) {
+			types.put(entry.getKey(), entry.getValue().type);
+		}
+		return Collections.unmodifiableMap(types);
+	}
+
+	/**
+	 * Returns a table whose rows are the whole records between the position and the limit of the given buffer. The
+	 * columns of the table read the buffer in place, in the buffer's byte order, using absolute accesses, so the
+	 * buffer's position is not changed, and changes to the buffer's content are visible through the table.
+	 */
+	public Table table(ByteBuffer buffer) {
+		int base = buffer.position(), count = buffer.remaining() / recordSize;
+		Table table = new Table(count);
+		for (Map.Entry<String, Field> entry : fields.entrySet()) {
+			Field field = entry.getValue();
+			table.put(entry.getKey(), new BufferColumn(buffer, field.type, base + field.offset, recordSize, count));
+		}
+		return table;
+	}
+
+	private static int getWidth(Class<?> type) {
+		if (type == byte.class || type == boolean.class) {
+			return 1;
+		}
+		if (type == short.class) {
+			return 2;
+		}
+		if (type == int.class || type == float.class) {
+			return 4;
+		}
+		if (type == long.class || type == double.class) {
+			return 8;
+		}
+		return 0;
+	}
+
+}
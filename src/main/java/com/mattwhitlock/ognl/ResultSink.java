@@ -0,0 +1,20 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+/**
+ * Receives the results of {@link Expression#evaluateAll(Context, Iterable, ResultSink)}.
+ *
+ * @author Matt Whitlock
+ */
+public interface ResultSink {
+
+	/**
+	 * @param index the index of the root, in the iteration order of the roots, against which the expression was
+	 *            evaluated
+	 * @param value the value of the expression
+	 */
+	void accept(int index, Object value) throws OgnlException;
+
+}
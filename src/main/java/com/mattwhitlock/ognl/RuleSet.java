@@ -0,0 +1,378 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A set of boolean expressions compiled for finding which of them are true for an object. The top-level conjuncts of
+ * each rule that test a property path of the object against literals, such as {@code type == 'trade'},
+ * {@code price >= 100}, {@code region in { 'EU', 'US' }} or {@code side == 'B' || side == 'S'}, are gathered into hash
+ * and interval indices over the paths that they test. Matching evaluates each path once, counts the tests that each
+ * rule passes, and evaluates the remaining conjuncts of only those rules that pass all of their tests. Rules having no
+ * such tests, or having side effects, are evaluated in full.
+ * <p>
+ * The rules found true are those for which {@link Expression#getValue(Context, Object)} is true by
+ * {@link Expression#asBoolean(Object)}. A rule ruled out by one of its tests is not evaluated at all, so it cannot fail
+ * with an exception that its other conjuncts would have thrown. A rule whose tested path cannot be evaluated, for
+ * example because it passes through a null, or whose interval tests are applied to a path whose value is not a number,
+ * is evaluated in full.
+ *
+ * @author Matt Whitlock
+ */
+public final class RuleSet {
+
+	/**
+	 * The tests of the rules on one property path.
+	 */
+	private static final class PathIndex {
+
+		final Expression pathExpr;
+
+		/**
+		 * The rules whose equality tests on this path pass for each value, keyed as by {@link Grouping#getHashKey}.
+		 */
+		final HashMap<Object, int[]> equal;
+
+		/**
+		 * The rules whose {@code in} tests on this path pass for each value, keyed by the values themselves, as they are
+		 * matched by {@link java.util.Collection#contains}.
+		 */
+		final HashMap<Object, int[]> contained;
+
+		/**
+		 * The keys and rules of the inequality tests on this path.
+		 */
+		final Object[] notEqualKeys;
+		final int[] notEqualRules;
+
+		/**
+		 * The lower bounds in ascending order and the upper bounds in descending order of the interval tests on this
+		 * path, so that the bounds that a value satisfies are a prefix of each.
+		 */
+		final Bounds lower, upper;
+
+		/**
+		 * All of the rules having tests on this path, and those having interval tests on it.
+		 */
+		final int[] rules, rangeRules;
+
+		PathIndex(PathTests tests) {
+			pathExpr = tests.pathExpr;
+			equal = toArrays(tests.equal);
+			contained = toArrays(tests.contained);
+			notEqualKeys = tests.notEqualKeys.toArray();
+			notEqualRules = toArray(tests.notEqualRules);
+			lower = new Bounds(tests.lower, 1);
+			upper = new Bounds(tests.upper, -1);
+			rules = toArray(tests.rules);
+			rangeRules = toArray(tests.rangeRules);
+		}
+
+		void match(Context context, Object root, int[] counts, boolean[] full) {
+			Object value;
+			try {
+				value = pathExpr.getValue(context, root);
+			}
+			catch (OgnlException | RuntimeException e) {
+				for (int rule : rules) {
+					full[rule] = true;
+				}
+				return;
+			}
+			Object key = Grouping.getHashKey(value);
+			count(equal.get(key), counts);
+			count(contained.get(value), counts);
+			for (int i = 0; i < notEqualKeys.length; ++i) {
+				if (!Objects.equals(notEqualKeys[i], key)) {
+					++counts[notEqualRules[i]];
+				}
+			}
+			if (rangeRules.length > 0) {
+				if (value instanceof Number) {
+					lower.count(value, counts);
+					upper.count(value, counts);
+				}
+				else {
+					for (int rule : rangeRules) {
+						full[rule] = true;
+					}
+				}
+			}
+		}
+
+		private static void count(int[] rules, int[] counts) {
+			if (rules != null) {
+				for (int rule : rules) {
+					++counts[rule];
+				}
+			}
+		}
+
+		private static HashMap<Object, int[]> toArrays(HashMap<Object, ArrayList<Integer>> map) {
+			HashMap<Object, int[]> arrays = new HashMap<>(map.size() * 4 / 3 + 1);
+			for (Map.Entry<Object, ArrayList<Integer>> entry : map.entrySet()) {
+				arrays.put(entry.getKey(), toArray(entry.getValue()));
+			}
+			return arrays;
+		}
+
+		private static int[] toArray(Collection<Integer> list) {
+			return list.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+	}
+
+	/**
+	 * The tests of the rules on one property path as they are gathered.
+	 */
+	private static final class PathTests {
+
+		final Expression pathExpr;
+		final HashMap<Object, ArrayList<Integer>> equal = new HashMap<>(), contained = new HashMap<>();
+		final ArrayList<Object> notEqualKeys = new ArrayList<>();
+		final ArrayList<Integer> notEqualRules = new ArrayList<>();
+		final ArrayList<Bound> lower = new ArrayList<>(), upper = new ArrayList<>();
+		final LinkedHashSet<Integer> rules = new LinkedHashSet<>(), rangeRules = new LinkedHashSet<>();
+
+		PathTests(Expression pathExpr) {
+			this.pathExpr = pathExpr;
+		}
+
+	}
+
+	private static final class Bound {
+
+		final Number value;
+		final boolean inclusive;
+		final int rule;
+
+		Bound(Number value, boolean inclusive, int rule) {
+			this.value = value;
+			this.inclusive = inclusive;
+			this.rule = rule;
+		}
+
+	}
+
+	private static final class Bounds {
+
+		/**
+		 * The sign of the comparison of a value with the bounds that it satisfies.
+		 */
+		final int sign;
+		final Number[] values;
+		final boolean[] inclusive;
+		final int[] rules;
+
+		Bounds(List<Bound> bounds, int sign) {
+			this.sign = sign;
+			bounds.sort((a, b) -> sign * Expression.compare(a.value, b.value));
+			values = new Number[bounds.size()];
+			inclusive = new boolean[bounds.size()];
+			rules = new int[bounds.size()];
+			for (int i = 0; i < values.length; ++i) {
+				Bound bound = bounds.get(i);
+				values[i] = bound.value;
+				inclusive[i] = bound.inclusive;
+				rules[i] = bound.rule;
+			}
+		}
+
+		void count(Object value, int[] counts) {
+			for (int i = 0; i < values.length; ++i) {
+				int c = sign * Expression.compare(value, values[i]);
+				if (c < 0) {
+					return;
+				}
+				if (c > 0 || inclusive[i]) {
+					++counts[rules[i]];
+				}
+			}
+		}
+
+	}
+
+	private final Expression[] rules;
+
+	/**
+	 * The conjuncts of each rule that are not indexed, or null if all of them are, and the number of indexed tests of
+	 * each rule, which is zero for the rules that are always evaluated in full.
+	 */
+	private final Expression[] residuals;
+	private final int[] required;
+
+	private final PathIndex[] paths;
+
+	private RuleSet(Expression[] rules) {
+		this.rules = rules;
+		residuals = new Expression[rules.length];
+		required = new int[rules.length];
+		LinkedHashMap<Expression, PathTests> paths = new LinkedHashMap<>();
+		for (int rule = 0; rule < rules.length; ++rule) {
+			Expression expression = rules[rule];
+			if (expression.hasSideEffects()) {
+				continue;
+			}
+			Expression[] conjuncts = expression instanceof Expression.Logical.And ? ((Expression.Logical.And) expression).expressions : new Expression[] { expression };
+			ArrayList<Expression> residual = new ArrayList<>();
+			for (Expression conjunct : conjuncts) {
+				if (addTest(paths, conjunct, rule)) {
+					++required[rule];
+				}
+				else {
+					residual.add(conjunct);
+				}
+			}
+			if (required[rule] > 0) {
+				residuals[rule] = residual.isEmpty() ? null : residual.size() == 1 ? residual.get(0) : new Expression.Logical.And(residual.toArray(new Expression[residual.size()]));
+			}
+		}
+		this.paths = new PathIndex[paths.size()];
+		int index = 0;
+		for (PathTests tests : paths.values()) {
+			this.paths[index++] = new PathIndex(tests);
+		}
+	}
+
+	public static RuleSet compile(List<Expression> rules) {
+		return new RuleSet(rules.toArray(new Expression[rules.size()]));
+	}
+
+	public int size() {
+		return rules.length;
+	}
+
+	/**
+	 * @return the positions of the rules that are true for the given object
+	 */
+	public BitSet match(Context context, Object root) throws OgnlException {
+		if (context == null) {
+			context = new Context();
+		}
+		int[] counts = new int[rules.length];
+		boolean[] full = new boolean[rules.length];
+		for (PathIndex path : paths) {
+			path.match(context, root, counts, full);
+		}
+		BitSet matches = new BitSet(rules.length);
+		for (int rule = 0; rule < rules.length; ++rule) {
+			Expression expression;
+			if (required[rule] == 0 || full[rule]) {
+				expression = rules[rule];
+			}
+			else if (counts[rule] == required[rule]) {
+				expression = residuals[rule];
+			}
+			else {
+				continue;
+			}
+			if (expression == null || Expression.asBoolean(expression.getValue(context, root))) {
+				matches.set(rule);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Indexes the given conjunct of the given rule if it is a test of a property path against literals.
+	 *
+	 * @return whether the conjunct was indexed
+	 */
+	private static boolean addTest(Map<Expression, PathTests> paths, Expression conjunct, int rule) {
+		if (conjunct instanceof Expression.Logical.Or) {
+			// a disjunction of equality tests on one path, such as side == 'B' || side == 'S'
+			Expression pathExpr = null;
+			HashSet<Object> keys = new HashSet<>();
+			for (Expression disjunct : ((Expression.Logical.Or) conjunct).expressions) {
+				if (disjunct.getClass() != Expression.Equal.class) {
+					return false;
+				}
+				Expression.Binary equal = (Expression.Binary) disjunct;
+				Expression disjunctPathExpr = getPath(equal), valueExpr = disjunctPathExpr == equal.leftExpr ? equal.rightExpr : equal.leftExpr;
+				if (disjunctPathExpr == null || !(valueExpr instanceof Expression.Literal<?>) || pathExpr != null && !pathExpr.equals(disjunctPathExpr)) {
+					return false;
+				}
+				pathExpr = disjunctPathExpr;
+				keys.add(Grouping.getHashKey(((Expression.Literal<?>) valueExpr).value));
+			}
+			PathTests path = getPathTests(paths, pathExpr, rule);
+			for (Object key : keys) {
+				path.equal.computeIfAbsent(key, k -> new ArrayList<>(1)).add(rule);
+			}
+			return true;
+		}
+		if (!(conjunct instanceof Expression.Binary)) {
+			return false;
+		}
+		Expression.Binary binary = (Expression.Binary) conjunct;
+		if (conjunct.getClass() == Expression.In.class) {
+			if (!Expression.Selection.isKeyPath(binary.leftExpr) || !(binary.rightExpr instanceof Expression.ListConstruction)) {
+				return false;
+			}
+			Object[] values = ((Expression.ListConstruction) binary.rightExpr).getConstantValues();
+			if (values == null) {
+				return false;
+			}
+			PathTests path = getPathTests(paths, binary.leftExpr, rule);
+			for (Object value : new HashSet<>(Arrays.asList(values))) {
+				path.contained.computeIfAbsent(value, k -> new ArrayList<>(1)).add(rule);
+			}
+			return true;
+		}
+		Expression pathExpr = getPath(binary);
+		if (pathExpr == null) {
+			return false;
+		}
+		Expression valueExpr = pathExpr == binary.leftExpr ? binary.rightExpr : binary.leftExpr;
+		if (!(valueExpr instanceof Expression.Literal<?>)) {
+			return false;
+		}
+		Object value = ((Expression.Literal<?>) valueExpr).value;
+		if (conjunct.getClass() == Expression.Equal.class) {
+			getPathTests(paths, pathExpr, rule).equal.computeIfAbsent(Grouping.getHashKey(value), k -> new ArrayList<>(1)).add(rule);
+			return true;
+		}
+		if (conjunct.getClass() == Expression.Equal.Not.class) {
+			PathTests path = getPathTests(paths, pathExpr, rule);
+			path.notEqualKeys.add(Grouping.getHashKey(value));
+			path.notEqualRules.add(rule);
+			return true;
+		}
+		if (!(conjunct instanceof Expression.Comparison) || !(value instanceof Number)) {
+			return false;
+		}
+		// normalize to a comparison of the path with the value
+		boolean reversed = pathExpr == binary.rightExpr, inclusive = conjunct instanceof Expression.Comparison.LessOrEqual || conjunct instanceof Expression.Comparison.GreaterOrEqual;
+		boolean lower = (conjunct instanceof Expression.Comparison.Greater || conjunct instanceof Expression.Comparison.GreaterOrEqual) != reversed;
+		PathTests path = getPathTests(paths, pathExpr, rule);
+		(lower ? path.lower : path.upper).add(new Bound((Number) value, inclusive, rule));
+		path.rangeRules.add(rule);
+		return true;
+	}
+
+	/**
+	 * Returns the operand of the given binary expression that is a property path, or null if neither is.
+	 */
+	private static Expression getPath(Expression.Binary binary) {
+		return Expression.Selection.isKeyPath(binary.leftExpr) ? binary.leftExpr : Expression.Selection.isKeyPath(binary.rightExpr) ? binary.rightExpr : null;
+	}
+
+	private static PathTests getPathTests(Map<Expression, PathTests> paths, Expression pathExpr, int rule) {
+		PathTests path = paths.computeIfAbsent(pathExpr, PathTests::new);
+		path.rules.add(rule);
+		return path;
+	}
+
+}
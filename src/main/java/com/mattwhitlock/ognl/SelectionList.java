@@ -0,0 +1,172 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+
+/**
+ * The result of a {@link Expression.Selection} over an array or a {@link RandomAccess} list: a read-only view of the
+ * selected elements of the source, which records only the positions of the selected elements. The positions are held
+ * in an {@code int[]} while they are few, and in a bitmap once that would be smaller. Iterating over a bitmap walks
+ * its bits, and the first access by index indexes its positions into an {@code int[]}, so every access by index takes
+ * constant time. A selection over a selection list selects from the same source, and its size is known without
+ * iterating.
+ * <p>
+ * The elements are read from the source when they are accessed, so changes to the source made after the selection
+ * are visible through the view, but the positions that were selected are not changed by them. The view may be read
+ * by many threads at once.
+ *
+ * @author Matt Whitlock
+ */
+public final class SelectionList extends AbstractList<Object> implements RandomAccess {
+
+	private final Object source;
+	private final Expression.ArrayAccessor accessor;
+	private final int sourceSize;
+
+	private int[] positions = new int[8];
+	private BitSet bits;
+	private int count;
+
+	/**
+	 * The positions of the bitmap in order, once the bitmap has been accessed by index.
+	 */
+	private volatile int[] bitPositions;
+
+	SelectionList(Object source) {
+		if (source instanceof List<?>) {
+			this.source = source;
+			accessor = null;
+			sourceSize = ((List<?>) source).size();
+		}
+		else {
+			this.source = source;
+			accessor = Expression.ArrayAccessor.forClass.get(source.getClass());
+			sourceSize = accessor.getLength(source);
+		}
+	}
+
+	/**
+	 * Returns a new, empty selection list over the same source as this one.
+	 */
+	SelectionList derive() {
+		return new SelectionList(source);
+	}
+
+	int getSourceSize() {
+		return sourceSize;
+	}
+
+	Object getSourceElement(int position) {
+		return accessor == null ? ((List<?>) source).get(position) : accessor.get(source, position);
+	}
+
+	/**
+	 * Appends the given position of the source, which must be greater than any position previously appended.
+	 */
+	void addPosition(int position) {
+		if (bits != null) {
+			bits.set(position);
+		}
+		else {
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+			}
+			positions[count] = position;
+			// switch to a bitmap once it is the smaller representation
+			if (count + 1 > sourceSize >>> 5) {
+				bits = new BitSet(sourceSize);
+				for (int index = 0; index <= count; ++index) {
+					bits.set(positions[index]);
+				}
+				positions = null;
+			}
+		}
+		++count;
+	}
+
+	/**
+	 * Returns the position in the source of the element at the given index of this list.
+	 */
+	int getPosition(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+		if (bits == null) {
+			return positions[index];
+		}
+		int[] bitPositions = this.bitPositions;
+		if (bitPositions == null) {
+			// racing threads build equal arrays, so it does not matter whose is kept
+			bitPositions = new int[count];
+			for (int i = 0, position = bits.nextSetBit(0); i < count; ++i, position = bits.nextSetBit(position + 1)) {
+				bitPositions[i] = position;
+			}
+			this.bitPositions = bitPositions;
+		}
+		return bitPositions[index];
+	}
+
+	/**
+	 * Returns an iterator over the positions in the source of the elements of this list, in order.
+	 */
+	PrimitiveIterator.OfInt positionIterator() {
+		return new PrimitiveIterator.OfInt() {
+
+			private int index, position = -1;
+
+			@Override
+			public boolean hasNext() {
+				return index < count;
+			}
+
+			@Override
+			public int nextInt() {
+				if (index >= count) {
+					throw new NoSuchElementException();
+				}
+				position = bits == null ? positions[index] : bits.nextSetBit(position + 1);
+				++index;
+				return position;
+			}
+
+		};
+	}
+
+	@Override
+	public Iterator<Object> iterator() {
+		PrimitiveIterator.OfInt positionIterator = positionIterator();
+		return new Iterator<Object>() {
+
+			@Override
+			public boolean hasNext() {
+				return positionIterator.hasNext();
+			}
+
+			@Override
+			public Object next() {
+				return getSourceElement(positionIterator.nextInt());
+			}
+
+		};
+	}
+
+	@Override
+	public Object get(int index) {
+		return getSourceElement(getPosition(index));
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+}
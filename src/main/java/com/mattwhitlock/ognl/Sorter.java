@@ -0,0 +1,219 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sorts elements by the values of a key expression, evaluating the key only once per element. Keys are ordered as by
+ * {@link Expression#compare(Object, Object)}, and null keys sort after all others in either direction. Keys that are
+ * all integers or all floating-point numbers are compared unboxed. Sorting is stable: elements having equal keys
+ * remain in their original order.
+ *
+ * @author Matt Whitlock
+ */
+public final class Sorter {
+
+	private interface IndexComparator {
+
+		int compare(int a, int b);
+
+	}
+
+	/**
+	 * Not instantiable.
+	 */
+	private Sorter() {
+	}
+
+	/**
+	 * Returns a new list of the given elements sorted by the values of the given key expression.
+	 */
+	public static List<Object> sort(Context context, Iterable<?> elements, Expression keyExpr, boolean descending) throws OgnlException {
+		return sort(context == null ? new Context() : context, elements.iterator(), keyExpr, descending);
+	}
+
+	/**
+	 * Returns a new list of the first {@code k} of the given elements as sorted by the values of the given key
+	 * expression, without sorting the rest. Only {@code k} elements are retained at any time, so the elements may be
+	 * streamed from a source of any size.
+	 */
+	public static List<Object> top(Context context, Iterable<?> elements, Expression keyExpr, int k, boolean descending) throws OgnlException {
+		return top(context == null ? new Context() : context, elements.iterator(), keyExpr, k, descending);
+	}
+
+	static ArrayList<Object> sort(Context context, Iterator<?> iterator, Expression keyExpr, boolean descending) throws OgnlException {
+		Object[] elements = new Object[16], keys = new Object[16];
+		int size = 0;
+		boolean integral = true, floating = true;
+		while (iterator.hasNext()) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+			}
+			Object element = elements[size] = iterator.next(), key = keys[size++] = keyExpr.getValue(context, element);
+			integral &= key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte;
+			floating &= key instanceof Double || key instanceof Float;
+		}
+		IndexComparator comparator;
+		if (integral && size > 0) {
+			long[] longKeys = new long[size];
+			for (int i = 0; i < size; ++i) {
+				longKeys[i] = ((Number) keys[i]).longValue();
+			}
+			comparator = descending ? (a, b) -> Long.compare(longKeys[b], longKeys[a]) : (a, b) -> Long.compare(longKeys[a], longKeys[b]);
+		}
+		else if (floating && size > 0) {
+			double[] doubleKeys = new double[size];
+			for (int i = 0; i < size; ++i) {
+				doubleKeys[i] = ((Number) keys[i]).doubleValue();
+			}
+			comparator = descending ? (a, b) -> Double.compare(doubleKeys[b], doubleKeys[a]) : (a, b) -> Double.compare(doubleKeys[a], doubleKeys[b]);
+		}
+		else {
+			comparator = getComparator(keys, descending);
+		}
+		int[] order = new int[size];
+		for (int i = 0; i < size; ++i) {
+			order[i] = i;
+		}
+		mergeSort(order, new int[size], 0, size, comparator);
+		ArrayList<Object> sorted = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			sorted.add(elements[order[i]]);
+		}
+		return sorted;
+	}
+
+	static ArrayList<Object> top(Context context, Iterator<?> iterator, Expression keyExpr, int k, boolean descending) throws OgnlException {
+		if (k <= 0) {
+			return new ArrayList<>(0);
+		}
+		Heap heap = new Heap(Math.min(k, 16), descending);
+		for (int seq = 0; iterator.hasNext(); ++seq) {
+			Object element = iterator.next(), key = keyExpr.getValue(context, element);
+			if (heap.size < k) {
+				heap.add(element, key, seq);
+			}
+			else if (compare(key, heap.keys[0], descending) < 0) {
+				heap.replaceRoot(element, key, seq);
+			}
+		}
+		int size = heap.size;
+		int[] order = new int[size];
+		for (int i = 0; i < size; ++i) {
+			order[i] = i;
+		}
+		mergeSort(order, new int[size], 0, size, heap::compare);
+		ArrayList<Object> top = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			top.add(heap.elements[order[i]]);
+		}
+		return top;
+	}
+
+	/**
+	 * A heap of the best elements seen so far, with the worst of them at the root. Elements having equal keys are
+	 * ordered by their sequence numbers, so the earlier of them are kept.
+	 */
+	private static class Heap {
+
+		final boolean descending;
+		Object[] elements, keys;
+		int[] sequence;
+		int size;
+
+		Heap(int capacity, boolean descending) {
+			this.descending = descending;
+			elements = new Object[capacity];
+			keys = new Object[capacity];
+			sequence = new int[capacity];
+		}
+
+		int compare(int a, int b) {
+			int c = Sorter.compare(keys[a], keys[b], descending);
+			return c == 0 ? Integer.compare(sequence[a], sequence[b]) : c;
+		}
+
+		void add(Object element, Object key, int seq) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+				sequence = Arrays.copyOf(sequence, size * 2);
+			}
+			set(size, element, key, seq);
+			for (int index = size++, parent; index > 0 && compare(index, parent = (index - 1) >>> 1) > 0; index = parent) {
+				swap(index, parent);
+			}
+		}
+
+		void replaceRoot(Object element, Object key, int seq) {
+			set(0, element, key, seq);
+			for (int index = 0, child; (child = index * 2 + 1) < size; index = child) {
+				if (child + 1 < size && compare(child + 1, child) > 0) {
+					++child;
+				}
+				if (compare(index, child) >= 0) {
+					return;
+				}
+				swap(index, child);
+			}
+		}
+
+		private void set(int index, Object element, Object key, int seq) {
+			elements[index] = element;
+			keys[index] = key;
+			sequence[index] = seq;
+		}
+
+		private void swap(int a, int b) {
+			Object element = elements[a], key = keys[a];
+			int seq = sequence[a];
+			set(a, elements[b], keys[b], sequence[b]);
+			set(b, element, key, seq);
+		}
+
+	}
+
+	private static IndexComparator getComparator(Object[] keys, boolean descending) {
+		return (a, b) -> compare(keys[a], keys[b], descending);
+	}
+
+	private static int compare(Object leftKey, Object rightKey, boolean descending) {
+		if (leftKey == null || rightKey == null) {
+			return leftKey == null ? rightKey == null ? 0 : 1 : -1;
+		}
+		return descending ? Expression.compare(rightKey, leftKey) : Expression.compare(leftKey, rightKey);
+	}
+
+	/**
+	 * Sorts the given range of indices stably, using the given scratch array.
+	 */
+	private static void mergeSort(int[] order, int[] scratch, int from, int to, IndexComparator comparator) {
+		if (to - from <= 8) {
+			for (int i = from + 1; i < to; ++i) {
+				int index = order[i], j = i;
+				for (; j > from && comparator.compare(order[j - 1], index) > 0; --j) {
+					order[j] = order[j - 1];
+				}
+				order[j] = index;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(order, scratch, from, middle, comparator);
+		mergeSort(order, scratch, middle, to, comparator);
+		if (comparator.compare(order[middle - 1], order[middle]) <= 0) {
+			return;
+		}
+		System.arraycopy(order, from, scratch, from, to - from);
+		for (int i = from, l = from, r = middle; i < to; ++i) {
+			order[i] = r >= to || l < middle && comparator.compare(scratch[l], scratch[r]) <= 0 ? scratch[l++] : scratch[r++];
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package com.mattwhitlock.ognl;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set of equally long, named columns, against which expressions can be evaluated a column at a time. Property names
+ * in an expression, and chains of property accesses and constant index accesses such as {@code header.samples[2]},
+ * resolve to the columns of the same names, and arithmetic, comparison and logical operators over primitive columns are
+ * computed in bulk on primitive arrays, without boxing or any other per-row allocation. The results are the same as
+ * evaluating the expression against an object for each row whose properties have the values of the row's columns.
+ *
+ * @author Matt Whitlock
+ */
+public class Table {
+
+	/**
+	 * The name of the column that {@code #this} refers to, which no property name can collide with.
+	 */
+	static final String THIS = "#this";
+
+	private final LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+	private final int rowCount;
+
+	public Table(int rowCount) {
+		this.rowCount = rowCount;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public Table put(String name, Column column) {
+		if (column.size() != rowCount) {
+			throw new IllegalArgumentException("column \"" + name + "\" has " + column.size() + " rows; expected " + rowCount);
+		}
+		columns.put(name, column);
+		return this;
+	}
+
+	public Column get(String name) {
+		return columns.get(name);
+	}
+
+	public Map<String, Column> getColumns() {
+		return Collections.unmodifiableMap(columns);
+	}
+
+	/**
+	 * Returns the set of rows for which the given predicate is true.
+	 */
+	public BitSet select(Expression predicate) throws OgnlException {
+		Kernel kernel = Kernel.compile(predicate, this);
+		BitSet selection = new BitSet(rowCount);
+		for (int start = 0; start < rowCount; start += Kernel.CHUNK_SIZE) {
+			int length = Math.min(Kernel.CHUNK_SIZE, rowCount - start);
+			kernel.evaluate(start, length, null);
+			for (int i = 0; i < length; ++i) {
+				if (kernel.test(i)) {
+					selection.set(start + i);
+				}
+			}
+		}
+		return selection;
+	}
+
+	/**
+	 * Evaluates the given expression for each row, storing the {@code long} value of each result at the index of its
+	 * row.
+	 */
+	public void evaluate(Expression expression, long[] results) throws OgnlException {
+		Kernel kernel = Kernel.compile(expression, this);
+		for (int start = 0; start < rowCount; start += Kernel.CHUNK_SIZE) {
+			int length = Math.min(Kernel.CHUNK_SIZE, rowCount - start);
+			kernel.evaluate(start, length, null);
+			kernel.getLongs(length, results, start);
+		}
+	}
+
+	/**
+	 * Evaluates the given expression for each row, storing the {@code double} value of each result at the index of
+	 * its row.
+	 */
+	public void evaluate(Expression expression, double[] results) throws OgnlException {
+		Kernel kernel = Kernel.compile(expression, this);
+		for (int start = 0; start < rowCount; start += Kernel.CHUNK_SIZE) {
+			int length = Math.min(Kernel.CHUNK_SIZE, rowCount - start);
+			kernel.evaluate(start, length, null);
+			kernel.getDoubles(length, results, start);
+		}
+	}
+
+	/**
+	 * Evaluates the given expression for each row into a new array of the primitive type of its results, or returns
+	 * null if the expression cannot be evaluated over columns or its results are not of a primitive type.
+	 */
+	Object evaluateArray(Expression expression, Context context) throws OgnlException {
+		Kernel kernel;
+		try {
+			kernel = Kernel.compile(expression, this, context);
+		}
+		catch (OgnlException e) {
+			return null;
+		}
+		if (kernel.kind == Kernel.OBJECT) {
+			return null;
+		}
+		Object results = kernel.newArray(rowCount);
+		for (int start = 0; start < rowCount; start += Kernel.CHUNK_SIZE) {
+			int length = Math.min(Kernel.CHUNK_SIZE, rowCount - start);
+			kernel.evaluate(start, length, null);
+			kernel.copyTo(results, start, length);
+		}
+		return results;
+	}
+
+}
@@ -7,16 +7,50 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.RandomAccess;
 
 import org.junit.jupiter.api.Test;
 
+import com.mattwhitlock.ognl.Binder;
+import com.mattwhitlock.ognl.Column;
 import com.mattwhitlock.ognl.Context;
+import com.mattwhitlock.ognl.Converters;
+import com.mattwhitlock.ognl.Expression;
+import com.mattwhitlock.ognl.FlatExpression;
+import com.mattwhitlock.ognl.Grouping;
+import com.mattwhitlock.ognl.IndexCache;
+import com.mattwhitlock.ognl.IndexedCollection;
+import com.mattwhitlock.ognl.JsonEvaluator;
+import com.mattwhitlock.ognl.KeySortedList;
+import com.mattwhitlock.ognl.MultiExpressionReader;
 import com.mattwhitlock.ognl.OgnlException;
 import com.mattwhitlock.ognl.OgnlParser;
+import com.mattwhitlock.ognl.PropertyAccessor;
+import com.mattwhitlock.ognl.PropertyAccessors;
+import com.mattwhitlock.ognl.RecordSchema;
+import com.mattwhitlock.ognl.RuleSet;
+import com.mattwhitlock.ognl.Sorter;
+import com.mattwhitlock.ognl.Table;
 
 /**
  * @author Matt Whitlock
@@ -47,6 +81,100 @@ public class OgnlEvaluationTest {
 
 	}
 
+	public static class Item {
+
+		private final double price;
+		private final int qty;
+		private final float weight;
+		private final boolean taxable;
+		private final String sku;
+
+		Item(double price, int qty, float weight, boolean taxable, String sku) {
+			this.price = price;
+			this.qty = qty;
+			this.weight = weight;
+			this.taxable = taxable;
+			this.sku = sku;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public int getQty() {
+			return qty;
+		}
+
+		public float getWeight() {
+			return weight;
+		}
+
+		public boolean isTaxable() {
+			return taxable;
+		}
+
+		public String getSku() {
+			return sku;
+		}
+
+	}
+
+	public static class Order {
+
+		public enum Status {
+			OPEN, SHIPPED
+		}
+
+		public long id;
+
+		private int qty;
+		private Status status;
+		private LocalDate date;
+		private BigDecimal total;
+		private StringBuilder note;
+
+		public int getQty() {
+			return qty;
+		}
+
+		public void setQty(int qty) {
+			this.qty = qty;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public void setStatus(Status status) {
+			this.status = status;
+		}
+
+		public LocalDate getDate() {
+			return date;
+		}
+
+		public void setDate(LocalDate date) {
+			this.date = date;
+		}
+
+		public BigDecimal getTotal() {
+			return total;
+		}
+
+		public void setTotal(BigDecimal total) {
+			this.total = total;
+		}
+
+		public StringBuilder getNote() {
+			return note;
+		}
+
+		public void setNote(StringBuilder note) {
+			this.note = note;
+		}
+
+	}
+
 	@Test
 	void testEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
 		assertEquals("Hello world!", eval(null, null, "\"Hello world!\""));
@@ -102,6 +230,785 @@ public class OgnlEvaluationTest {
 		assertThrows(OgnlException.class, () -> {
 			eval(null, widget, "attribute[42]");
 		});
+		Expression attributeExpr = OgnlParser.parse("attribute[\"qux\"]");
+		for (Object value : new Object[] { "a", 1, "b", null, widget }) {
+			attributeExpr.setValue(null, widget, value);
+			assertEquals(value, widget.getAttribute("qux"));
+		}
+	}
+
+	@Test
+	void testFlatEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		for (String exprStr : new String[] {
+				"(1 + 2 * 3) * 4", "1 + 2L + 3f + 4d", "1 + 2 + \"3\" + 4", "\"foo\" + null", "7 / 2 % 3 - 1", "7 - 2.5 * 2", "1 - 10000000000L", "-(1 + 2)", "~5 ^ 3 | 8 & 12",
+				"1 << 4 >> 2", "0x3C & ~(1 << 3) | (1 << 1)", "#this == 42 ? \"yes\" : \"no\"", "#this || \"(none)\"", "0d / 0 || 42", "#this && #this < 50", "!(#this >= 42)",
+				"#this in { 41, 42, 43 }", "#this not in { 1, 2 }", "#a = 3, #b = #a * #this, #b - #a", "doubleValue / 37", "toString().( length() + length )", "#this.( #this + 1 ).( #this * 2 )" }) {
+			Expression expr = OgnlParser.parse(exprStr);
+			Context treeContext = new Context(), flatContext = new Context();
+			assertEquals(expr.getValue(treeContext, 42), FlatExpression.compile(expr).getValue(flatContext, 42), exprStr);
+			assertEquals(treeContext.variables, flatContext.variables, exprStr);
+		}
+		Widget widget = new Widget();
+		FlatExpression flat = FlatExpression.compile(OgnlParser.parse("value = value == null ? 1 : value + 1, attribute[\"count\"] = value"));
+		for (int i = 1; i <= 3; ++i) {
+			assertEquals(i, flat.getValue(null, widget));
+		}
+		assertEquals(3, widget.getAttribute("count"));
+		assertThrows(NullPointerException.class, () -> {
+			FlatExpression.compile(OgnlParser.parse("value.length")).getValue(null, widget.getAttribute("none"));
+		});
+	}
+
+	@Test
+	void testBatchEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int[] lengths = new int[4];
+		ArrayList<Integer> order = new ArrayList<>();
+		Expression expr = OgnlParser.parse("toString().length()");
+		assertEquals(4, expr.evaluateAll(null, Arrays.asList("a", 1, "bcd", 22L), (index, value) -> order.add(index)));
+		assertEquals(Arrays.asList(0, 2, 1, 3), order);
+		expr.evaluateAll(null, Arrays.asList("a", 1, "bcd", 22L), lengths);
+		assertArrayEquals(new int[] { 1, 1, 3, 2 }, lengths);
+		double[] halves = new double[3];
+		OgnlParser.parse("#this / 2d").evaluateAll(null, Arrays.asList(1, 2L, 3f), halves);
+		assertArrayEquals(new double[] { 0.5, 1, 1.5 }, halves);
+		BitSet even = new BitSet();
+		Context context = new Context();
+		OgnlParser.parse("#count = #count == null ? 1 : #count + 1, #this % 2 == 0").evaluateAll(context, Arrays.asList(1, 2, 3, 4, 5), even);
+		assertEquals(BitSet.valueOf(new long[] { 0b01010 }), even);
+		assertEquals(5, context.variables.get("count"));
+	}
+
+	@Test
+	void testVectorEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		BitSet selected = new BitSet();
+		OgnlParser.parse("#this != null && length > 2").evaluateAll(null, Arrays.asList("abc", null, "a", "abcd"), selected);
+		assertEquals(BitSet.valueOf(new long[] { 0b1001 }), selected);
+		int[] lengths = new int[4];
+		OgnlParser.parse("#this == null ? 0 : length * 2").evaluateAll(null, Arrays.asList("abc", null, "a", "abcd"), lengths);
+		assertArrayEquals(new int[] { 6, 0, 2, 8 }, lengths);
+		ArrayList<Object> roots = new ArrayList<>();
+		BitSet expected = new BitSet();
+		for (int i = 0; i < 3000; ++i) {
+			roots.add(i % 2 == 0 ? (Object) i : (Object) (long) i);
+			expected.set(i, i % 3 == 0 || i > 2990);
+		}
+		OgnlParser.parse("#this % 3 == 0 || #this > 2990").evaluateAll(null, roots, selected);
+		assertEquals(expected, selected);
+		Object[] values = new Object[roots.size()];
+		Expression expr = OgnlParser.parse("-#this * 2 + \"\" + (#this > 1500 ? 'x' : 1)");
+		expr.evaluateAll(null, roots, (index, value) -> values[index] = value);
+		for (int i = 0; i < values.length; ++i) {
+			assertEquals(expr.getValue(null, roots.get(i)), values[i]);
+		}
+	}
+
+	@Test
+	void testColumnarEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int n = 2500;
+		double[] prices = new double[n];
+		int[] qtys = new int[n];
+		float[] weights = new float[n];
+		boolean[] taxables = new boolean[n];
+		String[] skus = new String[n];
+		Item[] items = new Item[n];
+		for (int i = 0; i < n; ++i) {
+			items[i] = new Item(prices[i] = i * 0.37, qtys[i] = i % 7 == 0 ? Integer.MAX_VALUE - i : i % 50, weights[i] = i / 3f, taxables[i] = i % 3 == 0, skus[i] = "sku" + i);
+		}
+		Table table = new Table(n).put("price", Column.of(prices)).put("qty", Column.of(qtys)).put("weight", Column.of(weights)).put("taxable", Column.of(taxables)).put("sku", Column.of(skus));
+		for (String exprStr : new String[] { "price * qty > 100", "taxable && weight * 3 >= qty || !taxable && qty < 10", "qty % 4 == 0 ? weight : -qty", "qty != 45 && 1000 / (qty - 45) > 0", "sku > \"sku2\" && price < 400" }) {
+			Expression expr = OgnlParser.parse(exprStr);
+			BitSet expected = new BitSet();
+			for (int i = 0; i < n; ++i) {
+				expected.set(i, Expression.asBoolean(expr.getValue(null, items[i])));
+			}
+			assertEquals(expected, table.select(expr), exprStr);
+		}
+		for (String exprStr : new String[] { "qty * 3 + 1", "qty * 3L + 1", "weight * qty - price", "-weight / 3 + qty % 5", "taxable ? qty : price" }) {
+			Expression expr = OgnlParser.parse(exprStr);
+			long[] longs = new long[n];
+			double[] doubles = new double[n];
+			table.evaluate(expr, longs);
+			table.evaluate(expr, doubles);
+			for (int i = 0; i < n; ++i) {
+				Number expected = Expression.asNumber(expr.getValue(null, items[i]));
+				assertEquals(expected.longValue(), longs[i], exprStr);
+				assertEquals(expected.doubleValue(), doubles[i], exprStr);
+			}
+		}
+		assertThrows(OgnlException.class, () -> table.select(OgnlParser.parse("discount > 0")));
+		assertThrows(OgnlException.class, () -> table.select(OgnlParser.parse("#limit = 3, qty > #limit")));
+	}
+
+	@Test
+	void testRecordEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		RecordSchema header = new RecordSchema(12).field("timestamp", long.class, 0).field("code", int.class, 8);
+		RecordSchema schema = new RecordSchema(24).struct("header", header, 0).field("value", float.class, 12).array("samples", short.class, 16, 3).field("flag", boolean.class, 22);
+		int n = 1500;
+		ByteBuffer buffer = ByteBuffer.allocate(8 + n * schema.getRecordSize()).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(8);
+		BitSet expected = new BitSet();
+		long[] expectedSums = new long[n];
+		for (int i = 0; i < n; ++i) {
+			int offset = 8 + i * schema.getRecordSize();
+			buffer.putLong(offset, 1_000_000_000_000L + i).putInt(offset + 8, i % 5).putFloat(offset + 12, i / 4f);
+			buffer.putShort(offset + 16, (short) i).putShort(offset + 18, (short) -i).putShort(offset + 20, (short) (i * 100)).put(offset + 22, (byte) (i & 1));
+			expected.set(i, i % 5 == 3 && i / 4f > 100.5 || i % 2 == 1 && i < 10);
+			expectedSums[i] = (short) i + (short) (i * 100) + 1_000_000_000_000L + i;
+		}
+		Table table = schema.table(buffer);
+		assertEquals(n, table.getRowCount());
+		assertEquals(8, buffer.position());
+		assertEquals(expected, table.select(OgnlParser.parse("header.code == 3 && value > 100.5 || flag && header.timestamp < 1000000000010L")));
+		long[] sums = new long[n];
+		table.evaluate(OgnlParser.parse("samples[0] + samples[2] + header.timestamp"), sums);
+		assertArrayEquals(expectedSums, sums);
+		assertThrows(OgnlException.class, () -> table.select(OgnlParser.parse("samples[3] > 0")));
+	}
+
+	@Test
+	void testJsonEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		String json = "{ \"id\": 7, \"skip\": { \"deep\": [1, [2, \"]}\"], { \"x\": null }] }, \"user\": { \"name\": \"Ren\\u00e9e\", \"tags\": [\"a\", \"b\"], \"age\": 41 }, "
+				+ "\"items\": [ { \"price\": 2.5, \"qty\": 4 }, { \"price\": 10, \"qty\": 12345678901 } ], \"a-b\": true, \"nothing\": null }";
+		assertEquals(true, JsonEvaluator.compile(OgnlParser.parse("user.age > 40 && items[0].price * items[0].qty == 10")).getValue(null, json));
+		assertEquals(12345678911L, JsonEvaluator.compile(OgnlParser.parse("items[1].qty + items[1].price")).getValue(null, json));
+		assertEquals("Ren\u00e9e!", JsonEvaluator.compile(OgnlParser.parse("user.name + \"!\"")).getValue(null, json));
+		assertEquals(2, JsonEvaluator.compile(OgnlParser.parse("user.tags.size()")).getValue(null, json));
+		assertEquals(Arrays.asList("a", "b"), JsonEvaluator.compile(OgnlParser.parse("user.tags")).getValue(null, json));
+		assertEquals("b", JsonEvaluator.compile(OgnlParser.parse("user.tags[1]")).getValue(null, ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+		assertEquals("(none)", JsonEvaluator.compile(OgnlParser.parse("missing || nothing || \"(none)\"")).getValue(null, json));
+		// chains have the values and raise the errors that they would against the whole document
+		Object document = JsonEvaluator.compile(OgnlParser.parse("#this")).getValue(null, json);
+		for (String exprStr : new String[] { "user.tags.size", "user.name.length", "items.size > 1", "user.size + \":\" + user[\"size\"]", "user.tags[1].length", "items[1]", "missing.field", "nothing.x", "user.tags[2]", "user.tags[-1]", "user.name.foo", "user.age[0]", "[0]", "items[\"0\"]", "user.tags.{ #this + \"!\" }", "items.{? price > 5 }.{ qty }", "user.name.{ #this }", "missing.{ #this }" }) {
+			Object expected;
+			try {
+				expected = OgnlParser.parse(exprStr).getValue(null, document);
+			}
+			catch (Exception e) {
+				Exception actual = assertThrows(Exception.class, () -> JsonEvaluator.compile(OgnlParser.parse(exprStr)).getValue(null, json), exprStr);
+				assertEquals(e.getClass(), actual.getClass(), exprStr);
+				assertEquals(e.getMessage(), actual.getMessage(), exprStr);
+				continue;
+			}
+			assertEquals(expected, JsonEvaluator.compile(OgnlParser.parse(exprStr)).getValue(null, json), exprStr);
+		}
+		// a projection or selection materializes only the list it iterates
+		assertEquals(Arrays.asList(12345678901L), JsonEvaluator.compile(OgnlParser.parse("items.{? price > 5 }.{ qty }")).getValue(null, "{ \"items\": [ { \"price\": 2.5, \"qty\": 4 }, { \"price\": 10, \"qty\": 12345678901 } ], never read"));
+		assertEquals(true, JsonEvaluator.compile(OgnlParser.parse("[\"a-b\"] ? #this[\"user\"][\"tags\"].size() == 2 : false")).getValue(null, json));
+		assertEquals(7, JsonEvaluator.compile(OgnlParser.parse("id")).getValue(null, json + " trailing garbage is never read"));
+		assertThrows(ParseException.class, () -> JsonEvaluator.compile(OgnlParser.parse("user.name")).getValue(null, "{ \"user\": { \"name\": \"unterminated }"));
+		Context globals = new Context(new HashMap<>(Collections.singletonMap("suffix", "?"))) {
+
+			@Override
+			public boolean hasGlobalMethods() {
+				return true;
+			}
+
+			@Override
+			public Method findGlobalMethod(String methodName, Class<?>[] argTypes) {
+				try {
+					return "size".equals(methodName) ? System.class.getMethod("nanoTime") : null;
+				}
+				catch (NoSuchMethodException e) {
+					throw new AssertionError(e);
+				}
+			}
+
+		};
+		assertEquals(2, JsonEvaluator.compile(OgnlParser.parse("user.tags.size()")).getValue(globals, json));
+		assertEquals("Ren\u00e9e?", JsonEvaluator.compile(OgnlParser.parse("user.name.concat(#suffix)")).getValue(globals, json));
+	}
+
+	@Test
+	void testPropertyAccessors() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		HashMap<String, Object> map = new HashMap<>();
+		map.put("name", "foo");
+		map.put("items", Arrays.asList(1, 2, 3));
+		assertEquals("foo", eval(null, map, "name"));
+		assertEquals(3, eval(null, map, "items.size"));
+		assertEquals(2, eval(null, map, "size"));
+		assertEquals(false, eval(null, map, "empty"));
+		assertEquals(42, eval(null, map, "count = 42, count"));
+		assertEquals(42, map.get("count"));
+		PropertyAccessors.register(Widget.class, (objClass, propertyName) -> propertyName.startsWith("attr_") ? new PropertyAccessor.Property() {
+
+			@Override
+			public Object get(Object object) {
+				return ((Widget) object).getAttribute(propertyName.substring(5));
+			}
+
+			@Override
+			public void set(Object object, Object value) {
+				((Widget) object).setAttribute(propertyName.substring(5), value);
+			}
+
+		} : null);
+		try {
+			Widget widget = new Widget();
+			assertEquals("bar", eval(null, widget, "attr_foo = \"bar\", value = attr_foo.length(), attr_foo"));
+			assertEquals("bar", widget.getAttribute("foo"));
+			assertEquals(3, widget.getValue());
+		}
+		finally {
+			PropertyAccessors.unregister(Widget.class);
+		}
+	}
+
+	@Test
+	void testArrayAccess() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int[] ints = { 1, 2, 3 };
+		assertEquals(5, eval(null, ints, "[1] = [0] + [2] + 1, [1]"));
+		assertArrayEquals(new int[] { 1, 5, 3 }, ints);
+		long[] longs = new long[2];
+		assertEquals(7L, eval(null, longs, "[0] = 7, [1] = 'a', [0]"));
+		assertArrayEquals(new long[] { 7, 'a' }, longs);
+		assertEquals(3, eval(null, new double[3], "length"));
+		assertArrayEquals(new char[] { 'x', 'y' }, (char[]) eval(null, null, "new char[] { 'x', 'y' }"));
+		assertArrayEquals(new double[] { 1, 2.5 }, (double[]) eval(null, null, "new double[] { 1, 2.5 }"));
+		assertArrayEquals(new boolean[][] { { true }, { false, true } }, (boolean[][]) eval(null, null, "new boolean[][] { { true }, { false, true } }"));
+		assertThrows(OgnlException.class, () -> eval(null, new int[1], "[0] = 1L"));
+		assertThrows(OgnlException.class, () -> eval(null, new String[1], "[0] = 1"));
+		assertThrows(OgnlException.class, () -> eval(null, new byte[1], "[1]"));
+	}
+
+	@Test
+	void testLiteralArrays() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		for (String exprStr : new String[] { "new int[] { 1, 2, 3 }", "new long[] { 1, 2L }", "new java.lang.Object[] { 'a', \"b\", null, 1.5d }" }) {
+			Expression expr = OgnlParser.parse(exprStr);
+			assertEquals(exprStr, expr.toString());
+			assertEquals(OgnlParser.parse(exprStr), expr);
+			assertEquals(OgnlParser.parse(exprStr).hashCode(), expr.hashCode());
+			Object first = expr.getValue(null, null), second = expr.getValue(null, null);
+			assertArrayEquals(new Object[] { first }, new Object[] { second });
+			java.lang.reflect.Array.set(first, 0, java.lang.reflect.Array.get(first, 1));
+			assertArrayEquals(new Object[] { second }, new Object[] { expr.getValue(null, null) });
+		}
+		Expression expr = OgnlParser.parse("{ 'a', 'b', 3 }");
+		assertEquals("{ 'a', 'b', 3 }", expr.toString());
+		@SuppressWarnings("unchecked")
+		java.util.List<Object> list = (java.util.List<Object>) expr.getValue(null, null);
+		list.add(4);
+		assertEquals(Arrays.asList('a', 'b', 3), expr.getValue(null, null));
+		assertThrows(IllegalArgumentException.class, () -> eval(null, null, "new byte[] { 1, 2 }"));
+	}
+
+	@Test
+	void testPrimitiveProjection() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		assertArrayEquals(new double[] { 1 * 1.2, 3 * 1.2 }, (double[]) eval(null, new double[] { 1, 3 }, "#this.{[] #this * 1.2 }"));
+		assertArrayEquals(new int[] { 0, 1, 4, 9, 16 }, (int[]) eval(null, null, "(5).{[] #this * #this }"));
+		assertArrayEquals(new boolean[] { false, false, false, true }, (boolean[]) eval(null, null, "4L.{[] #this > 2 }"));
+		assertArrayEquals(new long[] { 4, 5 }, (long[]) eval(null, new long[] { 1, 2 }, "#k = 3, #this.{[] #this + #k }"));
+		assertArrayEquals(new float[] { 0.5f, -1 }, (float[]) eval(null, new short[] { 1, -2 }, "#this.{[] #this / 2f }"));
+		assertArrayEquals(new int[] { 1, 2 }, (int[]) eval(null, new String[] { "a", "bb" }, "#this.{[] length() }"));
+		assertArrayEquals(new short[] { 1, -2 }, (short[]) eval(null, new short[] { 1, -2 }, "#this.{[] #this }"));
+		assertArrayEquals(new byte[] { 7, -3 }, (byte[]) eval(null, new byte[] { 7, -3 }, "#this.{[] #this > 5 ? #this : #this }"));
+		assertArrayEquals(new int[] { -1, 2 }, (int[]) eval(null, new short[] { 1, -2 }, "#this.{[] -#this }"));
+		assertArrayEquals(new int[] { 4, 10 }, (int[]) eval(null, new byte[] { 2, 5 }, "#this.{[] #this + #this }"));
+		assertArrayEquals(new int[] { 2, 5 }, (int[]) eval(null, new byte[] { 2, 5 }, "#this.{[] +#this }"));
+		assertArrayEquals(new Object[] { 1, "x" }, (Object[]) eval(null, null, "{ 1, \"x\" }.{[] #this }"));
+		assertArrayEquals(new Object[0], (Object[]) eval(null, null, "{ }.{[] #this }"));
+		Expression expr = OgnlParser.parse("#this.{[] #this % 7 == 0 ? #this * 1000000 : -#this }"), boxed = OgnlParser.parse("#this.{ #this % 7 == 0 ? #this * 1000000 : -#this }");
+		for (Object root : new Object[] { 3000, 3000L }) {
+			Object array = expr.getValue(null, root);
+			ArrayList<Object> values = new ArrayList<>();
+			for (int i = 0; i < java.lang.reflect.Array.getLength(array); ++i) {
+				values.add(java.lang.reflect.Array.get(array, i));
+			}
+			assertEquals(boxed.getValue(null, root), values);
+		}
+	}
+
+	@Test
+	void testSelectionList() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		assertEquals(Arrays.asList(2, 4), eval(null, new int[] { 1, 2, 3, 4 }, "#this.{? #this % 2 == 0 }"));
+		assertEquals(Arrays.asList("bb", "ccc"), eval(null, Arrays.asList("a", "bb", "ccc"), "#this.{? length() > 1 }"));
+		assertEquals(Arrays.asList(4), eval(null, new int[] { 1, 2, 3, 4 }, "#this.{? #this % 2 == 0 }.{? #this > 2 }"));
+		assertEquals(Collections.emptyList(), eval(null, new Object[0], "#this.{? true }"));
+		int[] values = new int[100000];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = i;
+		}
+		for (String exprStr : new String[] { "#this.{? #this % 9999 == 0 }", "#this.{? #this % 3 != 0 }.{? #this % 5 == 0 }" }) {
+			List<?> list = (List<?>) eval(null, values, exprStr);
+			ArrayList<Object> expected = new ArrayList<>();
+			for (Object element : (List<?>) eval(null, Arrays.stream(values).boxed().iterator(), exprStr.replace("}.{", "}.iterator().{"))) {
+				expected.add(element);
+			}
+			assertEquals(expected, list);
+			assertEquals(expected.size(), eval(null, values, exprStr + ".size()"));
+			assertEquals(expected.get(expected.size() - 1), list.get(list.size() - 1));
+			assertEquals(expected.get(1), list.get(1));
+			assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+		}
+		// a bitmap of positions may be read by index from many threads at once, in any order
+		List<?> odd = (List<?>) eval(null, values, "#this.{? #this % 2 == 1 }");
+		Throwable[] failures = new Throwable[4];
+		Thread[] threads = new Thread[failures.length];
+		for (int t = 0; t < threads.length; ++t) {
+			int first = odd.size() - 1 - t;
+			int thread = t;
+			(threads[t] = new Thread(() -> {
+				try {
+					for (int i = first; i >= 0; i -= threads.length) {
+						assertEquals(i * 2 + 1, odd.get(i));
+					}
+				}
+				catch (Throwable e) {
+					failures[thread] = e;
+				}
+			})).start();
+		}
+		for (int t = 0; t < threads.length; ++t) {
+			try {
+				threads[t].join();
+			}
+			catch (InterruptedException e) {
+				throw new AssertionError(e);
+			}
+			assertEquals(null, failures[t]);
+		}
+	}
+
+	@Test
+	void testPipelines() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int[] pulled = new int[1];
+		Iterable<Integer> naturals = () -> new Iterator<Integer>() {
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public Integer next() {
+				return pulled[0]++;
+			}
+
+		};
+		assertEquals(21, eval(null, naturals, "#this.{? #this % 2 == 1 }.{ #this * 3 }.{? #this % 7 == 0 }[0]"));
+		assertEquals(8, pulled[0]);
+		pulled[0] = 0;
+		assertEquals(Arrays.asList(10, 12, 14), eval(null, naturals, "#this.{ #this * 2 }.{> 5 }.{< 3 }"));
+		assertEquals(8, pulled[0]);
+		pulled[0] = 0;
+		assertEquals(Arrays.asList(4), eval(null, naturals, "#this.{? #this > 3 }.{^ #this % 2 == 0 }"));
+		assertEquals(5, pulled[0]);
+		assertEquals(Arrays.asList(1, 3, 5), eval(null, Arrays.asList(0, 1, 2, 3, 4, 5), "#this.{? #this % 2 == 1 }.{< 10 }"));
+		assertEquals(Arrays.asList(9, 25), eval(null, new int[] { 1, 2, 3, 4, 5 }, "#this.{ #this * #this }.{> 1 }.{? #this % 2 == 1 }"));
+		assertEquals(Arrays.asList(), eval(null, new int[] { 1, 2 }, "#this.{> 5 }"));
+		assertThrows(OgnlException.class, () -> eval(null, new int[] { 1, 2 }, "#this.{ #this }[2]"));
+		assertThrows(OgnlException.class, () -> eval(null, null, "{ 1, 2, 3 }.{ #this * 2 }[-1]"));
+		assertEquals(7, eval(null, null, "{ 1, 2, 3 }.{ #this * 2 }[1] = 7"));
+		assertThrows(OgnlException.class, () -> eval(null, null, "{ 1, 2, 3 }.{ #this * 2 }[3] = 7"));
+		assertThrows(OgnlException.class, () -> eval(null, new int[] { 1, 2 }, "#this.{< -1 }"));
+		Context nullFoo = new Context(new HashMap<>(Collections.singletonMap("foo", null)));
+		for (String exprStr : new String[] { "#foo.{ #this }", "#foo.{ #this }.{ #this }", "#foo.{ #this }.{? true }", "#foo.{? true }.{ #this }", "#foo.{ #this }[0]", "#foo.{ #this }.{< 1 }", "#foo.{sum: #this }", "#foo.{sort: #this }" }) {
+			assertEquals("#foo", assertThrows(NullPointerException.class, () -> eval(nullFoo, null, exprStr)).getMessage(), exprStr);
+		}
+		assertEquals(Collections.EMPTY_LIST, eval(nullFoo, null, "#foo.{^ true }"));
+		pulled[0] = 0;
+		Iterator<?> iterator = OgnlParser.parse("#this.{ #this + 1 }").getValues(null, naturals).iterator();
+		assertEquals(1, iterator.next());
+		assertEquals(2, iterator.next());
+		assertEquals(2, pulled[0]);
+	}
+
+	@Test
+	void testParallelEvaluation() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		Context context = new Context(new HashMap<>());
+		context.variables.put("k", 7);
+		context.parallelThreshold = 1000;
+		ArrayList<Integer> values = new ArrayList<>();
+		for (int i = 0; i < 100000; ++i) {
+			values.add(i);
+		}
+		for (String exprStr : new String[] { "#this.{ #this * #k }", "#this.{? #this % #k == 3 }", "#this.{ { #this, #this % 3 } }" }) {
+			Object sequential = eval(new Context(context.variables), values, exprStr), parallel = eval(context, values, exprStr);
+			assertEquals(sequential, parallel);
+		}
+		assertEquals(values.size() / 7 + 1, eval(context, values.stream().mapToInt(Integer::intValue).toArray(), "#this.{? #this % #k == 0 }.size()"));
+		assertThrows(ArithmeticException.class, () -> eval(context, values, "#this.{ 1 / (#this - 50000) }"));
+		// of several failing elements, the first one's failure is thrown, as in sequential evaluation
+		String failingExprStr = "#this.{ #this < 20000 ? #this : #this == 20000 ? 1 / 0 : { 1 }[#this] }";
+		Class<? extends Throwable> sequentialFailure = assertThrows(Throwable.class, () -> eval(new Context(context.variables), values, failingExprStr)).getClass();
+		assertEquals(ArithmeticException.class, sequentialFailure);
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(sequentialFailure, assertThrows(Throwable.class, () -> eval(context, values, failingExprStr)).getClass());
+		}
+		// assignments are evaluated sequentially, in order
+		assertEquals(values, eval(context, values, "#n = 0, #this.{ #n = #n + 1, #this }"));
+		assertEquals(values.size(), context.variables.get("n"));
+		// lists are read only by the calling thread, however they are evaluated
+		Thread owner = Thread.currentThread();
+		class OwnedList extends AbstractList<Integer> implements RandomAccess {
+
+			@Override
+			public Integer get(int index) {
+				assertEquals(owner, Thread.currentThread());
+				return values.get(index);
+			}
+
+			@Override
+			public int size() {
+				return values.size();
+			}
+
+		}
+		assertEquals(eval(null, values, "#this.{ #this * 7 }"), eval(context, new OwnedList(), "#this.{ #this * #k }"));
+		int[] array = values.stream().mapToInt(Integer::intValue).toArray();
+		for (String exprStr : new String[] { "#this.{? #this % 2 == 0 }.{ #this + #k }", "#this.{? #this % 2 == 0 }.{? #this % 3 == 0 }.{ #this + #k }" }) {
+			assertEquals(eval(new Context(context.variables), array, exprStr), eval(context, array, exprStr));
+		}
+	}
+
+	@Test
+	void testAggregations() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int[] values = { 3, 1, 4, 1, 5, 9, 2, 6 };
+		assertEquals(31, eval(null, values, "#this.{sum: #this }"));
+		assertEquals(31L, eval(null, values, "#this.{sum: #this * 1L }"));
+		assertEquals(3.875, eval(null, values, "#this.{avg: #this }"));
+		assertEquals(3, eval(null, values, "#this.{count: #this % 2 == 0 }"));
+		assertEquals(1, eval(null, values, "#this.{min: #this }"));
+		assertEquals(9, eval(null, values, "#this.{max: #this }"));
+		assertEquals(0, eval(null, new int[0], "#this.{sum: #this }"));
+		assertEquals(null, eval(null, new int[0], "#this.{avg: #this }"));
+		assertEquals(Integer.MAX_VALUE + 1, eval(null, new int[] { Integer.MAX_VALUE, 1 }, "#this.{sum: #this }"));
+		assertEquals(new BigDecimal("6.5"), eval(null, Arrays.asList(1, 2L, 1.5f, new BigDecimal("2")), "#this.{sum: #this }"));
+		assertEquals(new BigDecimal("1.5"), eval(null, Arrays.asList(BigInteger.ONE, null, 2), "#this.{avg: #this }"));
+		for (List<?> mixed : Arrays.asList(Arrays.asList((short) 3, 2L, 1.5f, BigInteger.TEN, 0.25), Arrays.asList(0.1f, 0.2, 3L, (byte) 4, BigInteger.ONE))) {
+			assertEquals(eval(null, mixed, "#this[0] + #this[1] + #this[2] + #this[3] + #this[4]"), eval(null, mixed, "#this.{sum: #this }"));
+		}
+		assertEquals("pear", eval(null, Arrays.asList("apple", "pear", "fig"), "#this.{max: #this }"));
+		assertEquals(22, eval(null, values, "#this.{? #this > 2 }.{ #this - 1 }.{sum: #this }"));
+		assertThrows(OgnlException.class, () -> eval(null, Arrays.asList("x"), "#this.{sum: #this }"));
+	}
+
+	@Test
+	void testSort() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		List<String> words = Arrays.asList("pear", "fig", "apple", "kiwi", "banana", "date");
+		assertEquals(Arrays.asList("fig", "pear", "kiwi", "date", "apple", "banana"), eval(null, words, "#this.{sort: length() }"));
+		assertEquals(Arrays.asList("banana", "apple", "pear", "kiwi"), eval(null, words, "#this.{sortDesc: length() }.{< 4 }"));
+		assertEquals(Arrays.asList("apple", "banana", "date", "fig", "kiwi", "pear"), eval(null, words, "#this.{sort: #this }"));
+		assertEquals(Arrays.asList(2.5, 1, null), eval(null, Arrays.asList(1, null, 2.5), "#this.{sortDesc: #this }"));
+		Random random = new Random(42);
+		ArrayList<Integer> values = new ArrayList<>();
+		for (int i = 0; i < 10000; ++i) {
+			values.add(random.nextInt(1000));
+		}
+		ArrayList<Integer> expected = new ArrayList<>(values);
+		expected.sort(Collections.reverseOrder());
+		assertEquals(expected, eval(null, values, "#this.{sortDesc: #this }"));
+		assertEquals(expected.subList(0, 10), eval(null, values, "#this.{sortDesc: #this }.{< 10 }"));
+		assertEquals(expected.subList(0, 10), Sorter.top(null, values, OgnlParser.parse("#this"), 10, true));
+		assertEquals(Collections.emptyList(), eval(null, values, "#this.{sort: #this }.{< 0 }"));
+	}
+
+	@Test
+	void testGrouping() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		List<Item> items = Arrays.asList(new Item(2.5, 4, 1, true, "A-1"), new Item(1, 2, 1, false, "B-1"), new Item(4, 1, 1, true, "A-2"), new Item(3, 3, 1, false, "C-1"));
+		Map<?, ?> groups = (Map<?, ?>) eval(null, items, "#this.{groupBy: taxable }");
+		assertEquals(Arrays.asList(true, false), new ArrayList<>(groups.keySet()));
+		assertEquals(Arrays.asList(items.get(0), items.get(2)), groups.get(true));
+		HashMap<Object, Object> totals = new LinkedHashMap<>();
+		totals.put(true, 14.0);
+		totals.put(false, 11.0);
+		assertEquals(totals, eval(null, items, "#this.{groupBy: taxable }.{sum: price * qty }"));
+		assertEquals(Arrays.asList(1, 2L, 2.5), eval(null, Arrays.asList(1, 1L, 2L, 2.0, new BigDecimal("2.00"), 2.5, 1.0f), "#this.{distinct: #this }"));
+		assertEquals(Arrays.asList(items.get(0), items.get(2)), eval(null, items, "#this.{distinct: qty % 2 }"));
+		assertEquals(Collections.singletonMap(1L, Arrays.asList(1L, 1, 1.0)), Grouping.groupBy(null, Arrays.asList(1L, 1, 1.0), OgnlParser.parse("#this"), 1));
+	}
+
+	@Test
+	void testJoin() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		HashMap<String, Object> root = new HashMap<>();
+		root.put("orders", Arrays.asList(map("id", 1, "customerId", 10), map("id", 2, "customerId", 30L), map("id", 3, "customerId", 20), map("id", 4, "customerId", null)));
+		root.put("customers", Arrays.asList(map("id", 10L, "name", "ann"), map("id", 20, "name", "bob"), map("id", 20.0, "name", "bea")));
+		assertEquals(Arrays.asList(Arrays.asList(1, "ann"), Arrays.asList(3, "bob"), Arrays.asList(3, "bea")), eval(null, root, "orders.{join: customers, customerId, id, { left.id, right.name } }"));
+		assertEquals(Arrays.asList("ann", null, "bob", "bea", null), eval(null, root, "orders.{leftJoin: customers, customerId, id }.{ right == null ? null : right.name }"));
+		List<?> pairs = (List<?>) eval(null, root, "orders.{join: customers, customerId, id }");
+		assertEquals(new Expression.Join.Match(((List<?>) root.get("orders")).get(0), ((List<?>) root.get("customers")).get(0)), pairs.get(0));
+	}
+
+	private static HashMap<String, Object> map(String key1, Object value1, String key2, Object value2) {
+		HashMap<String, Object> map = new HashMap<>();
+		map.put(key1, value1);
+		map.put(key2, value2);
+		return map;
+	}
+
+	@Test
+	void testIndexedSelection() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		Expression skuExpr = OgnlParser.parse("sku"), priceExpr = OgnlParser.parse("price");
+		int[] lookups = new int[1];
+		class IndexedItems extends ArrayList<Item> implements IndexedCollection<Item> {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Collection<Item> lookup(Expression keyExpr, Object value) {
+				if (!keyExpr.equals(skuExpr)) {
+					return null;
+				}
+				++lookups[0];
+				ArrayList<Item> matches = new ArrayList<>();
+				for (Item item : this) {
+					if (item.getSku().equals(value)) {
+						matches.add(item);
+					}
+				}
+				return matches;
+			}
+
+			@Override
+			public Collection<Item> range(Expression keyExpr, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+				return null;
+			}
+
+		}
+		class SortedItems extends ArrayList<Item> implements KeySortedList<Item> {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Expression getSortKey() {
+				return priceExpr;
+			}
+
+		}
+		IndexedItems indexed = new IndexedItems();
+		SortedItems sorted = new SortedItems();
+		for (int i = 0; i < 100; ++i) {
+			Item item = new Item(i / 2, 1, 1, false, "S" + i % 10);
+			indexed.add(item);
+			sorted.add(item);
+		}
+		Context context = new Context(new HashMap<>());
+		context.variables.put("sku", "S3");
+		context.variables.put("from", 10);
+		context.variables.put("to", 12.5);
+		for (String exprStr : new String[] { "#this.{? sku == #sku }", "#this.{? #sku == sku }", "#this.{? price >= #from && price < #to }", "#this.{? #from < price && price <= #to && price >= 11 }", "#this.{? price == 7 }", "#this.{? price > 1000 }", "#this.{? price < #from || sku == #sku }" }) {
+			Object expected = eval(context, new ArrayList<>(indexed), exprStr);
+			assertEquals(expected, eval(context, indexed, exprStr), exprStr);
+			assertEquals(expected, eval(context, sorted, exprStr), exprStr);
+		}
+		assertEquals(2, lookups[0]);
+		// the index never changes the result of an equality between values of different types
+		class SortedValues extends ArrayList<Object> implements KeySortedList<Object> {
+
+			private static final long serialVersionUID = 1L;
+
+			SortedValues(Object... values) {
+				super(Arrays.asList(values));
+			}
+
+			@Override
+			public Expression getSortKey() {
+				return Expression.ThisReference.THIS;
+			}
+
+		}
+		for (SortedValues values : Arrays.asList(new SortedValues(1, 5, 9), new SortedValues(1L, 5.0, 9), new SortedValues("1", "5", "9"))) {
+			for (String exprStr : new String[] { "#this.{? #this == \"5\" }", "#this.{? #this == '5' }", "#this.{? #this == 5 }", "#this.{? 5L == #this }", "#this.{? #this == 5 && #this >= 1 }" }) {
+				assertEquals(eval(null, new ArrayList<>(values), exprStr), eval(null, values, exprStr), exprStr);
+			}
+		}
+	}
+
+	@Test
+	void testIndexCache() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		class VersionedItems extends ArrayList<Item> implements IndexCache.Versioned {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public long getVersion() {
+				return modCount;
+			}
+
+			@Override
+			public Item set(int index, Item element) {
+				++modCount;
+				return super.set(index, element);
+			}
+
+		}
+		VersionedItems items = new VersionedItems();
+		for (int i = 0; i < 100; ++i) {
+			items.add(new Item(i, 1, 1, false, "S" + i % 10));
+		}
+		Context context = new Context(new HashMap<>()), plain = new Context(context.variables);
+		context.indexCache = new IndexCache(2, 1 << 20);
+		Expression expr = OgnlParser.parse("#this.{? sku == #sku }");
+		for (int i = 0; i < 5; ++i) {
+			context.variables.put("sku", "S" + i);
+			assertEquals(expr.getValue(plain, items), expr.getValue(context, items));
+			assertEquals(expr.getValue(plain, items.toArray()), expr.getValue(context, items.toArray()));
+		}
+		assertEquals(1, context.indexCache.size());
+		assertEquals(expr.getValue(plain, items), OgnlParser.parse("#this.{? #sku == sku }").getValue(context, items));
+		assertEquals(1, context.indexCache.size());
+		items.add(new Item(100, 1, 1, false, "S4"));
+		assertEquals(expr.getValue(plain, items), expr.getValue(context, items));
+		items.set(0, new Item(-1, 1, 1, false, "S4"));
+		assertEquals(expr.getValue(plain, items), expr.getValue(context, items));
+		assertEquals(expr.getValue(plain, items), expr.getValue(context, items));
+		context.indexCache = new IndexCache(1, 100);
+		assertEquals(expr.getValue(plain, items), expr.getValue(context, items));
+		assertEquals(0, context.indexCache.size());
+	}
+
+	@Test
+	void testRuleSet() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		String[] ruleStrs = { "type == 'trade'", "type == 'trade' && price >= 100", "type == 'quote' && price < 50.5 && qty > 3", "'trade' == type && 10 < price && price <= 20", "side == 'B' || side == 'S'", "region in { 'EU', 'US' } && qty != 0", "type != 'trade' && qty * price > 500", "price == 100L", "account.owner == 'bob'", "qty % 2 == 0", "type == 'trade' && (region == 'EU' || qty > 5)", "flag" };
+		ArrayList<Expression> rules = new ArrayList<>();
+		for (String ruleStr : ruleStrs) {
+			rules.add(OgnlParser.parse(ruleStr));
+		}
+		RuleSet ruleSet = RuleSet.compile(rules);
+		assertEquals(ruleStrs.length, ruleSet.size());
+		Random random = new Random(46);
+		String[] types = { "trade", "quote", null }, sides = { "B", "S", "X" }, regions = { "EU", "US", "APAC" };
+		Context context = new Context();
+		for (int i = 0; i < 500; ++i) {
+			HashMap<String, Object> event = new HashMap<>();
+			event.put("type", types[random.nextInt(types.length)]);
+			event.put("side", sides[random.nextInt(sides.length)]);
+			event.put("region", regions[random.nextInt(regions.length)]);
+			event.put("price", random.nextBoolean() ? (Object) (random.nextInt(120) + 0.5 * random.nextInt(2)) : (Object) random.nextInt(120));
+			event.put("qty", random.nextInt(8));
+			event.put("account", map("owner", random.nextBoolean() ? "bob" : null, "id", i));
+			event.put("flag", random.nextBoolean());
+			BitSet expected = new BitSet();
+			for (int rule = 0; rule < ruleStrs.length; ++rule) {
+				if (Expression.asBoolean(rules.get(rule).getValue(context, event))) {
+					expected.set(rule);
+				}
+			}
+			assertEquals(expected, ruleSet.match(context, event), event.toString());
+		}
+		HashMap<String, Object> event = map("type", "trade", "account", null);
+		assertThrows(NullPointerException.class, () -> ruleSet.match(context, event));
+	}
+
+	@Test
+	void testMultiExpressionReader() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int[] reads = new int[1];
+		class CountingMap extends HashMap<String, Object> {
+
+			private static final long serialVersionUID = 1L;
+
+			CountingMap(Object... entries) {
+				for (int i = 0; i < entries.length; i += 2) {
+					put((String) entries[i], entries[i + 1]);
+				}
+			}
+
+			@Override
+			public Object get(Object key) {
+				++reads[0];
+				return super.get(key);
+			}
+
+		}
+		CountingMap customer = new CountingMap("name", "Ann", "address", new CountingMap("city", "Oslo", "zip", "0150"));
+		CountingMap order = new CountingMap("customer", customer, "total", 12.5, "lines", Arrays.asList("a", "b"));
+		CountingMap root = new CountingMap("order", order);
+		String[] exprStrs = { "order.customer.name", "order.customer.address.city", "order.total", "order.customer.address.zip", "order.lines[1]", "#this.order.total", "order.total * 2", "#this" };
+		ArrayList<Expression> expressions = new ArrayList<>();
+		Object[] expected = new Object[exprStrs.length];
+		for (int i = 0; i < exprStrs.length; ++i) {
+			expressions.add(OgnlParser.parse(exprStrs[i]));
+			expected[i] = expressions.get(i).getValue(null, root);
+		}
+		MultiExpressionReader reader = MultiExpressionReader.compile(expressions);
+		assertEquals(exprStrs.length, reader.getWidth());
+		reads[0] = 0;
+		assertArrayEquals(expected, reader.read(null, root));
+		// order, customer, name, address, city, total, zip, lines, and order and total again for the product
+		assertEquals(10, reads[0]);
+		order.put("customer", null);
+		assertEquals("order.customer", assertThrows(NullPointerException.class, () -> reader.read(null, root)).getMessage());
+	}
+
+	@Test
+	void testBinder() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		int[] reads = new int[1];
+		HashMap<String, Object> form = new HashMap<String, Object>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Object get(Object key) {
+				++reads[0];
+				return super.get(key);
+			}
+
+		};
+		ArrayList<Object> lines = new ArrayList<>();
+		for (int i = 0; i < 4; ++i) {
+			lines.add(new HashMap<>());
+		}
+		form.put("lines", lines);
+		HashMap<String, Object> root = new HashMap<>();
+		root.put("form", form);
+		LinkedHashMap<Expression, Object> assignments = new LinkedHashMap<>();
+		for (String exprStr : new String[] { "form.name", "form.lines[3].qty", "form.lines[3].sku", "form.lines[0].qty", "form.missing.qty", "form.lines[9].qty", "form.name.length()", "#this.form.note" }) {
+			assignments.put(OgnlParser.parse(exprStr), exprStr.length());
+		}
+		Binder binder = new Binder();
+		Map<Expression, OgnlException> failures = binder.bind(null, root, assignments);
+		assertEquals(Arrays.asList(OgnlParser.parse("form.missing.qty"), OgnlParser.parse("form.lines[9].qty"), OgnlParser.parse("form.name.length()")), new ArrayList<>(failures.keySet()));
+		assertEquals(9, form.get("name"));
+		assertEquals(map("qty", 17, "sku", 17), lines.get(3));
+		assertEquals(Collections.singletonMap("qty", 17), lines.get(0));
+		assertEquals(15, form.get("note"));
+		// missing and each element of lines resolved once
+		reads[0] = 0;
+		assertEquals(failures.keySet(), binder.bind(null, root, assignments).keySet());
+		assertEquals(4, reads[0]);
+		// an assignment to an intermediate object is seen by the assignments after it
+		assignments.clear();
+		ArrayList<Object> newLines = new ArrayList<>(Collections.singletonList(new HashMap<>()));
+		assignments.put(OgnlParser.parse("form.lines[0].sku"), "a");
+		assignments.put(OgnlParser.parse("form.lines"), newLines);
+		assignments.put(OgnlParser.parse("form.lines[0].qty"), 2);
+		assertEquals(Collections.emptyMap(), binder.bind(null, root, assignments));
+		assertEquals(map("qty", 17, "sku", "a"), lines.get(0));
+		assertEquals(Collections.singletonMap("qty", 2), newLines.get(0));
+	}
+
+	@Test
+	void testConversions() throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
+		Order order = new Order();
+		OgnlParser.parse("qty").setValue(null, order, " 42 ");
+		assertEquals(42, order.getQty());
+		OgnlParser.parse("qty").setValue(null, order, new StringBuilder("-7"));
+		assertEquals(-7, order.getQty());
+		OgnlParser.parse("qty = 3L").getValue(null, order);
+		assertEquals(3, order.getQty());
+		OgnlParser.parse("qty = 4.0").getValue(null, order);
+		assertEquals(4, order.getQty());
+		assertThrows(OgnlException.class, () -> OgnlParser.parse("qty").setValue(null, order, "4.5"));
+		assertThrows(OgnlException.class, () -> OgnlParser.parse("qty").setValue(null, order, 1L << 40));
+		OgnlParser.parse("status").setValue(null, order, "SHIPPED");
+		assertEquals(Order.Status.SHIPPED, order.getStatus());
+		OgnlParser.parse("date").setValue(null, order, "2026-10-18");
+		assertEquals(LocalDate.of(2026, 10, 18), order.getDate());
+		OgnlParser.parse("total").setValue(null, order, "12.50");
+		assertEquals(new BigDecimal("12.50"), order.getTotal());
+		OgnlParser.parse("total").setValue(null, order, 0.1);
+		assertEquals(new BigDecimal("0.1"), order.getTotal());
+		OgnlParser.parse("id").setValue(null, order, "-9223372036854775808");
+		assertEquals(Long.MIN_VALUE, order.id);
+		assertThrows(OgnlException.class, () -> OgnlParser.parse("id").setValue(null, order, "9223372036854775808"));
+		assertThrows(OgnlException.class, () -> OgnlParser.parse("note").setValue(null, order, 1));
+		Converters.register(Integer.class, StringBuilder.class, value -> new StringBuilder("#").append(value));
+		try {
+			OgnlParser.parse("note").setValue(null, order, 1);
+			assertEquals("#1", order.getNote().toString());
+		}
+		finally {
+			Converters.unregister(Integer.class, StringBuilder.class);
+		}
 	}
 
 	private static Object eval(Context context, Object root, String exprStr) throws ParseException, ClassNotFoundException, NoSuchFieldException, OgnlException {
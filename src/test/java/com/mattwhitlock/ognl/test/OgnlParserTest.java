@@ -4,6 +4,9 @@
 package com.mattwhitlock.ognl.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.awt.event.ActionListener;
 import java.math.BigDecimal;
@@ -15,6 +18,7 @@ import java.util.LinkedHashMap;
 import org.junit.jupiter.api.Test;
 
 import com.mattwhitlock.ognl.Expression;
+import com.mattwhitlock.ognl.ExpressionInterner;
 import com.mattwhitlock.ognl.IllegalAssignmentException;
 import com.mattwhitlock.ognl.OgnlParser;
 
@@ -72,6 +76,17 @@ public class OgnlParserTest {
 		assertParse(new Expression.Selection(new Expression.Projection(new Expression.PropertyAccess("items"), new Expression.PropertyAccess("value")), Expression.ThisReference.THIS));
 		assertParse(new Expression.Selection.First(new Expression.Projection(new Expression.PropertyAccess("components"), new Expression.PropertyAccess("items")), new Expression.Selection.First(Expression.ThisReference.THIS, new Expression.PropertyAccess("value"))));
 		assertParse(new Expression.Selection.Last(new Expression.Projection(new Expression.PropertyAccess("components"), new Expression.IndexAccess(new Expression.PropertyAccess("items"), new Expression.PropertyAccess("selectedIndex"))), new Expression.PropertyAccess("value")));
+		assertParse(new Expression.Projection.Primitive(new Expression.PropertyAccess("prices"), new Expression.Arithmetic.Multiplication(Expression.ThisReference.THIS, new Expression.Literal.Double(1.2))));
+		assertParse(new Expression.Projection(new Expression.PropertyAccess("rows"), new Expression.IndexAccess(new Expression.Literal.Integer(0))));
+		assertParse(new Expression.Aggregation.Sum(new Expression.Selection(new Expression.PropertyAccess("items"), new Expression.PropertyAccess("active")), new Expression.Arithmetic.Multiplication(new Expression.PropertyAccess("price"), new Expression.PropertyAccess("qty"))));
+		assertParse(new Expression.Projection(new Expression.Aggregation.Maximum(new Expression.PropertyAccess("rows"), new Expression.PropertyAccess("count")), new Expression.PropertyAccess("sum")));
+		assertParse(new Expression.Limit(new Expression.Sort.Descending(new Expression.PropertyAccess("players"), new Expression.PropertyAccess("score")), new Expression.Literal.Integer(10)));
+		assertParse(new Expression.Aggregation.Count(new Expression.GroupBy(new Expression.Distinct(new Expression.PropertyAccess("orders"), new Expression.PropertyAccess("id")), new Expression.PropertyAccess(new Expression.PropertyAccess("customer"), "region")), Expression.Literal.Boolean.TRUE));
+		assertParse(new Expression.Join(new Expression.PropertyAccess("orders"), new Expression.PropertyAccess("customers"), new Expression.PropertyAccess("customerId"), new Expression.PropertyAccess("id"), null));
+		assertParse(new Expression.Join.Left(new Expression.PropertyAccess("orders"), new Expression.VariableReference("customers"), new Expression.PropertyAccess("customerId"), new Expression.PropertyAccess("id"), new Expression.PropertyAccess(new Expression.PropertyAccess("right"), "name")));
+		assertParse(new Expression.Join(new Expression.VariableReference("a"), new Expression.Sequence(new Expression.VariableReference("x"), new Expression.VariableReference("b")), Expression.ThisReference.THIS, Expression.ThisReference.THIS, null));
+		assertParse(new Expression.Join(new Expression.VariableReference("a"), new Expression.VariableReference("b"), new Expression.Sequence(new Expression.VariableReference("x"), new Expression.PropertyAccess("left")), new Expression.PropertyAccess("id"), new Expression.Sequence(new Expression.VariableReference("y"), new Expression.PropertyAccess("right"))));
+		assertParse(new Expression.Limit.Skip(new Expression.Limit(new Expression.Selection(new Expression.PropertyAccess("items"), new Expression.PropertyAccess("active")), new Expression.Literal.Integer(10)), new Expression.VariableReference("offset")));
 		assertParse(new Expression.Subexpression(new Expression.PropertyAccess("buffer"), new Expression.Sequence(new Expression.Assignment(new Expression.PropertyAccess("length"), new Expression.Arithmetic.Subtraction(new Expression.PropertyAccess("length"), new Expression.Literal.Integer(1))), new Expression.MethodInvocation("append", new Expression.Literal.String("foo")))));
 	}
 
@@ -216,6 +231,21 @@ public class OgnlParserTest {
 		assertParse("names[0].length + 1", new Expression.Arithmetic.Addition(new Expression.PropertyAccess(new Expression.IndexedPropertyAccess("names", new Expression.Literal.Integer(0)), "length"), new Expression.Literal.Integer(1)));
 	}
 
+	@Test
+	void testParseInterned() throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
+		ExpressionInterner interner = new ExpressionInterner();
+		Expression tier = OgnlParser.parse("customer.account.tier", interner), region = OgnlParser.parse("#ctx.region", interner);
+		assertSame(tier, OgnlParser.parse("customer.account.tier", interner));
+		assertNotSame(tier, OgnlParser.parse("customer.account.tier"));
+		Expression comparison = OgnlParser.parse("customer.account.tier == #ctx.region", interner);
+		assertEquals(new Expression.Equal(tier, region), comparison);
+		assertSame(comparison, interner.intern(new Expression.Equal(tier, region)));
+		assertSame(tier, interner.intern(new Expression.PropertyAccess(new Expression.PropertyAccess(new Expression.PropertyAccess("customer"), "account"), "tier")));
+		assertEquals(comparison.hashCode(), OgnlParser.parse("customer.account.tier == #ctx.region").hashCode());
+		assertNotEquals(OgnlParser.parse("new int[1]"), OgnlParser.parse("new int[2]"));
+		assertNotSame(OgnlParser.parse("new int[1]", interner), OgnlParser.parse("new int[2]", interner));
+	}
+
 	private static void assertParse(Expression expression) throws ParseException, IllegalAssignmentException, ClassNotFoundException, NoSuchFieldException {
 		String exprStr = expression.toString();
 		assertEquals(exprStr, assertParse(exprStr, expression).toString());